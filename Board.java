@@ -1,19 +1,83 @@
-import java.io.Serializable;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 
 /**
  * <h3>Created by James on 12/03/2016.</h3>
  * <p>
  * <p>The Board object groups and manages the cells in the game, providing methods of querying the status of cells</p>
+ * <p>Cell state is stored as one byte of bit flags per cell in a flat array indexed by <code>x * boardY + y</code>.
+ * <b>Cell</b> objects are only created as views on request.</p>
  */
 public class Board implements Serializable {
 
+    /**
+     * Matches the serialVersionUID of the original Cell[][] board so that older save files can still be read
+     */
+    private static final long serialVersionUID = -7633732864579414930L;
+
+    /**
+     * Serialized form of the board. <b>cells</b> is only present in saves written before the packed layout
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("boardX", int.class),
+            new ObjectStreamField("boardY", int.class),
+            new ObjectStreamField("numberOfMines", int.class),
+            new ObjectStreamField("cells", Cell[][].class),
+            new ObjectStreamField("state", byte[].class)
+    };
+
+    /**
+     * Bit flags for each cell in the state array. VISITED is only set while floodReveal is running
+     */
+    static final int MINE = 1;
+    static final int FLAGGED = 1 << 1;
+    static final int REVEALED = 1 << 2;
+    static final int SAFE = 1 << 3;
+    static final int VISITED = 1 << 4;
+
+    /**
+     * Largest number of cells a custom board can have, enough for a 5000x5000 board
+     */
+    public static final int MAX_CELLS = 25000000;
+    /**
+     * Boards of at least this many cells count all their adjacent mines in one pass after placing the mines, when
+     * there is at least one mine for every DENSE_MINES_RATIO cells, rather than updating the counts around each mine
+     */
+    private static final int DENSE_MIN_CELLS = 1 << 16;
+    private static final int DENSE_MINES_RATIO = 16;
+
     private int boardX;
     private int boardY;
     private int numberOfMines;
-    private Cell[][] cells;
+    private byte[] state;
+    /**
+     * Number of mines in the 3x3 block around each cell (including the cell itself), indexed like the state array
+     */
+    private transient byte[] adjacentMines;
+    /**
+     * Work queue of cell indices for floodReveal, kept between calls and grown to the largest region opened
+     */
+    private transient int[] fillQueue;
+    /**
+     * Scratch array for getAdjacentIndices, used by the board's own methods (none of which call each other while using it)
+     */
+    private transient int[] neighbours = new int[9];
+    /**
+     * Running totals kept up to date by every change to the state array, so the game can query them in constant time
+     */
+    private transient int minesPlaced;
+    private transient int flagsPlaced;
+    private transient int revealedSafeCells;
+    /**
+     * Indices of the cells marked safe, in no particular order, so mine generation can skip them without a scan
+     */
+    private transient int[] safeCells;
+    private transient int safeCount;
 
     /**
      * Constructor for the board object, generates a board based on the Difficulty given
@@ -25,6 +89,38 @@ public class Board implements Serializable {
         generateNewBoard();
     }
 
+    /**
+     * Constructor for the board object, generates a board of the given size
+     *
+     * @param boardX        int of the width of the board
+     * @param boardY        int of the height of the board
+     * @param numberOfMines int of the number of mines
+     */
+    public Board(int boardX, int boardY, int numberOfMines) {
+        this.boardX = boardX;
+        this.boardY = boardY;
+        this.numberOfMines = numberOfMines;
+        generateNewBoard();
+    }
+
+    /**
+     * Returns a copy of the board that shares no state with it, so it can be read (i.e. saved) on another thread
+     * while this board is still being played
+     *
+     * @return Board copy of this board
+     */
+    public Board copy() {
+        Board copy = new Board(boardX, boardY, numberOfMines);
+        System.arraycopy(state, 0, copy.state, 0, state.length);
+        System.arraycopy(adjacentMines, 0, copy.adjacentMines, 0, adjacentMines.length);
+        copy.safeCells = Arrays.copyOf(safeCells, safeCells.length);
+        copy.safeCount = safeCount;
+        copy.minesPlaced = minesPlaced;
+        copy.flagsPlaced = flagsPlaced;
+        copy.revealedSafeCells = revealedSafeCells;
+        return copy;
+    }
+
     /**
      * Accessor method for the numberOfMines field
      *
@@ -40,10 +136,194 @@ public class Board implements Serializable {
      * @param x x position of the desired cell
      * @param y y position of the desired cell
      *
-     * @return Cell object at the given x and y positions
+     * @return Cell view of the given x and y positions
      */
     public Cell getCell(int x, int y) {
-        return cells[x][y];
+        return new Cell(this, x, y);
+    }
+
+    /**
+     * Returns whether the cell at the given coordinates is a mine
+     *
+     * @param x x position of the cell
+     * @param y y position of the cell
+     *
+     * @return boolean whether the cell is a mine
+     */
+    public boolean isMine(int x, int y) {
+        return hasFlag(x, y, MINE);
+    }
+
+    /**
+     * Sets whether the cell at the given coordinates is a mine
+     *
+     * @param x    x position of the cell
+     * @param y    y position of the cell
+     * @param mine boolean whether the cell is a mine
+     */
+    public void setMine(int x, int y, boolean mine) {
+        if (isMine(x, y) != mine) {
+            setFlag(x, y, MINE, mine);
+            addAdjacentMines(x, y, mine ? 1 : -1);
+        }
+    }
+
+    /**
+     * Returns whether the cell at the given coordinates is flagged
+     *
+     * @param x x position of the cell
+     * @param y y position of the cell
+     *
+     * @return boolean whether the cell is flagged
+     */
+    public boolean isFlagged(int x, int y) {
+        return hasFlag(x, y, FLAGGED);
+    }
+
+    /**
+     * Sets whether the cell at the given coordinates is flagged
+     *
+     * @param x       x position of the cell
+     * @param y       y position of the cell
+     * @param flagged boolean whether the cell is flagged
+     */
+    public void setFlagged(int x, int y, boolean flagged) {
+        setFlag(x, y, FLAGGED, flagged);
+    }
+
+    /**
+     * Returns whether the cell at the given coordinates is revealed
+     *
+     * @param x x position of the cell
+     * @param y y position of the cell
+     *
+     * @return boolean whether the cell is revealed
+     */
+    public boolean isRevealed(int x, int y) {
+        return hasFlag(x, y, REVEALED);
+    }
+
+    /**
+     * Sets whether the cell at the given coordinates is revealed
+     *
+     * @param x        x position of the cell
+     * @param y        y position of the cell
+     * @param revealed boolean whether the cell is revealed
+     */
+    public void setRevealed(int x, int y, boolean revealed) {
+        setFlag(x, y, REVEALED, revealed);
+    }
+
+    /**
+     * Returns whether the cell at the given coordinates is safe (can not become a mine)
+     *
+     * @param x x position of the cell
+     * @param y y position of the cell
+     *
+     * @return boolean whether the cell is safe
+     */
+    public boolean isSafe(int x, int y) {
+        return hasFlag(x, y, SAFE);
+    }
+
+    /**
+     * Sets whether the cell at the given coordinates is safe (can not become a mine)
+     *
+     * @param x    x position of the cell
+     * @param y    y position of the cell
+     * @param safe boolean whether the cell is safe
+     */
+    public void setSafe(int x, int y, boolean safe) {
+        setFlag(x, y, SAFE, safe);
+    }
+
+    /**
+     * Tests a bit flag of the cell at the given coordinates
+     *
+     * @param x    x position of the cell
+     * @param y    y position of the cell
+     * @param flag bit flag to test
+     *
+     * @return boolean whether the flag is set
+     */
+    private boolean hasFlag(int x, int y, int flag) {
+        return (state[x * boardY + y] & flag) != 0;
+    }
+
+    /**
+     * Sets or clears a bit flag of the cell at the given coordinates
+     *
+     * @param x     x position of the cell
+     * @param y     y position of the cell
+     * @param flag  bit flag to change
+     * @param value boolean whether the flag should be set
+     */
+    private void setFlag(int x, int y, int flag, boolean value) {
+        int i = x * boardY + y;
+        if (value) {
+            updateState(i, state[i] | flag);
+        } else {
+            updateState(i, state[i] & ~flag);
+        }
+    }
+
+    /**
+     * Replaces the state flags of a cell and updates the running totals to match
+     *
+     * @param index int index of the cell in the state array
+     * @param value int of the new state flags
+     */
+    private void updateState(int index, int value) {
+        int old = state[index];
+        int changed = old ^ value;
+        if ((changed & SAFE) != 0) {
+            if ((value & SAFE) != 0) {
+                addSafeCell(index);
+            } else {
+                removeSafeCell(index);
+            }
+        }
+        if ((changed & FLAGGED) != 0) {
+            flagsPlaced += (value & FLAGGED) != 0 ? 1 : -1;
+        }
+        if ((changed & MINE) != 0) {
+            minesPlaced += (value & MINE) != 0 ? 1 : -1;
+        }
+        if ((changed & (MINE | REVEALED)) != 0) {
+            if ((old & (MINE | REVEALED)) == REVEALED) {
+                revealedSafeCells--;
+            }
+            if ((value & (MINE | REVEALED)) == REVEALED) {
+                revealedSafeCells++;
+            }
+        }
+        state[index] = (byte) value;
+    }
+
+    /**
+     * Adds a cell to the list of safe cells
+     *
+     * @param index int index of the cell
+     */
+    private void addSafeCell(int index) {
+        if (safeCount == safeCells.length) {
+            safeCells = Arrays.copyOf(safeCells, safeCount * 2);
+        }
+        safeCells[safeCount++] = index;
+    }
+
+    /**
+     * Removes a cell from the list of safe cells
+     *
+     * @param index int index of the cell
+     */
+    private void removeSafeCell(int index) {
+        for (int i = 0; i < safeCount; i++) {
+            if (safeCells[i] == index) {
+                safeCells[i] = safeCells[--safeCount];
+                return;
+            }
+        }
     }
 
     /**
@@ -68,15 +348,55 @@ public class Board implements Serializable {
                 boardY = 16;
                 numberOfMines = 99;
                 break;
-            /* To be implemented
             case CUSTOM:
-                boardX = ;
-                boardY = ;
-                numberOfMines = ;*/
+                //A custom board keeps its current size, see setBoardSize
+                break;
         }
         generateNewBoard();
     }
 
+    /**
+     * Sets a custom size and number of mines for the board and clears it
+     *
+     * @param boardX        int of the width of the board
+     * @param boardY        int of the height of the board
+     * @param numberOfMines int of the number of mines
+     *
+     * @throws IllegalArgumentException if the size is not valid (see checkSize)
+     */
+    public void setBoardSize(int boardX, int boardY, int numberOfMines) {
+        checkSize(boardX, boardY, numberOfMines);
+        this.boardX = boardX;
+        this.boardY = boardY;
+        this.numberOfMines = numberOfMines;
+        generateNewBoard();
+    }
+
+    /**
+     * Checks a custom board size. The board can have up to MAX_CELLS cells, and there must be fewer mines than cells
+     * outside the largest possible safe area around the first click, so the mines always fit and at least one cell
+     * is left to reveal after them
+     *
+     * @param boardX        int of the width of the board
+     * @param boardY        int of the height of the board
+     * @param numberOfMines int of the number of mines
+     *
+     * @throws IllegalArgumentException if the size is not valid, with a message saying why
+     */
+    public static void checkSize(int boardX, int boardY, int numberOfMines) {
+        if (boardX < 1 || boardY < 1) {
+            throw new IllegalArgumentException("Width and height must be at least 1");
+        }
+        if ((long) boardX * boardY > MAX_CELLS) {
+            throw new IllegalArgumentException("The board can have at most " + MAX_CELLS + " cells");
+        }
+        int nonSafe = boardX * boardY - Math.min(3, boardX) * Math.min(3, boardY);
+        if (numberOfMines < 1 || numberOfMines >= nonSafe) {
+            throw new IllegalArgumentException(nonSafe < 2 ? "The board is too small for any mines" :
+                    "Mines must be between 1 and " + (nonSafe - 1) + " for a " + boardX + "x" + boardY + " board");
+        }
+    }
+
     /**
      * Accessor method for the boardX field
      *
@@ -96,7 +416,8 @@ public class Board implements Serializable {
     }
 
     /**
-     * Return all cells that are adjacent to the given cell
+     * Return all cells that are adjacent to the given cell.
+     * This allocates a list of Cell views, getAdjacentIndices should be used where speed matters
      *
      * @param x x position of cell
      * @param y y position of cell
@@ -104,55 +425,93 @@ public class Board implements Serializable {
      * @return ArrayList<Cell> of all cell references adjacent to the current cell
      */
     public ArrayList<Cell> getAdjacentCells(int x, int y) {
+        int[] indices = new int[9];
+        int count = getAdjacentIndices(x, y, indices);
 
-        ArrayList<Cell> list = new ArrayList<>();
-
-        int rowStart;
-        int columnStart;
-        int columnLimit;
-        int rowLimit;
-
-        if (x < 1) {
-            rowStart = x;
-        } else {
-            rowStart = x - 1;
-        }
-        if (y < 1) {
-            columnStart = y;
-        } else {
-            columnStart = y - 1;
-        }
-        if (x == boardX - 1) {
-            rowLimit = x;
-        } else {
-            rowLimit = x + 1;
-        }
-        if (y == boardY - 1) {
-            columnLimit = y;
-        } else {
-            columnLimit = y + 1;
+        ArrayList<Cell> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(new Cell(this, getX(indices[i]), getY(indices[i])));
         }
+        return list;
+    }
+
+    /**
+     * Writes the indices of all cells adjacent to the given cell (including the cell itself) into the given array.
+     * Nothing is allocated, so this can be called for every cell of a move
+     *
+     * @param x       x position of cell
+     * @param y       y position of cell
+     * @param indices int array of at least 9 elements to write the cell indices to
+     *
+     * @return int of the number of indices written
+     */
+    public int getAdjacentIndices(int x, int y, int[] indices) {
+        int rowStart = x < 1 ? x : x - 1;
+        int columnStart = y < 1 ? y : y - 1;
+        int rowLimit = x == boardX - 1 ? x : x + 1;
+        int columnLimit = y == boardY - 1 ? y : y + 1;
 
+        int count = 0;
         for (int i = rowStart; i <= rowLimit; i++) {
             for (int j = columnStart; j <= columnLimit; j++) {
-                list.add(cells[i][j]);
+                indices[count++] = i * boardY + j;
             }
         }
+        return count;
+    }
 
-        return list;
+    /**
+     * Returns the index of the given cell, as used by getAdjacentIndices
+     *
+     * @param x x position of the cell
+     * @param y y position of the cell
+     *
+     * @return int index of the cell
+     */
+    public int getIndex(int x, int y) {
+        return x * boardY + y;
+    }
+
+    /**
+     * Returns the x position of a cell index
+     *
+     * @param index int index of the cell
+     *
+     * @return int x position of the cell
+     */
+    public int getX(int index) {
+        return index / boardY;
     }
 
     /**
-     * Generates and new board with default cells based on the X and Y of the board
+     * Returns the y position of a cell index
+     *
+     * @param index int index of the cell
+     *
+     * @return int y position of the cell
      */
-    public void generateNewBoard() {
-        cells = new Cell[boardX][boardY];
+    public int getY(int index) {
+        return index % boardY;
+    }
 
-        for (int i = 0; i < boardX; i++) {
-            for (int j = 0; j < boardY; j++) {
-                cells[i][j] = new Cell(i, j);
-            }
+    /**
+     * Generates and new board with default cells based on the X and Y of the board.
+     * The arrays are cleared and reused while the size stays the same, so large boards are not reallocated every game
+     */
+    public void generateNewBoard() {
+        int cells = boardX * boardY;
+        if (state == null || state.length != cells) {
+            state = new byte[cells];
+            adjacentMines = new byte[cells];
+        } else {
+            Arrays.fill(state, (byte) 0);
+            Arrays.fill(adjacentMines, (byte) 0);
         }
+        minesPlaced = 0;
+        flagsPlaced = 0;
+        revealedSafeCells = 0;
+        safeCells = new int[9];
+        safeCount = 0;
     }
 
     /**
@@ -162,8 +521,9 @@ public class Board implements Serializable {
      * @param y y position of the cell
      */
     public void setSafeCells(int x, int y) {
-        for (Cell c : getAdjacentCells(x, y)) {
-            c.setSafe(true);
+        int count = getAdjacentIndices(x, y, neighbours);
+        for (int i = 0; i < count; i++) {
+            updateState(neighbours[i], state[neighbours[i]] | SAFE);
         }
     }
 
@@ -176,31 +536,279 @@ public class Board implements Serializable {
      * @return int of the number of the mines adjacent to the given cell
      */
     public int getAdjacentMines(int x, int y) {
-        int count = 0;
-        for (Cell c : getAdjacentCells(x, y)) {
-            if (c.isMine()) {
-                count++;
+        return adjacentMines[x * boardY + y];
+    }
+
+    /**
+     * Adds to the adjacent mine count of every cell around the given cell, called whenever a cell changes to or from a mine
+     *
+     * @param x     x position of the cell
+     * @param y     y position of the cell
+     * @param delta int to add to each count
+     */
+    private void addAdjacentMines(int x, int y, int delta) {
+        int count = getAdjacentIndices(x, y, neighbours);
+        for (int i = 0; i < count; i++) {
+            adjacentMines[neighbours[i]] += delta;
+        }
+    }
+
+    /**
+     * Reveals the region of cells with no adjacent mines that contains the given cell, along with the cells bordering it.
+     * Revealed cells are unflagged. Does nothing if the given cell has adjacent mines.
+     * Uses a work queue rather than recursion so the size of the region is only limited by the board.
+     *
+     * @param x       x position of the cell
+     * @param y       y position of the cell
+     * @param changes CellChanges to record each cell that is revealed or unflagged
+     */
+    public void floodReveal(int x, int y, CellChanges changes) {
+        int start = x * boardY + y;
+        if (adjacentMines[start] != 0) {
+            return;
+        }
+        if (fillQueue == null) {
+            fillQueue = new int[64];
+        }
+        long startTime = System.nanoTime();
+        GameEvents.FloodFill event = null;
+        if (GameEvents.FLOOD_FILL.isEnabled()) {
+            event = new GameEvents.FloodFill();
+            event.begin();
+        }
+        int changed = changes.size();
+
+        int head = 0;
+        int tail = 0;
+        fillQueue[tail++] = start;
+        state[start] |= VISITED;
+        revealCell(start, changes);
+
+        while (head < tail) {
+            int index = fillQueue[head++];
+            int count = getAdjacentIndices(index / boardY, index % boardY, neighbours);
+
+            for (int i = 0; i < count; i++) {
+                int n = neighbours[i];
+                revealCell(n, changes);
+                if (adjacentMines[n] == 0 && (state[n] & VISITED) == 0) {
+                    state[n] |= VISITED;
+                    if (tail == fillQueue.length) {
+                        fillQueue = Arrays.copyOf(fillQueue, tail * 2);
+                    }
+                    fillQueue[tail++] = n;
+                }
             }
         }
-        return count;
+
+        for (int i = 0; i < tail; i++) {
+            state[fillQueue[i]] &= ~VISITED;
+        }
+
+        changed = changes.size() - changed;
+        if (event != null) {
+            event.cells = changed;
+            event.commit();
+        }
+        Metrics.FLOOD_FILL.recordSince(startTime);
+        Metrics.FLOOD_FILL_CELLS.record(changed);
+    }
+
+    /**
+     * Reveals and unflags a single cell, recording it if its state changed
+     *
+     * @param index   int index of the cell in the state array
+     * @param changes CellChanges to record the cell in
+     */
+    private void revealCell(int index, CellChanges changes) {
+        int old = state[index];
+        if ((old & (REVEALED | FLAGGED)) != REVEALED) {
+            updateState(index, (old | REVEALED) & ~FLAGGED);
+            changes.add(index / boardY, index % boardY);
+        }
     }
 
     /**
-     * Sets up the board with mines. Cell will not become a mine if it already is a mine and it is not a safe cell
+     * Sets up the board with mines using a random seed. See generateMines(SplittableRandom)
      */
     public void generateMines() {
-        Random rand = new Random();
-        int count = numberOfMines;
+        generateMines(new SplittableRandom());
+    }
 
-        while (count > 0) {
-            int x = rand.nextInt(boardX);
-            int y = rand.nextInt(boardY);
+    /**
+     * Sets up the board with mines from the given seed. The same seed and the same safe cells (i.e. the same first click)
+     * always produce the same board
+     *
+     * @param seed long seed for the mine positions
+     */
+    public void generateMines(long seed) {
+        generateMines(new SplittableRandom(seed));
+    }
+
+    /**
+     * Sets up the board with mines. Safe cells never become mines and every other cell is equally likely to be one.
+     * The mines are chosen among the cells that are not safe with sampleMines, then placed with placeMines
+     *
+     * @param random SplittableRandom to choose the mine positions with
+     *
+     * @throws IllegalStateException if there are not enough cells that are not safe to hold every mine
+     */
+    public void generateMines(SplittableRandom random) {
+        long start = System.nanoTime();
+        GameEvents.BoardGeneration event = beginGeneration();
+        int eligible = state.length - safeCount;
+        if (numberOfMines > eligible) {
+            throw new IllegalStateException("Cannot place " + numberOfMines + " mines in " + eligible + " cells");
+        }
+        placeMines(sampleMines(random, eligible, numberOfMines));
+        generated(start, event);
+    }
 
-            if (!getCell(x, y).isSafe() && !getCell(x, y).isMine()) {
-                getCell(x, y).setMine(true);
-                count--;
+    /**
+     * Sets up the board with mines chosen in advance by sampleMines (see BoardPool), for the safe cells the board has
+     * now. The board is the same as generateMines would give from the random that chose them
+     *
+     * @param chosen long array of the chosen positions among the cells that are not safe, one bit each
+     *
+     * @throws IllegalArgumentException if the positions were not chosen for this many mines among this many cells
+     */
+    public void generateMines(long[] chosen) {
+        long start = System.nanoTime();
+        GameEvents.BoardGeneration event = beginGeneration();
+        int eligible = state.length - safeCount;
+        long count = 0;
+        for (long word : chosen) {
+            count += Long.bitCount(word);
+        }
+        if (chosen.length != (eligible + 63) >>> 6 || count != numberOfMines) {
+            throw new IllegalArgumentException("Mines were not chosen for " + numberOfMines + " mines in " + eligible
+                    + " cells");
+        }
+        placeMines(chosen);
+        generated(start, event);
+    }
+
+    /**
+     * Begins a BoardGeneration event if a Java Flight Recorder recording wants one
+     *
+     * @return BoardGeneration event that has begun, or null if the event is not enabled
+     */
+    private static GameEvents.BoardGeneration beginGeneration() {
+        if (!GameEvents.BOARD_GENERATION.isEnabled()) {
+            return null;
+        }
+        GameEvents.BoardGeneration event = new GameEvents.BoardGeneration();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Records a board generation in the metrics and Java Flight Recorder
+     *
+     * @param start long of the System.nanoTime() the generation started at
+     * @param event BoardGeneration event begun when the generation started, or null if it is not enabled
+     */
+    private void generated(long start, GameEvents.BoardGeneration event) {
+        if (event != null) {
+            event.width = boardX;
+            event.height = boardY;
+            event.mines = numberOfMines;
+            event.commit();
+        }
+        Metrics.BOARD_GENERATION.recordSince(start);
+    }
+
+    /**
+     * Chooses which of the cells that can hold a mine get one, by their position among those cells. Uses Floyd's
+     * sampling, so the work depends on the number of mines and does not slow down as the board fills.
+     * Only the number of cells matters, not which cells they are, so the positions can be chosen before the first
+     * click and placed around whichever safe cells it makes (see placeMines)
+     *
+     * @param random   SplittableRandom to choose the positions with
+     * @param eligible int of the number of cells that can hold a mine
+     * @param mines    int of the number of mines, at most eligible
+     *
+     * @return long array of the chosen positions, one bit each
+     */
+    static long[] sampleMines(SplittableRandom random, int eligible, int mines) {
+        long[] chosen = new long[(eligible + 63) >>> 6];
+        for (int j = eligible - mines; j < eligible; j++) {
+            int position = random.nextInt(j + 1);
+            if ((chosen[position >>> 6] & (1L << position)) != 0) {
+                position = j;
+            }
+            chosen[position >>> 6] |= 1L << position;
+        }
+        return chosen;
+    }
+
+    /**
+     * Places a mine in each chosen cell, counting positions over the cells that are not safe. The chosen positions are
+     * read in order, so each one is moved past the safe cells before it in a single merge. The adjacent mine counts
+     * are updated as each mine is placed, except on large boards with many mines where they are counted in one pass
+     * afterwards (see countAdjacentMines)
+     *
+     * @param chosen long array of the chosen positions among the cells that are not safe, one bit each
+     */
+    private void placeMines(long[] chosen) {
+        int[] excluded = Arrays.copyOf(safeCells, safeCount);
+        Arrays.sort(excluded);
+        boolean dense = state.length >= DENSE_MIN_CELLS && numberOfMines >= state.length / DENSE_MINES_RATIO;
+
+        int skipped = 0;
+        for (int w = 0; w < chosen.length; w++) {
+            long word = chosen[w];
+            while (word != 0) {
+                int position = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                while (skipped < excluded.length && excluded[skipped] <= position + skipped) {
+                    skipped++;
+                }
+                int index = position + skipped;
+                updateState(index, state[index] | MINE);
+                if (!dense) {
+                    addAdjacentMines(getX(index), getY(index), 1);
+                }
             }
         }
+        if (dense) {
+            countAdjacentMines();
+        }
+    }
+
+    /**
+     * Counts the adjacent mines of every cell from the state array in two sequential passes: the mines in each
+     * column's 3 cell window, then the sum of those over 3 neighbouring columns.
+     * Much faster than updating the 9 counts around each mine when the board is large and has many mines, as the
+     * arrays are read in order instead of at random
+     */
+    private void countAdjacentMines() {
+        for (int x = 0; x < boardX; x++) {
+            int base = x * boardY;
+            int above = 0;
+            int here = state[base] & MINE;
+            for (int y = 0; y < boardY; y++) {
+                int below = y + 1 < boardY ? state[base + y + 1] & MINE : 0;
+                adjacentMines[base + y] = (byte) (above + here + below);
+                above = here;
+                here = below;
+            }
+        }
+
+        byte[] previous = new byte[boardY];
+        byte[] current = new byte[boardY];
+        for (int x = 0; x < boardX; x++) {
+            int base = x * boardY;
+            System.arraycopy(adjacentMines, base, current, 0, boardY);
+            int next = base + boardY;
+            for (int y = 0; y < boardY; y++) {
+                int right = x + 1 < boardX ? adjacentMines[next + y] : 0;
+                adjacentMines[base + y] = (byte) (previous[y] + current[y] + right);
+            }
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
     }
 
     /**
@@ -209,33 +817,223 @@ public class Board implements Serializable {
      * @return int Returns the number of unrevealed cells that are not mines
      */
     public int nonMinesLeft() {
+        return state.length - minesPlaced - revealedSafeCells;
+    }
+
+    /**
+     * Returns the number of potential mines left on the board.
+     *
+     * @return int Returns the number of potential mines left on the board.
+     */
+    public int minesLeft() {
+        return numberOfMines - flagsPlaced;
+    }
+
+    /**
+     * Returns the number of flags on the board
+     *
+     * @return int of the number of flagged cells
+     */
+    public int getFlagsPlaced() {
+        return flagsPlaced;
+    }
+
+    /**
+     * Returns the number of cells that are safe (can not become a mine), set by the first click
+     *
+     * @return int of the number of safe cells
+     */
+    public int getSafeCellCount() {
+        return safeCount;
+    }
+
+    /**
+     * Returns the number of revealed cells that are not mines
+     *
+     * @return int of the number of revealed safe cells
+     */
+    public int getRevealedSafeCells() {
+        return revealedSafeCells;
+    }
+
+    /**
+     * Checks the running totals against a full scan of the board, used in debug mode
+     *
+     * @throws IllegalStateException if a running total does not match the board
+     */
+    public void checkCounters() {
+        if (nonMinesLeft() != countNonMinesLeft() || minesLeft() != countMinesLeft()) {
+            throw new IllegalStateException("Board counters out of sync: nonMinesLeft " + nonMinesLeft() + " (scan "
+                    + countNonMinesLeft() + "), minesLeft " + minesLeft() + " (scan " + countMinesLeft() + ")");
+        }
+    }
+
+    /**
+     * Scans the board for the number of unrevealed cells that are not mines
+     *
+     * @return int of the number of unrevealed cells that are not mines
+     */
+    private int countNonMinesLeft() {
         int count = 0;
 
-        for (Cell[] cellA : cells) {
-            for (Cell c : cellA) {
-                if (!c.isMine() && !c.isRevealed()) {
-                    count++;
-                }
+        for (byte b : state) {
+            if ((b & (MINE | REVEALED)) == 0) {
+                count++;
             }
         }
         return count;
     }
 
     /**
-     * Returns the number of potential mines left on the board.
+     * Scans the board for the number of potential mines left
      *
-     * @return int Returns the number of potential mines left on the board.
+     * @return int of the number of mines minus the number of flags
      */
-    public int minesLeft() {
+    private int countMinesLeft() {
         int count = 0;
 
-        for (Cell[] cellA : cells) {
-            for (Cell c : cellA) {
-                if (c.isFlagged()) {
-                    count++;
-                }
+        for (byte b : state) {
+            if ((b & FLAGGED) != 0) {
+                count++;
             }
         }
         return numberOfMines - count;
     }
+
+    /**
+     * Returns the number of bytes one bit plane of a board takes, one bit per cell rounded up to whole longs
+     *
+     * @param cells int of the number of cells on the board
+     *
+     * @return int of the bytes in a plane
+     */
+    static int planeBytes(int cells) {
+        return (cells + 63) / 64 * 8;
+    }
+
+    /**
+     * Writes one bit of every cell as a bit plane, 64 cells to a long in index order
+     *
+     * @param flag int of the state bit to write (MINE, FLAGGED, REVEALED or SAFE)
+     * @param out  ByteBuffer to write the plane to
+     */
+    void writePlane(int flag, ByteBuffer out) {
+        int shift = Integer.numberOfTrailingZeros(flag);
+        ByteBuffer cells = ByteBuffer.wrap(state).order(ByteOrder.LITTLE_ENDIAN);
+        int full = state.length & ~63;
+        for (int i = 0; i < full; i += 64) {
+            long word = 0;
+            for (int j = 0; j < 64; j += 8) {
+                //Gathers the bit from each of 8 cells into one byte, the first cell in the lowest bit
+                long bits = (cells.getLong(i + j) >>> shift) & 0x0101010101010101L;
+                word |= (bits * 0x0102040810204080L >>> 56) << j;
+            }
+            out.putLong(word);
+        }
+        if (full < state.length) {
+            long word = 0;
+            for (int i = full; i < state.length; i++) {
+                word |= (long) ((state[i] >>> shift) & 1) << (i - full);
+            }
+            out.putLong(word);
+        }
+    }
+
+    /**
+     * Reads a bit plane written by writePlane, setting the bit on every cell marked in the plane.
+     * rebuild() has to be called once every plane has been read
+     *
+     * @param flag int of the state bit to read (MINE, FLAGGED, REVEALED or SAFE)
+     * @param in   ByteBuffer to read the plane from
+     */
+    void readPlane(int flag, ByteBuffer in) {
+        for (int i = 0; i < state.length; i += 64) {
+            long word = in.getLong();
+            while (word != 0) {
+                int index = i + Long.numberOfTrailingZeros(word);
+                if (index < state.length) {
+                    state[index] |= flag;
+                }
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Writes the board in its packed form
+     *
+     * @param out stream to write to
+     *
+     * @throws IOException if the stream can not be written to
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("boardX", boardX);
+        fields.put("boardY", boardY);
+        fields.put("numberOfMines", numberOfMines);
+        fields.put("state", state);
+        out.writeFields();
+    }
+
+    /**
+     * Reads a board, converting saves that still contain a Cell[][] to the packed form
+     *
+     * @param in stream to read from
+     *
+     * @throws IOException            if the stream can not be read from
+     * @throws ClassNotFoundException if a class in the stream can not be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        neighbours = new int[9];
+        boardX = fields.get("boardX", 0);
+        boardY = fields.get("boardY", 0);
+        numberOfMines = fields.get("numberOfMines", 0);
+        state = (byte[]) fields.get("state", null);
+
+        if (state == null) {
+            Cell[][] cells = (Cell[][]) fields.get("cells", null);
+            state = new byte[boardX * boardY];
+            for (int i = 0; i < boardX; i++) {
+                for (int j = 0; j < boardY; j++) {
+                    state[i * boardY + j] = cells[i][j].getLegacyState();
+                }
+            }
+        }
+
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the adjacent mine counts, the safe cell list and the counters from the packed state, after the state
+     * has been read from a save file
+     */
+    void rebuild() {
+        if (adjacentMines == null || adjacentMines.length != state.length) {
+            adjacentMines = new byte[state.length];
+        }
+        safeCells = new int[9];
+        safeCount = 0;
+        minesPlaced = 0;
+        flagsPlaced = 0;
+        revealedSafeCells = 0;
+        for (int index = 0; index < state.length; index++) {
+            byte b = state[index];
+            if (b == 0) {
+                continue;
+            }
+            if ((b & MINE) != 0) {
+                minesPlaced++;
+            } else if ((b & REVEALED) != 0) {
+                revealedSafeCells++;
+            }
+            if ((b & FLAGGED) != 0) {
+                flagsPlaced++;
+            }
+            if ((b & SAFE) != 0) {
+                addSafeCell(index);
+            }
+        }
+        countAdjacentMines();
+    }
 }
@@ -0,0 +1,635 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p><b>BoardAnalytics</b> generates millions of boards across all cores and measures what they are like to play, so
+ * custom difficulty presets can be tuned from data.</p>
+ * <p>Every board is generated with Board.generateMines from a first click in the centre, as the <b>Bot</b> plays, and
+ * read through its adjacent mine counts. For each board it measures:</p>
+ * <ul>
+ * <li>the 3BV, the fewest clicks that clear the board: one per opening and one per number outside every opening</li>
+ * <li>the openings, regions of cells with no adjacent mines, by number and by the cells each one reveals</li>
+ * <li>the islands, groups of touching numbers that no opening reveals, by number and size</li>
+ * <li>the mine density of each region of a 4x4 grid over the board</li>
+ * </ul>
+ * <p>Each fork/join leaf analyses its boards on one reused board and adds them to its own histograms, which are then
+ * added together, so no board is kept once it has been measured. Every board is seeded from the master seed and its
+ * own index, so the results are the same for any number of threads.</p>
+ * <p>Usage: java BoardAnalytics [boards per size] [threads] [master seed]
+ * [beginner|medium|expert|all|WIDTHxHEIGHTxMINES] [csv file]</p>
+ */
+public class BoardAnalytics {
+
+    /**
+     * Number of boards each fork/join leaf analyses on its own board
+     */
+    private static final int BOARDS_PER_TASK = 4096;
+    /**
+     * Number of regions along each side of the board for the mine density
+     */
+    static final int REGIONS = 4;
+
+    private final int boards;
+    private final long masterSeed;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor for the BoardAnalytics
+     *
+     * @param boards     int of the number of boards to analyse per size
+     * @param threads    int of the number of worker threads
+     * @param masterSeed long seed that every board seed is derived from
+     */
+    public BoardAnalytics(int boards, int threads, long masterSeed) {
+        this.boards = boards;
+        this.masterSeed = masterSeed;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Main method to run the analysis from the command line
+     *
+     * @param args boards per size, threads, master seed, sizes and csv file, all optional
+     *
+     * @throws IOException if the csv file can not be written
+     */
+    public static void main(String[] args) throws IOException {
+        int boards = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        String sizes = args.length > 3 ? args[3].toLowerCase() : "all";
+        Path csv = args.length > 4 ? Paths.get(args[4]) : null;
+
+        int[][] presets;
+        String[] names;
+        if (sizes.equals("all")) {
+            presets = new int[][]{{9, 9, 10}, {16, 16, 40}, {30, 16, 99}};
+            names = new String[]{"BEGINNER", "MEDIUM", "EXPERT"};
+        } else if (sizes.matches("\\d+x\\d+x\\d+")) {
+            String[] parts = sizes.split("x");
+            presets = new int[][]{{Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2])}};
+            names = new String[]{sizes};
+            Board.checkSize(presets[0][0], presets[0][1], presets[0][2]);
+        } else {
+            Board board = new Board(GameManager.Difficulty.valueOf(sizes.toUpperCase()));
+            presets = new int[][]{{board.getBoardX(), board.getBoardY(), board.getNumberOfMines()}};
+            names = new String[]{sizes.toUpperCase()};
+        }
+
+        BoardAnalytics analytics = new BoardAnalytics(boards, threads, seed);
+        System.out.println("Analysing " + boards + " boards per size on " + threads + " threads, seed " + seed);
+        StringBuilder rows = new StringBuilder("size,measure,value,boards\n");
+        for (int i = 0; i < presets.length; i++) {
+            long start = System.nanoTime();
+            Stats stats = analytics.run(presets[i][0], presets[i][1], presets[i][2]);
+            long elapsed = System.nanoTime() - start;
+            System.out.println(stats.report(names[i], elapsed));
+            stats.appendCsv(names[i], rows);
+        }
+        analytics.pool.shutdown();
+        if (csv != null) {
+            Files.write(csv, rows.toString().getBytes(StandardCharsets.UTF_8));
+            System.out.println("Histograms written to " + csv);
+        }
+    }
+
+    /**
+     * Analyses every board of one size
+     *
+     * @param boardX        int of the width of the board
+     * @param boardY        int of the height of the board
+     * @param numberOfMines int of the number of mines
+     *
+     * @return Stats of all of the boards
+     */
+    public Stats run(int boardX, int boardY, int numberOfMines) {
+        return pool.invoke(new AnalyticsTask(boardX, boardY, numberOfMines, 0, boards));
+    }
+
+    /**
+     * Returns the seed of a board, mixed from the master seed, the size and the board index
+     *
+     * @param boardX        int of the width of the board
+     * @param boardY        int of the height of the board
+     * @param numberOfMines int of the number of mines
+     * @param index         int index of the board
+     *
+     * @return long seed of the board
+     */
+    private long boardSeed(int boardX, int boardY, int numberOfMines, int index) {
+        long size = ((long) boardX * 31 + boardY) * 31 + numberOfMines;
+        long z = masterSeed + 0x9E3779B97F4A7C15L * ((size << 32) + index + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Fork/join task that splits a range of boards until it is small enough to analyse on one board
+     */
+    private class AnalyticsTask extends RecursiveTask<Stats> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int boardX;
+        private final int boardY;
+        private final int numberOfMines;
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructor for the AnalyticsTask
+         *
+         * @param boardX        int of the width of the board
+         * @param boardY        int of the height of the board
+         * @param numberOfMines int of the number of mines
+         * @param from          int index of the first board
+         * @param to            int index after the last board
+         */
+        AnalyticsTask(int boardX, int boardY, int numberOfMines, int from, int to) {
+            this.boardX = boardX;
+            this.boardY = boardY;
+            this.numberOfMines = numberOfMines;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Analyses the boards, or splits them in half and combines the stats of both halves
+         *
+         * @return Stats of the boards in the range
+         */
+        @Override
+        protected Stats compute() {
+            if (to - from > BOARDS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                AnalyticsTask left = new AnalyticsTask(boardX, boardY, numberOfMines, from, middle);
+                left.fork();
+                Stats right = new AnalyticsTask(boardX, boardY, numberOfMines, middle, to).compute();
+                return left.join().add(right);
+            }
+
+            Board board = new Board(boardX, boardY, numberOfMines);
+            Analyzer analyzer = new Analyzer(boardX, boardY);
+            Stats stats = new Stats(boardX, boardY);
+            for (int i = from; i < to; i++) {
+                board.generateNewBoard();
+                board.setSafeCells(boardX / 2, boardY / 2);
+                board.generateMines(boardSeed(boardX, boardY, numberOfMines, i));
+                analyzer.analyse(board, stats);
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * <p>An <b>Analyzer</b> measures one board at a time into a Stats, reusing its arrays from board to board.</p>
+     * <p>Openings are found with a flood fill over the cells with no adjacent mines, marking the numbers around each
+     * one as revealed. Islands are then found with a second flood fill over the numbers that are left.</p>
+     */
+    static class Analyzer {
+
+        private static final byte MINE = 9;
+
+        private final int boardX;
+        private final int boardY;
+        private final byte[] values;
+        /**
+         * The opening or island each cell was last reached by, so a cell is counted once per region without clearing
+         * the array between regions. 0 for a cell no region has reached on this board
+         */
+        private final int[] region;
+        private final boolean[] revealed;
+        private final int[] queue;
+        private final int[] neighbours = new int[9];
+        private final int[] regionMines = new int[REGIONS * REGIONS];
+
+        /**
+         * Constructor for the Analyzer
+         *
+         * @param boardX int of the width of the boards
+         * @param boardY int of the height of the boards
+         */
+        Analyzer(int boardX, int boardY) {
+            this.boardX = boardX;
+            this.boardY = boardY;
+            int cells = boardX * boardY;
+            values = new byte[cells];
+            region = new int[cells];
+            revealed = new boolean[cells];
+            queue = new int[cells];
+        }
+
+        /**
+         * Measures a board and adds it to the stats
+         *
+         * @param board Board with its mines generated
+         * @param stats Stats to add the board to
+         */
+        void analyse(Board board, Stats stats) {
+            Arrays.fill(region, 0);
+            Arrays.fill(revealed, false);
+            Arrays.fill(regionMines, 0);
+            for (int x = 0; x < boardX; x++) {
+                int regionX = x * REGIONS / boardX * REGIONS;
+                for (int y = 0; y < boardY; y++) {
+                    if (board.isMine(x, y)) {
+                        values[x * boardY + y] = MINE;
+                        regionMines[regionX + y * REGIONS / boardY]++;
+                    } else {
+                        values[x * boardY + y] = (byte) board.getAdjacentMines(x, y);
+                    }
+                }
+            }
+
+            int id = 0;
+            int openings = 0;
+            for (int start = 0; start < values.length; start++) {
+                if (values[start] == 0 && region[start] == 0) {
+                    openings++;
+                    stats.openingSizes.add(fill(start, ++id, true));
+                }
+            }
+            int islands = 0;
+            int isolated = 0;
+            for (int start = 0; start < values.length; start++) {
+                if (values[start] != 0 && values[start] != MINE && !revealed[start] && region[start] == 0) {
+                    int size = fill(start, ++id, false);
+                    islands++;
+                    isolated += size;
+                    stats.islandSizes.add(size);
+                }
+            }
+
+            stats.boards++;
+            stats.threeBV.add(openings + isolated);
+            stats.openings.add(openings);
+            stats.islands.add(islands);
+            for (int r = 0; r < regionMines.length; r++) {
+                int rx = r / REGIONS;
+                int ry = r % REGIONS;
+                int cells = ((rx + 1) * boardX + REGIONS - 1) / REGIONS - (rx * boardX + REGIONS - 1) / REGIONS;
+                cells *= ((ry + 1) * boardY + REGIONS - 1) / REGIONS - (ry * boardY + REGIONS - 1) / REGIONS;
+                if (cells > 0) {
+                    stats.regionMines[r] += regionMines[r];
+                    stats.regionCells[r] += cells;
+                    stats.density.add((int) (100L * regionMines[r] / cells));
+                }
+            }
+        }
+
+        /**
+         * Flood fills one opening or island, marking every cell it reaches with the region's id
+         *
+         * @param start   int index of the first cell
+         * @param id      int id of the region
+         * @param opening boolean true to fill an opening (cells with no adjacent mines, revealing the numbers around
+         *                them), false to fill an island (numbers that no opening reveals)
+         *
+         * @return int of the cells the opening reveals, or the numbers in the island
+         */
+        private int fill(int start, int id, boolean opening) {
+            int head = 0;
+            int tail = 0;
+            int size = 1;
+            queue[tail++] = start;
+            region[start] = id;
+            while (head < tail) {
+                int index = queue[head++];
+                int count = neighbours(index);
+                for (int i = 0; i < count; i++) {
+                    int n = neighbours[i];
+                    if (region[n] == id) {
+                        continue;
+                    }
+                    byte value = values[n];
+                    if (opening) {
+                        if (value == 0) {
+                            region[n] = id;
+                            queue[tail++] = n;
+                            size++;
+                        } else if (value != MINE) {
+                            //A number can border several openings, it is counted in the size of each of them
+                            region[n] = id;
+                            revealed[n] = true;
+                            size++;
+                        }
+                    } else if (value != MINE && !revealed[n]) {
+                        region[n] = id;
+                        queue[tail++] = n;
+                        size++;
+                    }
+                }
+            }
+            return size;
+        }
+
+        /**
+         * Writes the indices of the cells around a cell, not including it, into the neighbours array
+         *
+         * @param index int index of the cell
+         *
+         * @return int of the number of neighbours
+         */
+        private int neighbours(int index) {
+            int x = index / boardY;
+            int y = index % boardY;
+            int count = 0;
+            for (int i = Math.max(0, x - 1); i <= Math.min(boardX - 1, x + 1); i++) {
+                for (int j = Math.max(0, y - 1); j <= Math.min(boardY - 1, y + 1); j++) {
+                    if (i != x || j != y) {
+                        neighbours[count++] = i * boardY + j;
+                    }
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * A <b>Histogram</b> counts how often each whole number value was seen. Values above the largest bucket are
+     * counted in it
+     */
+    public static class Histogram {
+
+        private final long[] counts;
+        private long total;
+        private long sum;
+
+        /**
+         * Constructor for the Histogram
+         *
+         * @param max int of the largest value with its own bucket
+         */
+        public Histogram(int max) {
+            counts = new long[max + 1];
+        }
+
+        /**
+         * Counts one value
+         *
+         * @param value int value seen, at least 0
+         */
+        public void add(int value) {
+            counts[Math.min(value, counts.length - 1)]++;
+            total++;
+            sum += value;
+        }
+
+        /**
+         * Adds another histogram of the same size to this one
+         *
+         * @param other Histogram to add
+         */
+        public void add(Histogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            total += other.total;
+            sum += other.sum;
+        }
+
+        /**
+         * Returns the mean of the values seen
+         *
+         * @return double of the mean, 0 if nothing has been seen
+         */
+        public double getMean() {
+            return total == 0 ? 0 : (double) sum / total;
+        }
+
+        /**
+         * Returns a percentile of the values seen
+         *
+         * @param percentile double from 0 to 100
+         *
+         * @return int of the smallest value at or below which the given percent of the values fall
+         */
+        public int getPercentile(double percentile) {
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i;
+                }
+            }
+            return counts.length - 1;
+        }
+
+        /**
+         * Returns the number of values seen
+         *
+         * @return long of the total
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * Returns how many times a value was seen
+         *
+         * @param value int value
+         *
+         * @return long of the count of the value's bucket
+         */
+        public long getCount(int value) {
+            return counts[Math.min(value, counts.length - 1)];
+        }
+
+        /**
+         * Returns the largest value with its own bucket
+         *
+         * @return int of the last bucket
+         */
+        public int getMax() {
+            return counts.length - 1;
+        }
+    }
+
+    /**
+     * Histograms of a set of analysed boards. Stats from different threads are combined with add
+     */
+    public static class Stats {
+
+        private final Histogram threeBV;
+        private final Histogram openings;
+        private final Histogram openingSizes;
+        private final Histogram islands;
+        private final Histogram islandSizes;
+        private final Histogram density = new Histogram(100);
+        private final long[] regionMines = new long[REGIONS * REGIONS];
+        private final long[] regionCells = new long[REGIONS * REGIONS];
+        private long boards;
+
+        /**
+         * Constructor for the Stats
+         *
+         * @param boardX int of the width of the boards
+         * @param boardY int of the height of the boards
+         */
+        public Stats(int boardX, int boardY) {
+            int cells = boardX * boardY;
+            //Buckets for every value up to a board's worth, capped so huge custom boards do not need huge histograms
+            int max = Math.min(cells, 1 << 16);
+            threeBV = new Histogram(max);
+            openings = new Histogram(max);
+            openingSizes = new Histogram(max);
+            islands = new Histogram(max);
+            islandSizes = new Histogram(max);
+        }
+
+        /**
+         * Adds another set of stats to these
+         *
+         * @param other Stats to add
+         *
+         * @return this Stats object
+         */
+        public Stats add(Stats other) {
+            boards += other.boards;
+            threeBV.add(other.threeBV);
+            openings.add(other.openings);
+            openingSizes.add(other.openingSizes);
+            islands.add(other.islands);
+            islandSizes.add(other.islandSizes);
+            density.add(other.density);
+            for (int r = 0; r < regionMines.length; r++) {
+                regionMines[r] += other.regionMines[r];
+                regionCells[r] += other.regionCells[r];
+            }
+            return this;
+        }
+
+        /**
+         * Returns the number of boards analysed
+         *
+         * @return long of the boards
+         */
+        public long getBoards() {
+            return boards;
+        }
+
+        /**
+         * Accessor for the threeBV field
+         *
+         * @return Histogram of the 3BV of each board
+         */
+        public Histogram getThreeBV() {
+            return threeBV;
+        }
+
+        /**
+         * Accessor for the openings field
+         *
+         * @return Histogram of the openings on each board
+         */
+        public Histogram getOpenings() {
+            return openings;
+        }
+
+        /**
+         * Accessor for the openingSizes field
+         *
+         * @return Histogram of the cells each opening reveals
+         */
+        public Histogram getOpeningSizes() {
+            return openingSizes;
+        }
+
+        /**
+         * Accessor for the islands field
+         *
+         * @return Histogram of the islands on each board
+         */
+        public Histogram getIslands() {
+            return islands;
+        }
+
+        /**
+         * Accessor for the islandSizes field
+         *
+         * @return Histogram of the numbers in each island
+         */
+        public Histogram getIslandSizes() {
+            return islandSizes;
+        }
+
+        /**
+         * Accessor for the density field
+         *
+         * @return Histogram of the mine density of each region, in percent
+         */
+        public Histogram getDensity() {
+            return density;
+        }
+
+        /**
+         * Formats the stats for printing
+         *
+         * @param name    String name of the board size
+         * @param elapsed long of the nanoseconds the analysis took
+         *
+         * @return String of the report
+         */
+        public String report(String name, long elapsed) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%s: %d boards in %.2f s, %.0f boards/sec, %.2fM boards/min%n", name, boards,
+                    elapsed / 1e9, boards / (elapsed / 1e9), boards / (elapsed / 6e10) / 1e6));
+            appendLine(sb, "3BV", threeBV);
+            appendLine(sb, "openings per board", openings);
+            appendLine(sb, "cells per opening", openingSizes);
+            appendLine(sb, "islands per board", islands);
+            appendLine(sb, "numbers per island", islandSizes);
+            appendLine(sb, "region density %", density);
+            sb.append("  mean mine density % by region (x across, y down):");
+            for (int ry = 0; ry < REGIONS; ry++) {
+                sb.append(String.format("%n   "));
+                for (int rx = 0; rx < REGIONS; rx++) {
+                    int r = rx * REGIONS + ry;
+                    double percent = regionCells[r] == 0 ? 0 : 100.0 * regionMines[r] / regionCells[r];
+                    sb.append(String.format(" %6.2f", percent));
+                }
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Appends the summary of one histogram to a report
+         *
+         * @param sb        StringBuilder of the report
+         * @param name      String name of the measure
+         * @param histogram Histogram of the measure
+         */
+        private static void appendLine(StringBuilder sb, String name, Histogram histogram) {
+            sb.append(String.format("  %-20s mean %8.2f  p1 %5d  p50 %5d  p99 %5d%n", name, histogram.getMean(),
+                    histogram.getPercentile(1), histogram.getPercentile(50), histogram.getPercentile(99)));
+        }
+
+        /**
+         * Appends every non-empty histogram bucket as a csv row of size, measure, value and count
+         *
+         * @param name String name of the board size
+         * @param sb   StringBuilder of the csv
+         */
+        public void appendCsv(String name, StringBuilder sb) {
+            String[] measures = {"3bv", "openings", "opening_cells", "islands", "island_numbers", "region_density"};
+            Histogram[] histograms = {threeBV, openings, openingSizes, islands, islandSizes, density};
+            for (int m = 0; m < measures.length; m++) {
+                for (int value = 0; value <= histograms[m].getMax(); value++) {
+                    long count = histograms[m].getCount(value);
+                    if (count > 0) {
+                        sb.append(name).append(',').append(measures[m]).append(',').append(value).append(',')
+                                .append(count).append('\n');
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,298 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * <p>The <b>BoardPool</b> generates the mines of upcoming games on a background thread, so neither a new game nor its
+ * first click has to wait for them.</p>
+ * <p>Where the mines go depends on the first click, as the cells around it are kept safe. What does not depend on it
+ * is which positions among the remaining cells are chosen (see Board.sampleMines), as long as the number of safe cells
+ * is the same. So each <b>Entry</b> holds a seed and the positions it chooses for every number of safe cells a first
+ * click on the board can make (9 inside, 6 along an edge, 4 in a corner). On the first click they are placed around
+ * the safe cells with Board.generateMines(long[]), giving exactly the board the seed would have given anyway, so
+ * journals, saves and replays of pooled games are unchanged.</p>
+ * <p>The pool fills up to its capacity for one board size at a time. Changing the size, i.e. the difficulty, evicts
+ * every board of the old size.</p>
+ */
+public class BoardPool {
+
+    private final Thread thread;
+    private final SplittableRandom random = new SplittableRandom();
+    /**
+     * The boards waiting to be played, their size, the number to keep, a count that changes whenever the size does,
+     * and whether the pool is closed. Guarded by this
+     */
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private int boardX;
+    private int boardY;
+    private int numberOfMines;
+    private int capacity;
+    private long generation;
+    private boolean closed;
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructor for the BoardPool, starts the thread that fills it. Nothing is generated until a size is set with
+     * fill
+     *
+     * @param capacity int of the number of boards to keep ready, 0 to keep none
+     */
+    public BoardPool(int capacity) {
+        setCapacity(capacity);
+        thread = new Thread(this::run, "board-pool");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Sets the number of boards to keep ready, dropping any over the new capacity
+     *
+     * @param capacity int of the number of boards, 0 to keep none
+     *
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public synchronized void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must be at least 0");
+        }
+        this.capacity = capacity;
+        while (entries.size() > capacity) {
+            entries.removeLast();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Accessor for the capacity field
+     *
+     * @return int of the number of boards kept ready
+     */
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Starts filling the pool with boards of the given board's size. If the size has changed, every board of the old
+     * size is evicted and any being generated is discarded
+     *
+     * @param board Board whose size and number of mines the pool should hold
+     */
+    public synchronized void fill(Board board) {
+        if (board.getBoardX() == boardX && board.getBoardY() == boardY
+                && board.getNumberOfMines() == numberOfMines) {
+            return;
+        }
+        boardX = board.getBoardX();
+        boardY = board.getBoardY();
+        numberOfMines = board.getNumberOfMines();
+        entries.clear();
+        generation++;
+        notifyAll();
+    }
+
+    /**
+     * Takes a ready board of the given board's size, without waiting
+     *
+     * @param board Board the game will be played on
+     *
+     * @return Entry of the next pooled board, or null if none of that size is ready
+     */
+    public synchronized Entry take(Board board) {
+        if (entries.isEmpty() || board.getBoardX() != boardX || board.getBoardY() != boardY
+                || board.getNumberOfMines() != numberOfMines) {
+            misses++;
+            return null;
+        }
+        hits++;
+        notifyAll();
+        return entries.removeFirst();
+    }
+
+    /**
+     * Returns the number of boards ready
+     *
+     * @return int of the boards in the pool
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns how many calls of take got a board
+     *
+     * @return long of the hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns how many calls of take found no board of the right size
+     *
+     * @return long of the misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Stops the thread filling the pool and drops every board in it
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for the filling thread to stop
+     */
+    public void close() throws InterruptedException {
+        synchronized (this) {
+            closed = true;
+            entries.clear();
+            notifyAll();
+        }
+        thread.join();
+    }
+
+    /**
+     * Body of the filling thread, generates boards whenever the pool has room until it is closed
+     */
+    private void run() {
+        while (true) {
+            int x;
+            int y;
+            int mines;
+            long seed;
+            long current;
+            synchronized (this) {
+                while (!closed && (numberOfMines == 0 || entries.size() >= capacity)) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                x = boardX;
+                y = boardY;
+                mines = numberOfMines;
+                seed = random.nextLong();
+                current = generation;
+            }
+
+            Entry entry = new Entry(x, y, mines, seed);
+
+            synchronized (this) {
+                if (!closed && current == generation && entries.size() < capacity) {
+                    entries.addLast(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns every number of safe cells a first click can make on a board, i.e. the size of the 3x3 block around the
+     * click once it is cut off by the edges of the board
+     *
+     * @param boardX int of the width of the board
+     * @param boardY int of the height of the board
+     *
+     * @return int array of the distinct numbers of safe cells
+     */
+    static int[] safeCellCounts(int boardX, int boardY) {
+        int[] spansX = spans(boardX);
+        int[] spansY = spans(boardY);
+        int[] counts = new int[spansX.length * spansY.length];
+        int n = 0;
+        for (int sx : spansX) {
+            for (int sy : spansY) {
+                int count = sx * sy;
+                boolean seen = false;
+                for (int i = 0; i < n; i++) {
+                    seen |= counts[i] == count;
+                }
+                if (!seen) {
+                    counts[n++] = count;
+                }
+            }
+        }
+        return Arrays.copyOf(counts, n);
+    }
+
+    /**
+     * Returns every number of cells the 3 cells around a position can cover along a side of the given length
+     *
+     * @param length int of the length of the side
+     *
+     * @return int array of the distinct spans, at most 2 (along an edge, and inside)
+     */
+    private static int[] spans(int length) {
+        if (length < 3) {
+            return new int[]{length};
+        }
+        return new int[]{2, 3};
+    }
+
+    /**
+     * A board of the pool: a seed and the positions of its mines for every number of safe cells a first click can make
+     */
+    public static final class Entry {
+
+        private final int boardX;
+        private final int boardY;
+        private final int numberOfMines;
+        private final long seed;
+        private final int[] safeCells;
+        private final long[][] mines;
+
+        /**
+         * Constructor for the Entry, chooses the positions of the mines for every number of safe cells
+         *
+         * @param boardX        int of the width of the board
+         * @param boardY        int of the height of the board
+         * @param numberOfMines int of the number of mines
+         * @param seed          long seed the mines are chosen with
+         */
+        Entry(int boardX, int boardY, int numberOfMines, long seed) {
+            this.boardX = boardX;
+            this.boardY = boardY;
+            this.numberOfMines = numberOfMines;
+            this.seed = seed;
+            safeCells = safeCellCounts(boardX, boardY);
+            mines = new long[safeCells.length][];
+            for (int i = 0; i < safeCells.length; i++) {
+                //The same random generateMines(seed) would use, so the board is the one the seed gives
+                mines[i] = Board.sampleMines(new SplittableRandom(seed), boardX * boardY - safeCells[i],
+                        numberOfMines);
+            }
+        }
+
+        /**
+         * Accessor for the seed field
+         *
+         * @return long seed the mines were chosen with, which generateMines(seed) would give the same board from
+         */
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * Returns the positions of the mines for a board whose safe cells have been set by the first click
+         *
+         * @param board Board about to have its mines generated
+         *
+         * @return long array to pass to Board.generateMines(long[]), or null if the entry is not for this board
+         */
+        public long[] getMines(Board board) {
+            if (board.getBoardX() != boardX || board.getBoardY() != boardY
+                    || board.getNumberOfMines() != numberOfMines) {
+                return null;
+            }
+            for (int i = 0; i < safeCells.length; i++) {
+                if (safeCells[i] == board.getSafeCellCount()) {
+                    return mines[i];
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+import java.util.SplittableRandom;
+
+/**
+ * <p>The <b>Bot</b> is a simple baseline player for the <b>GameEngine</b>, used by the <b>Simulation</b>.</p>
+ * <p>It opens the centre cell, then repeatedly flags cells that must be mines and chords numbers whose mines are all
+ * flagged. When neither rule applies it reveals a random unknown cell.</p>
+ */
+public class Bot {
+
+    private final int[] neighbours = new int[9];
+
+    /**
+     * Plays one game on the engine until it is won or lost. The engine should have a new game ready
+     *
+     * @param engine GameEngine to play on
+     * @param random SplittableRandom for the guesses
+     *
+     * @return Result of the game
+     */
+    public Result play(GameEngine engine, SplittableRandom random) {
+        Board board = engine.getBoard();
+        MoveResult first = engine.reveal(board.getBoardX() / 2, board.getBoardY() / 2);
+        int firstOpened = first.getChanges().size();
+        int moves = 1;
+
+        while (engine.getState() == GameEngine.State.PLAYING) {
+            int progress = applyRules(engine);
+            if (progress == 0) {
+                guess(engine, random);
+                progress = 1;
+            }
+            moves += progress;
+        }
+        return new Result(engine.getState() == GameEngine.State.WON, moves, firstOpened);
+    }
+
+    /**
+     * Makes one pass over the board, flagging and chording wherever a revealed number allows it
+     *
+     * @param engine GameEngine to play on
+     *
+     * @return int of the number of moves made
+     */
+    private int applyRules(GameEngine engine) {
+        Board board = engine.getBoard();
+        int moves = 0;
+
+        for (int x = 0; x < board.getBoardX(); x++) {
+            for (int y = 0; y < board.getBoardY(); y++) {
+                if (!board.isRevealed(x, y) || board.getAdjacentMines(x, y) == 0) {
+                    continue;
+                }
+                int count = board.getAdjacentIndices(x, y, neighbours);
+                int flagged = 0;
+                int unknown = 0;
+                for (int i = 0; i < count; i++) {
+                    int nx = board.getX(neighbours[i]);
+                    int ny = board.getY(neighbours[i]);
+                    if (board.isFlagged(nx, ny)) {
+                        flagged++;
+                    } else if (!board.isRevealed(nx, ny)) {
+                        unknown++;
+                    }
+                }
+                if (unknown == 0) {
+                    continue;
+                }
+
+                int number = board.getAdjacentMines(x, y);
+                if (flagged == number) {
+                    engine.chord(x, y);
+                    moves++;
+                } else if (flagged + unknown == number) {
+                    for (int i = 0; i < count; i++) {
+                        int nx = board.getX(neighbours[i]);
+                        int ny = board.getY(neighbours[i]);
+                        if (!board.isFlagged(nx, ny) && !board.isRevealed(nx, ny)) {
+                            engine.toggleFlag(nx, ny);
+                            moves++;
+                        }
+                    }
+                }
+                if (engine.getState() != GameEngine.State.PLAYING) {
+                    return moves;
+                }
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Reveals a random cell that is neither revealed nor flagged
+     *
+     * @param engine GameEngine to play on
+     * @param random SplittableRandom to pick the cell with
+     */
+    private void guess(GameEngine engine, SplittableRandom random) {
+        Board board = engine.getBoard();
+        int unknown = board.getBoardX() * board.getBoardY() - board.getRevealedSafeCells() - board.getFlagsPlaced();
+        int target = random.nextInt(unknown);
+
+        for (int x = 0; x < board.getBoardX(); x++) {
+            for (int y = 0; y < board.getBoardY(); y++) {
+                if (!board.isRevealed(x, y) && !board.isFlagged(x, y) && target-- == 0) {
+                    engine.reveal(x, y);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Result of a game played by the bot
+     */
+    public static class Result {
+
+        private final boolean won;
+        private final int moves;
+        private final int firstOpened;
+
+        /**
+         * Constructor for the Result
+         *
+         * @param won         boolean whether the game was won
+         * @param moves       int of the number of moves made
+         * @param firstOpened int of the number of cells opened by the first click
+         */
+        public Result(boolean won, int moves, int firstOpened) {
+            this.won = won;
+            this.moves = moves;
+            this.firstOpened = firstOpened;
+        }
+
+        /**
+         * Accessor for the won field
+         *
+         * @return boolean whether the game was won
+         */
+        public boolean isWon() {
+            return won;
+        }
+
+        /**
+         * Accessor for the moves field
+         *
+         * @return int of the number of moves made
+         */
+        public int getMoves() {
+            return moves;
+        }
+
+        /**
+         * Accessor for the firstOpened field
+         *
+         * @return int of the number of cells opened by the first click
+         */
+        public int getFirstOpened() {
+            return firstOpened;
+        }
+    }
+}
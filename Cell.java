@@ -1,30 +1,48 @@
-import java.io.Serializable;
+import java.io.*;
 
 /**
  * <h3>Created by James on 12/03/2016.</h3>
  * <p>
  * <p><b>Cell</b> object that allows the <b>Board</b> and <b>GameManger</b> to query each cell individually</p>
+ * <p>A Cell is a lightweight view of one position of a <b>Board</b>, the state itself is stored by the board.</p>
  */
 public class Cell implements Serializable {
 
+    /**
+     * Matches the serialVersionUID of the original Cell so that older save files can still be read
+     */
+    private static final long serialVersionUID = 1585290097215851427L;
+
+    /**
+     * Serialized form of the original Cell, only read when converting older save files
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("x", int.class),
+            new ObjectStreamField("y", int.class),
+            new ObjectStreamField("isMine", boolean.class),
+            new ObjectStreamField("isFlagged", boolean.class),
+            new ObjectStreamField("isRevealed", boolean.class),
+            new ObjectStreamField("isSafe", boolean.class),
+            new ObjectStreamField("zeroReveal", boolean.class)
+    };
+
+    private final transient Board board;
     private final int x;
     private final int y;
-    private boolean isMine;
-    private boolean isFlagged;
-    private boolean isRevealed;
-    private boolean isSafe;
-    private boolean zeroReveal;
+    /**
+     * Board state flags read from an older save file
+     */
+    private transient byte legacyState;
 
     /**
-     * Constructor for the Cell, sets the cell to it's default status of not a mine, not flagged and not revealed.
+     * Constructor for the Cell, creates a view of the given position of the board
      *
-     * @param x x position of the cell
-     * @param y y position of the cell
+     * @param board Board that stores the state of the cell
+     * @param x     x position of the cell
+     * @param y     y position of the cell
      */
-    public Cell(int x, int y) {
-        this.isMine = false;
-        this.isFlagged = false;
-        this.isRevealed = false;
+    public Cell(Board board, int x, int y) {
+        this.board = board;
         this.x = x;
         this.y = y;
     }
@@ -53,7 +71,7 @@ public class Cell implements Serializable {
      * @return boolean whether the cell is a mine
      */
     public boolean isMine() {
-        return isMine;
+        return board.isMine(x, y);
     }
 
     /**
@@ -62,7 +80,7 @@ public class Cell implements Serializable {
      * @param mine boolean whether the cell is a mine
      */
     public void setMine(boolean mine) {
-        isMine = mine;
+        board.setMine(x, y, mine);
     }
 
     /**
@@ -72,7 +90,7 @@ public class Cell implements Serializable {
      */
 
     public boolean isFlagged() {
-        return isFlagged;
+        return board.isFlagged(x, y);
     }
 
     /**
@@ -82,7 +100,7 @@ public class Cell implements Serializable {
      */
 
     public void setFlagged(boolean flagged) {
-        isFlagged = flagged;
+        board.setFlagged(x, y, flagged);
     }
 
     /**
@@ -91,7 +109,7 @@ public class Cell implements Serializable {
      * @return boolean value whether the cell is revealed.
      */
     public boolean isRevealed() {
-        return isRevealed;
+        return board.isRevealed(x, y);
     }
 
     /**
@@ -100,7 +118,7 @@ public class Cell implements Serializable {
      * @param revealed boolean value whether the cell is revealed
      */
     public void setRevealed(boolean revealed) {
-        isRevealed = revealed;
+        board.setRevealed(x, y, revealed);
     }
 
     /**
@@ -109,7 +127,7 @@ public class Cell implements Serializable {
      * @return boolean value whether the cell is safe (used for mine generation, meaning you can't lose on the first click)
      */
     public boolean isSafe() {
-        return isSafe;
+        return board.isSafe(x, y);
     }
 
     /**
@@ -118,25 +136,61 @@ public class Cell implements Serializable {
      * @param safe boolean value whether the cell is safe
      */
     public void setSafe(boolean safe) {
-        isSafe = safe;
+        board.setSafe(x, y, safe);
     }
 
     /**
-     * Accessor method for the zeroReveal field. This is used as a flag for the recursive method of revealing cells that have no adjacent mines
+     * Accessor for the state flags read from an older save file (see Board)
      *
-     * @return boolean value of whether zeroReveal has tested this cell
+     * @return byte of the Board state flags
      */
-    public boolean isZeroReveal() {
-        return zeroReveal;
+    byte getLegacyState() {
+        return legacyState;
     }
 
     /**
-     * Accessor method for the zeroReveal field. This is used as a flag for the recursive method of revealing cells that have no adjacent mines
+     * Writes the cell in the form of the original Cell
+     *
+     * @param out stream to write to
      *
-     * @param zeroReveal boolean value of whether zeroReveal has tested this cell
+     * @throws IOException if the stream can not be written to
      */
-    public void setZeroReveal(boolean zeroReveal) {
-        this.zeroReveal = zeroReveal;
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("x", x);
+        fields.put("y", y);
+        fields.put("isMine", isMine());
+        fields.put("isFlagged", isFlagged());
+        fields.put("isRevealed", isRevealed());
+        fields.put("isSafe", isSafe());
+        fields.put("zeroReveal", false);
+        out.writeFields();
     }
-}
 
+    /**
+     * Reads a cell written by the original Cell, keeping its state for the Board to convert.
+     * The zeroReveal marker is dropped as it is no longer part of the cell state
+     *
+     * @param in stream to read from
+     *
+     * @throws IOException            if the stream can not be read from
+     * @throws ClassNotFoundException if a class in the stream can not be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        int state = 0;
+        if (fields.get("isMine", false)) {
+            state |= Board.MINE;
+        }
+        if (fields.get("isFlagged", false)) {
+            state |= Board.FLAGGED;
+        }
+        if (fields.get("isRevealed", false)) {
+            state |= Board.REVEALED;
+        }
+        if (fields.get("isSafe", false)) {
+            state |= Board.SAFE;
+        }
+        legacyState = (byte) state;
+    }
+}
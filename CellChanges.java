@@ -0,0 +1,130 @@
+import java.util.Arrays;
+
+/**
+ * <p><b>CellChanges</b> records the cells changed by a move, so that only those cells need to be checked or redrawn.</p>
+ * <p>The object is reusable, calling clear() keeps the allocated storage for the next move.</p>
+ */
+public class CellChanges {
+
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private int size;
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
+
+    /**
+     * Constructor for CellChanges, starts with no changed cells
+     */
+    public CellChanges() {
+        clear();
+    }
+
+    /**
+     * Removes all recorded cells
+     */
+    public void clear() {
+        size = 0;
+        minX = Integer.MAX_VALUE;
+        minY = Integer.MAX_VALUE;
+        maxX = Integer.MIN_VALUE;
+        maxY = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Records a changed cell
+     *
+     * @param x x position of the cell
+     * @param y y position of the cell
+     */
+    public void add(int x, int y) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+    }
+
+    /**
+     * Returns the number of recorded cells
+     *
+     * @return int of the number of changed cells
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether any cell has been recorded
+     *
+     * @return boolean whether there are no changed cells
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Accessor for the x position of a recorded cell
+     *
+     * @param i int of the index of the change, between 0 and size() - 1
+     *
+     * @return int of the x position
+     */
+    public int getX(int i) {
+        return xs[i];
+    }
+
+    /**
+     * Accessor for the y position of a recorded cell
+     *
+     * @param i int of the index of the change, between 0 and size() - 1
+     *
+     * @return int of the y position
+     */
+    public int getY(int i) {
+        return ys[i];
+    }
+
+    /**
+     * Accessor for the smallest x of the bounding box of the changed cells
+     *
+     * @return int of the smallest x, only valid when not empty
+     */
+    public int getMinX() {
+        return minX;
+    }
+
+    /**
+     * Accessor for the smallest y of the bounding box of the changed cells
+     *
+     * @return int of the smallest y, only valid when not empty
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * Accessor for the largest x of the bounding box of the changed cells
+     *
+     * @return int of the largest x, only valid when not empty
+     */
+    public int getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Accessor for the largest y of the bounding box of the changed cells
+     *
+     * @return int of the largest y, only valid when not empty
+     */
+    public int getMaxY() {
+        return maxY;
+    }
+}
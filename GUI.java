@@ -1,10 +1,15 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.InputEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.event.MouseWheelEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
 import java.text.NumberFormat;
+import java.text.ParseException;
 
 /**
  * <h3>Created by James Merrington on 12/03/2016.</h3>
@@ -26,6 +31,7 @@ public class GUI extends JFrame {
      * Multiple view elements, these are inner classes
      */
     private BoardView boardView;
+    private JScrollPane boardScrollPane;
     private StatusView statusView;
     private InfoView infoView;
 
@@ -52,8 +58,7 @@ public class GUI extends JFrame {
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
-                gm.save();
-                System.exit(0);
+                gm.exitGame();
             }
         });
         //Container
@@ -97,6 +102,7 @@ public class GUI extends JFrame {
         JMenuItem winItem = new JMenuItem("Win");
         JMenuItem loseItem = new JMenuItem("Lose");
         JMenuItem overlayItem = new JMenuItem("Mine Overlay");
+        JMenuItem metricsItem = new JMenuItem("Metrics");
         winItem.addActionListener(e -> gm.gameWin());
         loseItem.addActionListener(e -> gm.gameLose());
         overlayItem.addActionListener(e -> {
@@ -110,16 +116,34 @@ public class GUI extends JFrame {
         debugMenu.add(winItem);
         debugMenu.add(loseItem);
         debugMenu.add(overlayItem);
+        debugMenu.add(new JSeparator());
+        debugMenu.add(metricsItem);
+        metricsItem.addActionListener(e -> new MetricsDialog());
         menuBar.add(debugMenu);
+        //Replay menu
+        JMenu replayMenu = new JMenu("Replay");
+        JMenuItem watchItem = new JMenuItem("Watch Last Game");
+        JMenuItem stopItem = new JMenuItem("Stop Replay");
+        watchItem.addActionListener(e -> {
+            Integer speed = chooseReplaySpeed();
+            if (speed != null) {
+                gm.watchReplay(speed);
+            }
+        });
+        stopItem.addActionListener(e -> gm.stopReplay());
+        replayMenu.add(watchItem);
+        replayMenu.add(stopItem);
+        menuBar.add(replayMenu);
         //Info View
         container.add(infoView = new InfoView(), BorderLayout.EAST);
         //Status View
         container.add(statusView = new StatusView(), BorderLayout.SOUTH);
         //Sizing
         setSize(50 * board.getBoardX(), 50 * board.getBoardY());
-        //Board View
+        //Board View, inside a scroll pane so only the visible part of large boards is painted
         boardView = new BoardView();
-        container.add(boardView, BorderLayout.CENTER);
+        boardScrollPane = new JScrollPane(boardView);
+        container.add(boardScrollPane, BorderLayout.CENTER);
         //packing
         pack();
     }
@@ -130,7 +154,30 @@ public class GUI extends JFrame {
     public void updateGUI() {
         statusView.update();
         infoView.update();
-        repaint();
+        boardView.repaint();
+    }
+
+    /**
+     * Updates the values of labels and redraws only the given cells of the board view.
+     * Swing merges the repaint requests of one event into a single paint
+     *
+     * @param changes CellChanges of the cells to redraw
+     */
+    public void updateGUI(CellChanges changes) {
+        statusView.update();
+        infoView.update();
+        boardView.repaintCells(changes);
+    }
+
+    /**
+     * Redraws the board after it has been cleared or resized, packing the window only if the board size changed
+     */
+    public void resetBoard() {
+        updateGUI();
+        if (!boardView.getSize().equals(boardView.getPreferredSize())) {
+            boardView.revalidate();
+            pack();
+        }
     }
 
     /**
@@ -166,6 +213,35 @@ public class GUI extends JFrame {
         JOptionPane.showMessageDialog(this, generateLossText(), "Game Over!", JOptionPane.PLAIN_MESSAGE);
     }
 
+    /**
+     * Shows the progress of the search for a no-guess board in the status bar
+     *
+     * @param text String describing the search, or null once it has finished
+     */
+    public void showSearchProgress(String text) {
+        statusView.showSearch(text);
+    }
+
+    /**
+     * Displays a popup when a replay has finished playing
+     *
+     * @param text String describing how the replay ended
+     */
+    public void showReplayEnd(String text) {
+        JOptionPane.showMessageDialog(this, text, "Replay", JOptionPane.PLAIN_MESSAGE);
+    }
+
+    /**
+     * Displays a popup to choose how fast to play a replay
+     *
+     * @return Integer of how many times faster than recorded to play, null if cancelled
+     */
+    private Integer chooseReplaySpeed() {
+        Integer[] speeds = {1, 2, 5, 10, 25, 50, 100};
+        return (Integer) JOptionPane.showInputDialog(this, "Replay speed (times faster than played):", "Replay",
+                JOptionPane.QUESTION_MESSAGE, null, speeds, speeds[0]);
+    }
+
     /**
      * Displays a confirmation popup and returns the choice
      *
@@ -219,46 +295,174 @@ public class GUI extends JFrame {
      * The function of this class is to generate a user interface for displaying the board object.
      * It also has functionality for determining which cell of the board has been click by the mouse.
      */
-    private class BoardView extends JPanel implements MouseListener {
+    private class BoardView extends JPanel implements MouseListener, Scrollable {
+
+        /**
+         * Above this many changed cells, the bounding box is repainted instead of each cell
+         */
+        private static final int MAX_CELL_REPAINTS = 64;
+
+        /**
+         * Limits of the scale when zooming with the mouse wheel
+         */
+        private static final int MIN_SCALE = 4;
+        private static final int MAX_SCALE = 100;
+        /**
+         * Largest size the board view asks its viewport for, larger boards are scrolled
+         */
+        private static final int MAX_VIEWPORT_WIDTH = 1200;
+        private static final int MAX_VIEWPORT_HEIGHT = 800;
 
         /**
          * int of the current scale, used for painting the cells
          */
         private int scale = 25;
+        /**
+         * Pre-rendered cell images for the current scale. Indices 0 to 8 are revealed cells by number of adjacent mines,
+         * followed by the unrevealed, flagged and mine tiles. Built on the first paint after the scale changes
+         */
+        private static final int TILE_UNREVEALED = 9;
+        private static final int TILE_FLAGGED = 10;
+        private static final int TILE_MINE = 11;
+        private Image[] tiles;
 
         /**
-         * Constructor of the BoardView, only adds a MouseListener
+         * Constructor of the BoardView, adds a MouseListener and a wheel listener for zooming
          */
         public BoardView() {
             this.addMouseListener(this);
+            this.addMouseWheelListener(this::mouseWheelMoved);
         }
 
         /**
-         * Overridden paint method that paints the board object.
+         * Zooms in or out around the mouse pointer when control is held, otherwise passes the event on to the scroll pane
+         *
+         * @param e MouseWheelEvent
+         */
+        private void mouseWheelMoved(MouseWheelEvent e) {
+            if ((e.getModifiersEx() & InputEvent.CTRL_DOWN_MASK) == 0) {
+                boardScrollPane.dispatchEvent(SwingUtilities.convertMouseEvent(this, e, boardScrollPane));
+                return;
+            }
+            int newScale = e.getWheelRotation() < 0 ? Math.max(scale + 1, scale * 5 / 4) : Math.min(scale - 1, scale * 4 / 5);
+            newScale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, newScale));
+            if (newScale == scale) {
+                return;
+            }
+            //Keep the point under the mouse in the same place on screen
+            JViewport viewport = boardScrollPane.getViewport();
+            Point view = viewport.getViewPosition();
+            int pointerX = e.getX() * newScale / scale;
+            int pointerY = e.getY() * newScale / scale;
+            int screenX = e.getX() - view.x;
+            int screenY = e.getY() - view.y;
+            setScale(newScale);
+            boardScrollPane.validate();
+            Dimension extent = viewport.getExtentSize();
+            Dimension size = getPreferredSize();
+            viewport.setViewPosition(new Point(
+                    Math.max(0, Math.min(pointerX - screenX, size.width - extent.width)),
+                    Math.max(0, Math.min(pointerY - screenY, size.height - extent.height))));
+        }
+
+        /**
+         * Overridden paintComponent method that paints the board object.
+         * Only the cells inside the clip bounds are painted, so repainting a few cells costs the same on any board size
          *
          * @param g JPanel Graphics object
          */
         @Override
-        public void paint(Graphics g) {
-            super.paint(g);
-            Graphics2D g2d = (Graphics2D) g;
-            g.setFont(new Font("Arial", Font.PLAIN, scale / 2));
-            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
-                    RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-            for (int row = 0; row < board.getBoardX(); row++) {
-                for (int column = 0; column < board.getBoardY(); column++) {
-                    Cell currentCell = board.getCell(row, column);
-                    if (currentCell.isMine() && gm.isDebug()) {
-                        drawMine(g, row, column);
-                    } else if (currentCell.isMine() && currentCell.isRevealed()) {
-                        drawMine(g, row, column);
-                    } else if (currentCell.isRevealed()) {
-                        drawRevealed(g, row, column);
-                    } else if (currentCell.isFlagged()) {
-                        drawFlagged(g, row, column);
+        protected void paintComponent(Graphics g) {
+            long start = System.nanoTime();
+            GameEvents.Paint event = null;
+            if (GameEvents.PAINT.isEnabled()) {
+                event = new GameEvents.Paint();
+                event.begin();
+            }
+            super.paintComponent(g);
+            if (tiles == null) {
+                tiles = buildTiles();
+            }
+            Rectangle clip = g.getClipBounds();
+            int firstRow = Math.max(0, (clip.x - 1) / scale);
+            int lastRow = Math.min(board.getBoardX() - 1, (clip.x + clip.width) / scale);
+            int firstColumn = Math.max(0, (clip.y - 1) / scale);
+            int lastColumn = Math.min(board.getBoardY() - 1, (clip.y + clip.height) / scale);
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    Image tile;
+                    if (board.isMine(row, column) && gm.isDebug()) {
+                        tile = tiles[TILE_MINE];
+                    } else if (board.isMine(row, column) && board.isRevealed(row, column)) {
+                        tile = tiles[TILE_MINE];
+                    } else if (board.isRevealed(row, column)) {
+                        tile = tiles[board.getAdjacentMines(row, column)];
+                    } else if (board.isFlagged(row, column)) {
+                        tile = tiles[TILE_FLAGGED];
                     } else {
-                        drawUnrevealed(g, row, column);
+                        tile = tiles[TILE_UNREVEALED];
                     }
+                    g.drawImage(tile, row * scale, column * scale, null);
+                }
+            }
+
+            int cells = Math.max(0, lastRow - firstRow + 1) * Math.max(0, lastColumn - firstColumn + 1);
+            if (event != null) {
+                event.cells = cells;
+                event.commit();
+            }
+            Metrics.PAINT.recordSince(start);
+            Metrics.PAINT_CELLS.record(cells);
+        }
+
+        /**
+         * Renders one image for every visual state of a cell at the current scale, using the paint method templates.
+         * Each tile includes the cell border, so it is one pixel larger than the scale
+         *
+         * @return Image array of the tiles
+         */
+        private Image[] buildTiles() {
+            Image[] images = new Image[TILE_MINE + 1];
+            Font font = new Font("Arial", Font.PLAIN, scale / 2);
+            for (int i = 0; i < images.length; i++) {
+                Image image = getGraphicsConfiguration().createCompatibleImage(scale + 1, scale + 1);
+                Graphics2D g = (Graphics2D) image.getGraphics();
+                g.setColor(getBackground());
+                g.fillRect(0, 0, scale + 1, scale + 1);
+                g.setFont(font);
+                g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                        RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                if (i == TILE_UNREVEALED) {
+                    drawUnrevealed(g, 0, 0);
+                } else if (i == TILE_FLAGGED) {
+                    drawFlagged(g, 0, 0);
+                } else if (i == TILE_MINE) {
+                    drawMine(g, 0, 0);
+                } else {
+                    drawRevealed(g, 0, 0, i);
+                }
+                g.dispose();
+                images[i] = image;
+            }
+            return images;
+        }
+
+        /**
+         * Requests a repaint of the changed cells, or of their bounding box when there are many of them
+         *
+         * @param changes CellChanges of the cells to repaint
+         */
+        public void repaintCells(CellChanges changes) {
+            if (changes.isEmpty()) {
+                return;
+            }
+            if (changes.size() > MAX_CELL_REPAINTS) {
+                repaint(changes.getMinX() * scale, changes.getMinY() * scale,
+                        (changes.getMaxX() - changes.getMinX() + 1) * scale + 1,
+                        (changes.getMaxY() - changes.getMinY() + 1) * scale + 1);
+            } else {
+                for (int i = 0; i < changes.size(); i++) {
+                    repaint(changes.getX(i) * scale, changes.getY(i) * scale, scale + 1, scale + 1);
                 }
             }
         }
@@ -270,7 +474,67 @@ public class GUI extends JFrame {
          */
         @Override
         public Dimension getPreferredSize() {
-            return new Dimension(board.getBoardX() * scale, board.getBoardY() * scale);
+            return new Dimension(board.getBoardX() * scale + 1, board.getBoardY() * scale + 1);
+        }
+
+        /**
+         * Scrollable method, the viewport shows the whole board up to a maximum size
+         *
+         * @return Dimension of the preferred viewport size
+         */
+        @Override
+        public Dimension getPreferredScrollableViewportSize() {
+            Dimension size = getPreferredSize();
+            return new Dimension(Math.min(size.width, MAX_VIEWPORT_WIDTH), Math.min(size.height, MAX_VIEWPORT_HEIGHT));
+        }
+
+        /**
+         * Scrollable method, scrolling by one unit moves by one cell
+         *
+         * @param visibleRect visible area of the view
+         * @param orientation SwingConstants.VERTICAL or SwingConstants.HORIZONTAL
+         * @param direction   less than zero to scroll up or left
+         *
+         * @return int of the scale
+         */
+        @Override
+        public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return scale;
+        }
+
+        /**
+         * Scrollable method, scrolling by one block moves by the visible area less one cell
+         *
+         * @param visibleRect visible area of the view
+         * @param orientation SwingConstants.VERTICAL or SwingConstants.HORIZONTAL
+         * @param direction   less than zero to scroll up or left
+         *
+         * @return int of the distance to scroll
+         */
+        @Override
+        public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+            int visible = orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+            return Math.max(scale, visible - scale);
+        }
+
+        /**
+         * Scrollable method, the board keeps its own width rather than the viewport's
+         *
+         * @return false
+         */
+        @Override
+        public boolean getScrollableTracksViewportWidth() {
+            return false;
+        }
+
+        /**
+         * Scrollable method, the board keeps its own height rather than the viewport's
+         *
+         * @return false
+         */
+        @Override
+        public boolean getScrollableTracksViewportHeight() {
+            return false;
         }
 
         /**
@@ -322,14 +586,16 @@ public class GUI extends JFrame {
          * @param g      Graphic object to draw to
          * @param row    int of which row to draw to
          * @param column int of which column to draw to
+         * @param mines  int of the number of adjacent mines
          */
-        private void drawRevealed(Graphics g, int row, int column) {
+        private void drawRevealed(Graphics g, int row, int column, int mines) {
             String label;
-            if (board.getAdjacentMines(row, column) == 0) {
+            if (mines == 0) {
                 label = "";
             } else {
-                label = Integer.toString(board.getAdjacentMines(row, column));
+                label = Integer.toString(mines);
             }
+            g.setColor(Color.BLACK);
             g.drawString(label, ((row * scale) + scale / 2) - 3, ((column * scale) + scale / 2) + 5);
             g.setColor(Color.BLACK);
             g.drawRect(row * scale, column * scale, scale, scale);
@@ -344,7 +610,7 @@ public class GUI extends JFrame {
          * @return boolean value if x and y are within the board limits
          */
         private boolean isInBoard(int x, int y) {
-            return x / scale <= board.getBoardX() && y / scale <= board.getBoardY();
+            return x >= 0 && y >= 0 && x / scale < board.getBoardX() && y / scale < board.getBoardY();
         }
 
         /**
@@ -359,31 +625,16 @@ public class GUI extends JFrame {
 
         /**
          * Only method of the MouseListener interface that used
-         * Determines which mouse button was press (left or right click) and determines the cell to affect
+         * Determines which mouse button was press (left, middle or right click) and determines the cell to affect
          *
          * @param e MouseEvent
          */
         @Override
         public void mousePressed(MouseEvent e) {
             if (isInBoard(e.getX(), e.getY())) {
-                Cell c = board.getCell(e.getX() / scale, e.getY() / scale);
-                //Right Click
-                if (e.getButton() == 3) {
-                    if (c.isFlagged() && !c.isRevealed()) {
-                        c.setFlagged(false);
-                        gm.nextTurn(c, e.getButton());
-                    } else if (!c.isRevealed()) {
-                        c.setFlagged(true);
-                        gm.nextTurn(c, e.getButton());
-                    }
-                    //Left Click
-                } else if (e.getButton() == 1) {
-                    if (c.isFlagged()) {
-                        return;
-                    }
-                    c.setRevealed(true);
-                    c.setFlagged(false);
-                    gm.nextTurn(c, e.getButton());
+                //Left Click reveals, Middle Click chords, Right Click flags
+                if (e.getButton() >= 1 && e.getButton() <= 3) {
+                    gm.nextTurn(e.getX() / scale, e.getY() / scale, e.getButton());
                 }
             }
         }
@@ -428,14 +679,18 @@ public class GUI extends JFrame {
         }
 
         /**
-         * Mutator method for the scale field for the BoardView
+         * Mutator method for the scale field for the BoardView, the scroll pane is updated for the new board size
          *
          * @param scale
          */
         public void setScale(int scale) {
+            if (scale == this.scale || scale < 1) {
+                return;
+            }
             this.scale = scale;
-            updateGUI();
-            pack();
+            tiles = null;
+            revalidate();
+            repaint();
         }
     }
 
@@ -478,7 +733,6 @@ public class GUI extends JFrame {
             begRadio.addActionListener(e -> gm.setDifficulty(GameManager.Difficulty.BEGINNER));
             interRadio.addActionListener(e -> gm.setDifficulty(GameManager.Difficulty.MEDIUM));
             expertRadio.addActionListener(e -> gm.setDifficulty(GameManager.Difficulty.EXPERT));
-            customRadio.addActionListener(e -> gm.setDifficulty(GameManager.Difficulty.CUSTOM));
             //Button Group
             difficulty = new ButtonGroup();
             difficulty.add(begRadio);
@@ -486,16 +740,53 @@ public class GUI extends JFrame {
             difficulty.add(expertRadio);
             difficulty.add(customRadio);
             //Custom Text Boxes
-            NumberFormat intFormat = NumberFormat.getNumberInstance();
-            intFormat.setMaximumFractionDigits(0);
-            intFormat.setMaximumIntegerDigits(2);
+            NumberFormat intFormat = NumberFormat.getIntegerInstance();
+            intFormat.setGroupingUsed(false);
+            intFormat.setMaximumIntegerDigits(8);
             JFormattedTextField customX = new JFormattedTextField(intFormat);
             JFormattedTextField customY = new JFormattedTextField(intFormat);
             JFormattedTextField customMines = new JFormattedTextField(intFormat);
+            customX.setColumns(6);
+            customY.setColumns(6);
+            customMines.setColumns(8);
+            if (difficultySelected(GameManager.Difficulty.CUSTOM)) {
+                customX.setValue(board.getBoardX());
+                customY.setValue(board.getBoardY());
+                customMines.setValue(board.getNumberOfMines());
+            }
+            JButton customButton = new JButton("Set Custom");
+            customButton.addActionListener(e -> {
+                if (setCustom(customX, customY, customMines)) {
+                    customRadio.setSelected(true);
+                }
+            });
+            customRadio.addActionListener(e -> {
+                if (!setCustom(customX, customY, customMines)) {
+                    restoreSelection(begRadio, interRadio, expertRadio, customRadio);
+                }
+            });
             //Scale Change
             JFormattedTextField scaleText = new JFormattedTextField(boardView.getScale());
             JButton scaleButton = new JButton("Set Scale");
             scaleButton.addActionListener(e -> boardView.setScale(Integer.valueOf(scaleText.getText())));
+            //Board pool size
+            JFormattedTextField poolText = new JFormattedTextField(intFormat);
+            poolText.setColumns(3);
+            poolText.setValue(gm.getPoolSize());
+            JButton poolButton = new JButton("Set Pool");
+            poolButton.addActionListener(e -> {
+                try {
+                    gm.setPoolSize(fieldValue(poolText, "Boards ready"));
+                } catch (IllegalArgumentException ex) {
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Boards ready", JOptionPane.WARNING_MESSAGE);
+                }
+            });
+            //No guessing
+            JCheckBox noGuessBox = new JCheckBox("No guessing", gm.isNoGuess());
+            noGuessBox.setToolTipText("Only deal boards that can be cleared by logic from the first click, on boards of"
+                    + " up to " + NoGuessGenerator.MAX_CELLS + " cells and " + NoGuessGenerator.MAX_MINE_PERCENT
+                    + "% mines");
+            noGuessBox.addActionListener(e -> gm.setNoGuess(noGuessBox.isSelected()));
             //adding to pane
             c.anchor = GridBagConstraints.NORTHWEST;
             add(new JLabel("Difficulty"));
@@ -543,6 +834,8 @@ public class GUI extends JFrame {
             add(customY, c);
             c.gridx++;
             add(customMines, c);
+            c.gridx++;
+            add(customButton, c);
             c.gridx = 0;
             c.gridy = 5;
             add(new JLabel("Scale:"), c);
@@ -550,6 +843,80 @@ public class GUI extends JFrame {
             add(scaleText, c);
             c.gridx++;
             add(scaleButton, c);
+            c.gridx = 0;
+            c.gridy++;
+            add(new JLabel("Boards ready:"), c);
+            c.gridx++;
+            add(poolText, c);
+            c.gridx++;
+            add(poolButton, c);
+            c.gridx = 0;
+            c.gridy++;
+            c.gridwidth = 2;
+            add(noGuessBox, c);
+        }
+
+        /**
+         * Changes to a custom board of the size in the custom fields, showing why if the size is not valid
+         *
+         * @param customX     JFormattedTextField of the width
+         * @param customY     JFormattedTextField of the height
+         * @param customMines JFormattedTextField of the number of mines
+         *
+         * @return boolean whether the board is now the custom size
+         */
+        private boolean setCustom(JFormattedTextField customX, JFormattedTextField customY,
+                                  JFormattedTextField customMines) {
+            try {
+                gm.setCustomDifficulty(fieldValue(customX, "Width"), fieldValue(customY, "Height"),
+                        fieldValue(customMines, "Mines"));
+            } catch (IllegalArgumentException e) {
+                JOptionPane.showMessageDialog(this, e.getMessage(), "Custom board", JOptionPane.WARNING_MESSAGE);
+                return false;
+            }
+            return difficultySelected(GameManager.Difficulty.CUSTOM);
+        }
+
+        /**
+         * Reads a whole number from a custom field
+         *
+         * @param field JFormattedTextField to read
+         * @param name  String name of the field for the error message
+         *
+         * @return int of the value of the field
+         *
+         * @throws IllegalArgumentException if the field is empty or not a whole number
+         */
+        private int fieldValue(JFormattedTextField field, String name) {
+            try {
+                field.commitEdit();
+            } catch (ParseException e) {
+                throw new IllegalArgumentException(name + " must be a whole number");
+            }
+            if (!(field.getValue() instanceof Number)) {
+                throw new IllegalArgumentException(name + " must be a whole number");
+            }
+            long value = ((Number) field.getValue()).longValue();
+            if (value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(name + " is too large");
+            }
+            return (int) value;
+        }
+
+        /**
+         * Selects the radio button of the current difficulty again, after a change was cancelled or failed
+         *
+         * @param begRadio    JRadioButton for Beginner
+         * @param interRadio  JRadioButton for Intermediate
+         * @param expertRadio JRadioButton for Expert
+         * @param customRadio JRadioButton for Custom
+         */
+        private void restoreSelection(JRadioButton begRadio, JRadioButton interRadio, JRadioButton expertRadio,
+                                      JRadioButton customRadio) {
+            begRadio.setSelected(difficultySelected(GameManager.Difficulty.BEGINNER));
+            interRadio.setSelected(difficultySelected(GameManager.Difficulty.MEDIUM));
+            expertRadio.setSelected(difficultySelected(GameManager.Difficulty.EXPERT));
+            customRadio.setSelected(difficultySelected(GameManager.Difficulty.CUSTOM));
         }
 
         /**
@@ -564,6 +931,90 @@ public class GUI extends JFrame {
         }
     }
 
+    /**
+     * MetricsDialog shows the Metrics of the game's hot paths, refreshed every second, and exports them to a file.
+     */
+    private class MetricsDialog extends JDialog {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Text area the metrics table is shown in
+         */
+        private JTextArea text;
+        /**
+         * Timer that refreshes the table while the dialog is open
+         */
+        private Timer refreshTimer;
+
+        /**
+         * Constructor for the dialog
+         */
+        public MetricsDialog() {
+            buildMetrics();
+            setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+            pack();
+            setVisible(true);
+        }
+
+        /**
+         * Builds the dialog and starts the refresh timer, which is stopped when the dialog is closed
+         */
+        private void buildMetrics() {
+            setTitle("Metrics");
+            setLayout(new BorderLayout());
+            text = new JTextArea(Metrics.report(), Metrics.all().size() + 2, 90);
+            text.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+            text.setEditable(false);
+            add(new JScrollPane(text), BorderLayout.CENTER);
+
+            JPanel buttons = new JPanel();
+            JButton resetButton = new JButton("Reset");
+            JButton exportButton = new JButton("Export");
+            resetButton.addActionListener(e -> {
+                Metrics.reset();
+                refresh();
+            });
+            exportButton.addActionListener(e -> export());
+            buttons.add(resetButton);
+            buttons.add(exportButton);
+            add(buttons, BorderLayout.SOUTH);
+
+            refreshTimer = new Timer(1000, e -> refresh());
+            refreshTimer.start();
+            addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosed(WindowEvent e) {
+                    refreshTimer.stop();
+                }
+            });
+        }
+
+        /**
+         * Shows the current values of the metrics
+         */
+        private void refresh() {
+            text.setText(Metrics.report());
+        }
+
+        /**
+         * Asks for a file and writes the metrics to it as CSV
+         */
+        private void export() {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new File("metrics.csv"));
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            try {
+                Metrics.export(chooser.getSelectedFile().toPath());
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Could not export the metrics: " + e.getMessage(), "Metrics",
+                        JOptionPane.WARNING_MESSAGE);
+            }
+        }
+    }
+
     /**
      * StatusView is a JPanel that displays information about the current game i.e. the number of mines left
      */
@@ -573,6 +1024,10 @@ public class GUI extends JFrame {
          * JLabel showing the number of mines left
          */
         private JLabel minesLeftLabel;
+        /**
+         * JLabel showing the progress of a search for a no-guess board, empty when there is none
+         */
+        private JLabel searchLabel;
 
         /**
          * Constructor for the StatusView, only calls the build method
@@ -587,8 +1042,21 @@ public class GUI extends JFrame {
         private void build() {
             //Labels
             minesLeftLabel = new JLabel(Integer.toString(board.minesLeft()));
+            searchLabel = new JLabel();
             add(new JLabel("Mines Left: "));
             add(minesLeftLabel);
+            add(searchLabel);
+        }
+
+        /**
+         * Shows the progress of a search for a no-guess board, and a wait cursor over the board while it runs
+         *
+         * @param text String describing the search, or null once it has finished
+         */
+        public void showSearch(String text) {
+            searchLabel.setText(text == null ? "" : text);
+            boardView.setCursor(text == null ? Cursor.getDefaultCursor()
+                    : Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
         }
 
         /**
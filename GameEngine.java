@@ -0,0 +1,531 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>The <b>GameEngine</b> holds the rules of the game: revealing, flagging and chording cells of a <b>Board</b>.</p>
+ * <p>It has no user interface, every move returns a <b>MoveResult</b> and is passed on to any <b>GameListener</b>,
+ * so games can be played headless at full speed.</p>
+ */
+public class GameEngine {
+
+    /**
+     * Finds the boards of engines that are set to need no guessing. It only holds the pool its workers run on, so one
+     * is shared by every engine
+     */
+    private static final NoGuessGenerator NO_GUESS_GENERATOR = new NoGuessGenerator();
+
+    private final List<GameListener> listeners = new ArrayList<>();
+    private final SplittableRandom random;
+    private final CellChanges changes = new CellChanges();
+    private final int[] neighbours = new int[9];
+    private Board board;
+    private GameManager.Difficulty difficulty;
+    private boolean firstClick;
+    private State state;
+    private long seed;
+    private boolean noGuess;
+    private BoardPool pool;
+    /**
+     * The pooled board the current game was started from, until its first click
+     */
+    private BoardPool.Entry pooled;
+    /**
+     * A no-guess search finished off the engine's thread for the current game, until its first click
+     */
+    private NoGuessSearch searched;
+
+    /**
+     * Constructor for the GameEngine, starts a new game of the given difficulty with randomly seeded boards
+     *
+     * @param difficulty Difficulty enum (see GameManager) for the difficulty
+     */
+    public GameEngine(GameManager.Difficulty difficulty) {
+        this(difficulty, new SplittableRandom());
+    }
+
+    /**
+     * Constructor for the GameEngine, starts a new game of the given difficulty.
+     * The seed of every board is drawn from the given random, so the same random plays out the same boards
+     *
+     * @param difficulty Difficulty enum (see GameManager) for the difficulty
+     * @param random     SplittableRandom to draw the board seeds from
+     */
+    public GameEngine(GameManager.Difficulty difficulty, SplittableRandom random) {
+        this(new Board(difficulty), true, difficulty, random);
+    }
+
+    /**
+     * Constructor for the GameEngine, continues a game on an existing board (i.e. from a save file)
+     *
+     * @param board      Board to play on
+     * @param firstClick boolean whether the mines still have to be generated
+     * @param difficulty Difficulty enum (see GameManager) of the board
+     * @param random     SplittableRandom to draw the board seeds from
+     */
+    public GameEngine(Board board, boolean firstClick, GameManager.Difficulty difficulty, SplittableRandom random) {
+        this(board, firstClick, difficulty, random, random.nextLong());
+    }
+
+    /**
+     * Constructor for the GameEngine, continues a game on an existing board whose mines, if they have not been
+     * generated yet, will be generated from the given seed (i.e. when recovering a game)
+     *
+     * @param board      Board to play on
+     * @param firstClick boolean whether the mines still have to be generated
+     * @param difficulty Difficulty enum (see GameManager) of the board
+     * @param random     SplittableRandom to draw the seeds of later boards from
+     * @param seed       long seed for the mines of the board
+     */
+    public GameEngine(Board board, boolean firstClick, GameManager.Difficulty difficulty, SplittableRandom random,
+                      long seed) {
+        this.board = board;
+        this.firstClick = firstClick;
+        this.difficulty = difficulty;
+        this.random = random;
+        this.state = State.PLAYING;
+        this.seed = seed;
+    }
+
+    /**
+     * Adds a listener to be notified of every move and board reset
+     *
+     * @param listener GameListener to add
+     */
+    public void addListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener
+     *
+     * @param listener GameListener to remove
+     */
+    public void removeListener(GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Accessor for the board field
+     *
+     * @return Board being played on
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Accessor for the difficulty field
+     *
+     * @return Difficulty enum of the current board
+     */
+    public GameManager.Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Returns whether the first cell has yet to be revealed, i.e. the mines have not been generated
+     *
+     * @return boolean of the firstClick field
+     */
+    public boolean isFirstClick() {
+        return firstClick;
+    }
+
+    /**
+     * Accessor for the state field
+     *
+     * @return State enum of the current game
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the seed the mines of the current board are generated with on the first reveal
+     *
+     * @return long seed of the current board
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns whether the mines are placed so that the board can be cleared without guessing
+     *
+     * @return boolean of the noGuess field
+     */
+    public boolean isNoGuess() {
+        return noGuess;
+    }
+
+    /**
+     * Returns whether the current board's mines will be placed so that it can be cleared without guessing, i.e.
+     * no-guess mode is on and the board is small enough to search (see NoGuessGenerator.supports)
+     *
+     * @return boolean whether the first click searches for a no-guess board
+     */
+    public boolean isNoGuessBoard() {
+        return noGuess && NoGuessGenerator.supports(board.getBoardX(), board.getBoardY(), board.getNumberOfMines());
+    }
+
+    /**
+     * Sets whether the mines are placed so that the board can be cleared without guessing (see NoGuessGenerator).
+     * Takes effect from the next first click, the same seed and first click always give the same board in either mode.
+     * Boards too big to search are generated as usual
+     *
+     * @param noGuess boolean whether boards should need no guessing
+     */
+    public void setNoGuess(boolean noGuess) {
+        this.noGuess = noGuess;
+    }
+
+    /**
+     * Sets the pool new games take their boards from, and starts it filling with boards of the current size.
+     * Without a pool, or when it has no board ready, the mines are generated on the first click as usual
+     *
+     * @param pool BoardPool to take boards from, or null to generate every board on its first click
+     */
+    public void setPool(BoardPool pool) {
+        this.pool = pool;
+        if (pool != null) {
+            pool.fill(board);
+        }
+    }
+
+    /**
+     * Clears the board for a new game of the same difficulty, taking the next board from the pool if it has one.
+     * No-guess boards depend on the first click in ways the pool can not prepare for, so they never come from it
+     */
+    public void newGame() {
+        BoardPool.Entry entry = pool == null || isNoGuessBoard() ? null : pool.take(board);
+        newGame(entry == null ? random.nextLong() : entry.getSeed());
+        pooled = entry;
+    }
+
+    /**
+     * Clears the board for a new game of the same difficulty, whose mines will be generated from the given seed.
+     * The same seed and first click always give the same board
+     *
+     * @param seed long seed for the mines of the new board
+     */
+    public void newGame(long seed) {
+        this.seed = seed;
+        pooled = null;
+        searched = null;
+        firstClick = true;
+        state = State.PLAYING;
+        board.generateNewBoard();
+        for (GameListener listener : listeners) {
+            listener.boardReset();
+        }
+    }
+
+    /**
+     * Changes the difficulty and starts a new game
+     *
+     * @param d Difficulty enum to change to
+     */
+    public void setDifficulty(GameManager.Difficulty d) {
+        board.setBoardDifficulty(d);
+        difficultyChanged(d);
+    }
+
+    /**
+     * Changes to a CUSTOM board of the given size and starts a new game
+     *
+     * @param boardX        int of the width of the board
+     * @param boardY        int of the height of the board
+     * @param numberOfMines int of the number of mines
+     *
+     * @throws IllegalArgumentException if the size is not valid (see Board.checkSize)
+     */
+    public void setCustomSize(int boardX, int boardY, int numberOfMines) {
+        board.setBoardSize(boardX, boardY, numberOfMines);
+        difficultyChanged(GameManager.Difficulty.CUSTOM);
+    }
+
+    /**
+     * Starts a new game after the board has been changed to a new difficulty
+     *
+     * @param d Difficulty enum of the board
+     */
+    private void difficultyChanged(GameManager.Difficulty d) {
+        difficulty = d;
+        if (pool != null) {
+            pool.fill(board);
+        }
+        seed = random.nextLong();
+        pooled = null;
+        searched = null;
+        firstClick = true;
+        state = State.PLAYING;
+        for (GameListener listener : listeners) {
+            listener.boardReset();
+        }
+    }
+
+    /**
+     * Returns whether revealing the given cell would first search for a no-guess board, which can take a moment. A GUI
+     * can run the search on another thread first, see noGuessSearch
+     *
+     * @param x x position of the cell
+     * @param y y position of the cell
+     *
+     * @return boolean whether the reveal would search for the board
+     */
+    public boolean needsNoGuessSearch(int x, int y) {
+        return state == State.PLAYING && firstClick && isNoGuessBoard() && !board.isFlagged(x, y)
+                && (searched == null || searched.x != x || searched.y != y);
+    }
+
+    /**
+     * Takes what the search for the no-guess board of a first click needs from the current game. The search can then
+     * be run on any thread while the engine carries on, and handed back with useNoGuessSearch once it is done
+     *
+     * @param x x position of the first click
+     * @param y y position of the first click
+     *
+     * @return NoGuessSearch that has not been run
+     */
+    public NoGuessSearch noGuessSearch(int x, int y) {
+        return new NoGuessSearch(board.getBoardX(), board.getBoardY(), board.getNumberOfMines(), x, y, seed);
+    }
+
+    /**
+     * Uses a finished no-guess search for the first reveal, if it is still for the current game. It gives the same
+     * board the reveal would have searched for itself, so journals and replays are unchanged
+     *
+     * @param search NoGuessSearch that has been run
+     *
+     * @return boolean whether the search was for the current game, false if another game has started since
+     */
+    public boolean useNoGuessSearch(NoGuessSearch search) {
+        if (!search.isDone() || !firstClick || search.seed != seed || search.boardX != board.getBoardX()
+                || search.boardY != board.getBoardY() || search.numberOfMines != board.getNumberOfMines()) {
+            return false;
+        }
+        searched = search;
+        return true;
+    }
+
+    /**
+     * Reveals a cell. The first reveal of a game generates the mines so that the cell and its neighbours are safe, and
+     * in no-guess mode so that the rest of the board can be cleared from there by logic alone
+     *
+     * @param x x position of the cell
+     * @param y y position of the cell
+     *
+     * @return MoveResult of the move, IGNORED if the cell is flagged or already revealed
+     */
+    public MoveResult reveal(int x, int y) {
+        changes.clear();
+        if (state != State.PLAYING || board.isFlagged(x, y) || board.isRevealed(x, y)) {
+            return new MoveResult(MoveResult.Move.REVEAL, x, y, MoveResult.Outcome.IGNORED, changes);
+        }
+        if (firstClick) {
+            board.setSafeCells(x, y);
+            boolean search = isNoGuessBoard();
+            long[] mines = pooled == null || search ? null : pooled.getMines(board);
+            if (mines != null) {
+                board.generateMines(mines);
+            } else if (search) {
+                boolean done = searched != null && searched.x == x && searched.y == y;
+                board.generateMines(done ? searched.mineSeed : NO_GUESS_GENERATOR.findSeed(board, x, y, seed));
+            } else {
+                board.generateMines(seed);
+            }
+            pooled = null;
+            searched = null;
+            firstClick = false;
+        }
+        boolean hitMine = revealCell(x, y);
+        return finishMove(MoveResult.Move.REVEAL, x, y, hitMine);
+    }
+
+    /**
+     * Flags an unrevealed cell, or removes the flag if it is already flagged
+     *
+     * @param x x position of the cell
+     * @param y y position of the cell
+     *
+     * @return MoveResult of the move, IGNORED if the cell is already revealed
+     */
+    public MoveResult toggleFlag(int x, int y) {
+        changes.clear();
+        if (state != State.PLAYING || board.isRevealed(x, y)) {
+            return new MoveResult(MoveResult.Move.FLAG, x, y, MoveResult.Outcome.IGNORED, changes);
+        }
+        board.setFlagged(x, y, !board.isFlagged(x, y));
+        changes.add(x, y);
+        return finishMove(MoveResult.Move.FLAG, x, y, false);
+    }
+
+    /**
+     * Reveals every unflagged neighbour of a revealed cell, when the number of flags around it matches its number
+     *
+     * @param x x position of the cell
+     * @param y y position of the cell
+     *
+     * @return MoveResult of the move, IGNORED if the cell is not revealed or the flags do not match
+     */
+    public MoveResult chord(int x, int y) {
+        changes.clear();
+        if (state != State.PLAYING || !board.isRevealed(x, y)) {
+            return new MoveResult(MoveResult.Move.CHORD, x, y, MoveResult.Outcome.IGNORED, changes);
+        }
+        int count = board.getAdjacentIndices(x, y, neighbours);
+        int flags = 0;
+        for (int i = 0; i < count; i++) {
+            if (board.isFlagged(board.getX(neighbours[i]), board.getY(neighbours[i]))) {
+                flags++;
+            }
+        }
+        if (flags != board.getAdjacentMines(x, y)) {
+            return new MoveResult(MoveResult.Move.CHORD, x, y, MoveResult.Outcome.IGNORED, changes);
+        }
+
+        boolean hitMine = false;
+        for (int i = 0; i < count; i++) {
+            int nx = board.getX(neighbours[i]);
+            int ny = board.getY(neighbours[i]);
+            if (!board.isFlagged(nx, ny) && !board.isRevealed(nx, ny)) {
+                hitMine |= revealCell(nx, ny);
+            }
+        }
+        return finishMove(MoveResult.Move.CHORD, x, y, hitMine);
+    }
+
+    /**
+     * Reveals a single cell and opens the region around it if it has no adjacent mines
+     *
+     * @param x x position of the cell
+     * @param y y position of the cell
+     *
+     * @return boolean whether the cell was a mine
+     */
+    private boolean revealCell(int x, int y) {
+        board.setRevealed(x, y, true);
+        changes.add(x, y);
+        board.floodReveal(x, y, changes);
+        return board.isMine(x, y);
+    }
+
+    /**
+     * Works out the outcome of a move and notifies the listeners
+     *
+     * @param move    Move enum of the move
+     * @param x       x position of the cell the move was made on
+     * @param y       y position of the cell the move was made on
+     * @param hitMine boolean whether the move revealed a mine
+     *
+     * @return MoveResult of the move
+     */
+    private MoveResult finishMove(MoveResult.Move move, int x, int y, boolean hitMine) {
+        MoveResult.Outcome outcome;
+        if (hitMine) {
+            outcome = MoveResult.Outcome.LOSE;
+            state = State.LOST;
+        } else if (board.nonMinesLeft() == 0) {
+            outcome = MoveResult.Outcome.WIN;
+            state = State.WON;
+        } else {
+            outcome = MoveResult.Outcome.CONTINUE;
+        }
+
+        MoveResult result = new MoveResult(move, x, y, outcome, changes);
+        for (GameListener listener : listeners) {
+            listener.moveMade(result);
+        }
+        return result;
+    }
+
+    /**
+     * <p>A <b>NoGuessSearch</b> is the search for the no-guess board of one first click. It holds a copy of what it
+     * needs from the engine, so it can run on another thread, and counts the candidates it has checked so a GUI can
+     * show its progress.</p>
+     */
+    public static final class NoGuessSearch {
+
+        private final int boardX;
+        private final int boardY;
+        private final int numberOfMines;
+        private final int x;
+        private final int y;
+        private final long seed;
+        private final AtomicLong candidates = new AtomicLong();
+        private volatile boolean done;
+        private volatile long mineSeed;
+
+        /**
+         * Constructor for the NoGuessSearch, see GameEngine.noGuessSearch
+         *
+         * @param boardX        int of the width of the board
+         * @param boardY        int of the height of the board
+         * @param numberOfMines int of the number of mines
+         * @param x             x position of the first click
+         * @param y             y position of the first click
+         * @param seed          long seed of the game
+         */
+        private NoGuessSearch(int boardX, int boardY, int numberOfMines, int x, int y, long seed) {
+            this.boardX = boardX;
+            this.boardY = boardY;
+            this.numberOfMines = numberOfMines;
+            this.x = x;
+            this.y = y;
+            this.seed = seed;
+        }
+
+        /**
+         * Runs the search, on any thread, returning once the board has been found
+         */
+        public void run() {
+            mineSeed = NO_GUESS_GENERATOR.findSeed(boardX, boardY, numberOfMines, x, y, seed, candidates);
+            done = true;
+        }
+
+        /**
+         * Returns whether the search has finished
+         *
+         * @return boolean whether run has returned
+         */
+        public boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Returns the number of candidate boards checked so far
+         *
+         * @return long of the candidates
+         */
+        public long getCandidates() {
+            return Math.min(candidates.get(), NoGuessGenerator.MAX_CANDIDATES);
+        }
+
+        /**
+         * Accessor for the x field
+         *
+         * @return int x position of the first click
+         */
+        public int getX() {
+            return x;
+        }
+
+        /**
+         * Accessor for the y field
+         *
+         * @return int y position of the first click
+         */
+        public int getY() {
+            return y;
+        }
+    }
+
+    /**
+     * Enums for the state of the current game
+     */
+    public enum State {
+        PLAYING, WON, LOST
+    }
+}
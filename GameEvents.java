@@ -0,0 +1,118 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * <p><b>GameEvents</b> holds the Java Flight Recorder events of the game's hot paths.</p>
+ * <p>The events cost almost nothing unless a recording is running, i.e. one started with
+ * <code>java -XX:StartFlightRecording=filename=game.jfr GameManager</code>, and the same measurements are kept in
+ * <b>Metrics</b> for the debug panel. Without a recording no event is even allocated.</p>
+ */
+public final class GameEvents {
+
+    /**
+     * GameEvents only holds the event classes
+     */
+    private GameEvents() {
+    }
+
+    /**
+     * Instances that are never committed, only asked whether their event is enabled. The hot paths, and the saves and
+     * loads the background writers make, check them first so they only allocate an event while a recording wants it
+     */
+    static final BoardGeneration BOARD_GENERATION = new BoardGeneration();
+    static final Move MOVE = new Move();
+    static final FloodFill FLOOD_FILL = new FloodFill();
+    static final Paint PAINT = new Paint();
+    static final Save SAVE = new Save();
+    static final Load LOAD = new Load();
+
+    /**
+     * Mines being generated on the first reveal of a board
+     */
+    @Name("minesweeper.BoardGeneration")
+    @Label("Board Generation")
+    @Category("Minesweeper")
+    @Description("Mines generated on the first reveal of a board")
+    public static class BoardGeneration extends Event {
+        @Label("Width")
+        int width;
+        @Label("Height")
+        int height;
+        @Label("Mines")
+        int mines;
+    }
+
+    /**
+     * A move made through GameManager.nextTurn, including the GUI update it caused
+     */
+    @Name("minesweeper.Move")
+    @Label("Move")
+    @Category("Minesweeper")
+    @Description("A move made by the player, including the GUI update")
+    public static class Move extends Event {
+        @Label("Button")
+        int button;
+        @Label("X")
+        int x;
+        @Label("Y")
+        int y;
+        @Label("Outcome")
+        String outcome;
+        @Label("Cells Changed")
+        int cellsChanged;
+    }
+
+    /**
+     * A region of cells with no adjacent mines being opened by Board.floodReveal
+     */
+    @Name("minesweeper.FloodFill")
+    @Label("Flood Fill")
+    @Category("Minesweeper")
+    @Description("A region with no adjacent mines being opened")
+    public static class FloodFill extends Event {
+        @Label("Cells Revealed")
+        int cells;
+    }
+
+    /**
+     * One paint of the board view
+     */
+    @Name("minesweeper.Paint")
+    @Label("Board Paint")
+    @Category("Minesweeper")
+    @Description("One paint of the board view")
+    public static class Paint extends Event {
+        @Label("Cells Painted")
+        int cells;
+    }
+
+    /**
+     * A save file being written
+     */
+    @Name("minesweeper.Save")
+    @Label("Save")
+    @Category("Minesweeper")
+    @Description("A save file being written")
+    public static class Save extends Event {
+        @Label("Size")
+        @DataAmount
+        long bytes;
+    }
+
+    /**
+     * A save file being read
+     */
+    @Name("minesweeper.Load")
+    @Label("Load")
+    @Category("Minesweeper")
+    @Description("A save file being read")
+    public static class Load extends Event {
+        @Label("Size")
+        @DataAmount
+        long bytes;
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * <p><b>GameListener</b> is notified by the <b>GameEngine</b> whenever the game changes, e.g. to update a user interface</p>
+ */
+public interface GameListener {
+
+    /**
+     * Called after every move that changed the game
+     *
+     * @param result MoveResult of the move
+     */
+    void moveMade(MoveResult result);
+
+    /**
+     * Called after the board has been cleared for a new game or resized for a new difficulty
+     */
+    void boardReset();
+}
@@ -1,19 +1,51 @@
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import java.io.*;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <h3>Created by James on 12/03/2016.</h3>
  * <p>
  * <p>The GameManager runs the whole game and tracks the users stats</p>
+ * <p>The rules are played out by a <b>GameEngine</b>, the GameManager listens to it to update the GUI and the stats</p>
  */
-public class GameManager implements Serializable {
+public class GameManager implements Serializable, GameListener {
 
-    private static int lifetimeWins;
-    private static int lifetimeLosses;
+    private static final String SAVE_FILE = "game.data";
+    private static final String JOURNAL_FILE = "game.journal";
+    private static final String REPLAY_FILE = "game.replays";
+    /**
+     * Number of journal entries after which the game is saved, so the journal is compacted and recovery stays quick
+     */
+    private static final int COMPACT_ENTRIES = 1024;
+    /**
+     * Number of boards the pool keeps ready, unless set with the minesweeper.poolSize system property (0 turns it off)
+     */
+    private static final int DEFAULT_POOL_SIZE = 2;
+
+    /**
+     * Lifetime totals are shared by every GameManager in the JVM, so they are atomic
+     */
+    private static final AtomicInteger lifetimeWins = new AtomicInteger();
+    private static final AtomicInteger lifetimeLosses = new AtomicInteger();
     private boolean isDebug = false;
     private GUI gui;
-    private Board board;
-    private boolean firstClick;
-    private Difficulty difficulty;
+    private transient GameEngine engine;
+    private transient SaveWriter saveWriter = new SaveWriter(Paths.get(SAVE_FILE));
+    private transient ReplayWriter replayWriter = new ReplayWriter(Paths.get(REPLAY_FILE));
+    private transient MoveJournal journal;
+    private transient long savedSequence;
+    private transient Replay lastReplay;
+    private transient ReplayEngine.Playback playback;
+    /**
+     * The search for the no-guess board of the first click, while it runs off the EDT, and the timer showing its
+     * progress
+     */
+    private transient GameEngine.NoGuessSearch search;
+    private transient Timer searchTimer;
+    private transient BoardPool boardPool = new BoardPool(poolSizeProperty());
     private int scale;
     private int sessionWins;
     private int sessionLosses;
@@ -22,14 +54,23 @@ public class GameManager implements Serializable {
      * Constructor for the GameManager. This will set the game up with default settings.
      */
     public GameManager() {
-        if (checkForSave()) {
-            loadSave(true);
-        } else {
-            difficulty = Difficulty.BEGINNER;
-            board = new Board(difficulty);
-            gui = new GUI(board, this);
-            firstClick = true;
+        Metrics.setEnabled(true);
+        try {
+            recover();
+        } catch (IOException e) {
+            //An unreadable save is replaced by a new game, which starts the journal again
+            e.printStackTrace();
+            engine = new GameEngine(Difficulty.BEGINNER);
+            try {
+                startJournal(0);
+            } catch (IOException journalError) {
+                throw new UncheckedIOException(journalError);
+            }
+            journal.recordNewGame();
+            attachListeners();
+            savedSequence = 0;
         }
+        gui = new GUI(engine.getBoard(), this);
     }
 
     /**
@@ -38,7 +79,7 @@ public class GameManager implements Serializable {
      * @return int of the lifeTimeWins
      */
     public static int getLifetimeLosses() {
-        return lifetimeLosses;
+        return lifetimeLosses.get();
     }
 
     /**
@@ -47,7 +88,31 @@ public class GameManager implements Serializable {
      * @return int of the lifeTimeLosses field
      */
     public static int getLifetimeWins() {
-        return lifetimeWins;
+        return lifetimeWins.get();
+    }
+
+    /**
+     * Reads the pool size from the minesweeper.poolSize system property. A value that is not a number or is negative
+     * is ignored with a warning, so a bad setting can not stop the game from starting
+     *
+     * @return int of the number of boards the pool should keep ready
+     */
+    private static int poolSizeProperty() {
+        String value = System.getProperty("minesweeper.poolSize");
+        if (value == null) {
+            return DEFAULT_POOL_SIZE;
+        }
+        try {
+            int size = Integer.parseInt(value.trim());
+            if (size >= 0) {
+                return size;
+            }
+        } catch (NumberFormatException e) {
+            //Warned about below, like a negative size
+        }
+        System.err.println("Ignoring minesweeper.poolSize=" + value + ", it must be 0 or more boards, using "
+                + DEFAULT_POOL_SIZE);
+        return DEFAULT_POOL_SIZE;
     }
 
     /**
@@ -60,29 +125,137 @@ public class GameManager implements Serializable {
     }
 
     /**
-     * Issues a next turn command to update the state of the game
+     * Issues a next turn command to update the state of the game.
+     * The first reveal of a no-guess board is made once its board has been found on another thread, so the GUI stays
+     * responsive, until then it and any other move are IGNORED
+     *
+     * @param x      x position of the cell that has been clicked
+     * @param y      y position of the cell that has been clicked
+     * @param button int of which mouse button was used (left = 1, middle = 2, right = 3)
+     *
+     * @return MoveResult of the move
+     */
+    public MoveResult nextTurn(int x, int y, int button) {
+        if (playback != null || search != null || button == 1 && engine.needsNoGuessSearch(x, y)) {
+            if (playback == null && search == null) {
+                startSearch(x, y);
+            }
+            return new MoveResult(button == 1 ? MoveResult.Move.REVEAL : button == 2 ? MoveResult.Move.CHORD :
+                    MoveResult.Move.FLAG, x, y, MoveResult.Outcome.IGNORED, new CellChanges());
+        }
+        long start = System.nanoTime();
+        GameEvents.Move event = null;
+        if (GameEvents.MOVE.isEnabled()) {
+            event = new GameEvents.Move();
+            event.begin();
+        }
+        MoveResult result;
+        switch (button) {
+            case 1:
+                result = engine.reveal(x, y);
+                break;
+            case 2:
+                result = engine.chord(x, y);
+                break;
+            default:
+                result = engine.toggleFlag(x, y);
+                break;
+        }
+        if (event != null) {
+            event.button = button;
+            event.x = x;
+            event.y = y;
+            event.outcome = result.getOutcome().name();
+            event.cellsChanged = result.getChanges().size();
+            event.commit();
+        }
+        Metrics.MOVE.recordSince(start);
+        return result;
+    }
+
+    /**
+     * Starts searching for the no-guess board of a first click on another thread, showing its progress until it is
+     * found and the click is made
+     *
+     * @param x x position of the first click
+     * @param y y position of the first click
+     */
+    private void startSearch(int x, int y) {
+        GameEngine.NoGuessSearch started = engine.noGuessSearch(x, y);
+        search = started;
+        searchTimer = new Timer(100, e -> gui.showSearchProgress("Finding a board that needs no guessing, "
+                + started.getCandidates() + " checked"));
+        searchTimer.start();
+        Thread thread = new Thread(() -> {
+            started.run();
+            SwingUtilities.invokeLater(() -> searchFinished(started));
+        }, "no-guess-search");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Called on the EDT when a no-guess search has finished, makes the first click it was for unless the game has been
+     * changed since
+     *
+     * @param finished NoGuessSearch that has finished
+     */
+    private void searchFinished(GameEngine.NoGuessSearch finished) {
+        if (search != finished) {
+            return;
+        }
+        stopSearch();
+        if (engine.useNoGuessSearch(finished)) {
+            nextTurn(finished.getX(), finished.getY(), 1);
+        }
+    }
+
+    /**
+     * Stops waiting for any no-guess search, i.e. when a new game is started. A search still running is left to
+     * finish and its result dropped
+     */
+    private void stopSearch() {
+        if (search == null) {
+            return;
+        }
+        search = null;
+        searchTimer.stop();
+        searchTimer = null;
+        gui.showSearchProgress(null);
+    }
+
+    /**
+     * Called by the GameEngine after every move, updates the GUI and ends the game on a win or loss
      *
-     * @param c      Reference of the cell that has just been revealed
-     * @param button int of which mouse button was used (left = 1)
+     * @param result MoveResult of the move
      */
-    public void nextTurn(Cell c, int button) {
-        int y = c.getY();
-        int x = c.getX();
-        if (firstClick) {
-            board.setSafeCells(x, y);
-            board.generateMines();
-            firstClick = false;
+    @Override
+    public void moveMade(MoveResult result) {
+        if (isDebug) {
+            engine.getBoard().checkCounters();
         }
-        setZeroReveal(x, y);
-        if (c.isMine() && !c.isFlagged() && button == 1) {
-            gui.updateGUI();
-            gameLose();
+        //Not on the move that ends a game, the save would hold the finished board as a game still being played. The
+        //first move of the next game saves instead
+        if (journal.getSequence() - savedSequence >= COMPACT_ENTRIES && result.getOutcome() != MoveResult.Outcome.WIN
+                && result.getOutcome() != MoveResult.Outcome.LOSE) {
+            save();
         }
-        if (board.nonMinesLeft() == 0) {
-            gui.updateGUI();
-            gameWin();
+        gui.updateGUI(result.getChanges());
+        //After the move has returned, so the dialog is not part of the move and is shown over the final board
+        if (result.getOutcome() == MoveResult.Outcome.LOSE) {
+            SwingUtilities.invokeLater(this::gameLose);
+        } else if (result.getOutcome() == MoveResult.Outcome.WIN) {
+            SwingUtilities.invokeLater(this::gameWin);
         }
-        gui.updateGUI();
+    }
+
+    /**
+     * Called by the GameEngine when the board has been cleared or resized
+     */
+    @Override
+    public void boardReset() {
+        stopSearch();
+        gui.resetBoard();
     }
 
     /**
@@ -103,88 +276,291 @@ public class GameManager implements Serializable {
         return sessionLosses;
     }
 
-    /**
-     * Reveals cells adjacent to any cell that has zero mines adjacent to it
-     *
-     * @param x x position of the cell
-     * @param y y position of the cell
-     */
-    private void setZeroReveal(int x, int y) {
-        if (board.getAdjacentMines(x, y) == 0) {
-            board.getCell(x, y).setRevealed(true);
-            for (Cell c : board.getAdjacentCells(x, y)) {
-                c.setRevealed(true);
-                c.setFlagged(false);
-                if (board.getAdjacentMines(c.getX(), c.getY()) == 0 && !c.isZeroReveal()) {
-                    c.setZeroReveal(true);
-                    setZeroReveal(c.getX(), c.getY());
-                }
-            }
-        }
-    }
-
     /**
      * Checks if the user already has a save file
      *
      * @return boolean depending if there is a save file
      */
     private boolean checkForSave() {
-        File f = new File("game.data");
+        File f = new File(SAVE_FILE);
         return f.exists() && !f.isDirectory();
     }
 
     /**
-     * Loads the save file
+     * Loads the save file, going back to the game as it was last saved. The moves journaled since the save are
+     * dropped, the journal starts again from the save (recovering them is only done at startup, see recover)
      *
      * @param loadGUI boolean depending where there is already a GUI object
      */
     public void loadSave(boolean loadGUI) {
-        try (FileInputStream fs = new FileInputStream("game.data")) {
-            ObjectInputStream os = new ObjectInputStream(fs);
-            Object gamesWon = os.readObject();
-            Object gamesLost = os.readObject();
-            Object board = os.readObject();
-            Object firstClick = os.readObject();
-            Object difficulty = os.readObject();
-            Object scale = os.readObject();
-
-            GameManager.lifetimeWins = (int) gamesWon;
-            GameManager.lifetimeLosses = (int) gamesLost;
-            this.board = (Board) board;
-            this.firstClick = (boolean) firstClick;
-            this.difficulty = (Difficulty) difficulty;
-            setScale((int) scale);
-
+        stopReplay();
+        stopSearch();
+        try {
+            saveWriter.awaitIdle();
+            //Read before anything is closed, so a missing or unreadable save leaves the game as it is
+            SaveFile.Snapshot save = SaveFile.read(Paths.get(SAVE_FILE));
+            journal.close();
+            restore(save);
+            startJournal(save.getJournalSequence());
+            attachListeners();
+            savedSequence = save.getJournalSequence();
             if (loadGUI) {
-                gui = new GUI(this.board, this);
+                gui = new GUI(engine.getBoard(), this);
             } else {
-                gui.setBoard(this.board);
+                gui.setBoard(engine.getBoard());
             }
         } catch (IOException e) {
             e.printStackTrace();
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
     /**
-     * Saves the current session
+     * Rebuilds the game from the save file and the journal: the moves journaled since the save are replayed on the
+     * saved board. With no save file, the game is rebuilt from the journal alone or a new game is started.
+     * Only done at startup, to get back what a crash lost, a Load goes back to the save itself (see loadSave)
+     *
+     * @throws IOException if the save file or journal can not be read
      */
-    public void save() {
-        try (FileOutputStream fs = new FileOutputStream("game.data")) {
-            ObjectOutputStream os = new ObjectOutputStream(fs);
-            os.writeObject(lifetimeWins);
-            os.writeObject(lifetimeLosses);
-            os.writeObject(board);
-            os.writeObject(firstClick);
-            os.writeObject(difficulty);
-            os.writeObject(scale);
-            os.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+    private void recover() throws IOException {
+        long sequence = 0;
+        boolean hasSave = checkForSave();
+        if (hasSave) {
+            SaveFile.Snapshot save = SaveFile.read(Paths.get(SAVE_FILE));
+            restore(save);
+            sequence = save.getJournalSequence();
+        } else {
+            engine = new GameEngine(Difficulty.BEGINNER);
+        }
+        long saved = sequence;
+
+        MoveJournal.Contents contents = MoveJournal.read(Paths.get(JOURNAL_FILE));
+        if (contents != null && contents.getBase() <= sequence && sequence <= contents.getEnd()) {
+            for (MoveJournal.Entry entry : contents.getEntries()) {
+                if (entry.getSequence() < sequence) {
+                    continue;
+                }
+                if (!replay(entry)) {
+                    System.err.println("Journal entry " + entry.getSequence() + " does not match the game, " +
+                            "recovered up to it");
+                    break;
+                }
+                sequence++;
+            }
+        }
+
+        startJournal(sequence);
+        if (!hasSave && sequence == 0) {
+            journal.recordNewGame();
+        }
+        if (engine.getState() != GameEngine.State.PLAYING) {
+            //The game ended just before the crash, before the next game was journaled
+            engine.newGame();
+        }
+        attachListeners();
+        savedSequence = saved;
+        if (journal.getSequence() != saved) {
+            save();
         }
     }
 
+    /**
+     * Replaces the engine with one playing the saved game, and restores the saved stats and scale
+     *
+     * @param save SaveFile.Snapshot read from the save file
+     */
+    private void restore(SaveFile.Snapshot save) {
+        lifetimeWins.set(save.getLifetimeWins());
+        lifetimeLosses.set(save.getLifetimeLosses());
+        engine = new GameEngine(save.getBoard(), save.isFirstClick(), save.getDifficulty(), new SplittableRandom(),
+                save.getSeed());
+        engine.setNoGuess(save.isNoGuess());
+        setScale(save.getScale());
+    }
+
+    /**
+     * Starts recording the engine's games, listens to it and gives it the board pool. Called once the journal has
+     * been attached, so the journal hears of every move first
+     */
+    private void attachListeners() {
+        startRecording();
+        engine.addListener(this);
+        engine.setPool(boardPool);
+    }
+
+    /**
+     * Replays one journal entry on the engine
+     *
+     * @param entry MoveJournal.Entry to replay
+     *
+     * @return boolean whether the entry replayed as it was journaled
+     */
+    private boolean replay(MoveJournal.Entry entry) {
+        if (entry.isNewGame()) {
+            Board board = engine.getBoard();
+            if (entry.getDifficulty() == Difficulty.CUSTOM) {
+                if (engine.getDifficulty() != Difficulty.CUSTOM || board.getBoardX() != entry.getX()
+                        || board.getBoardY() != entry.getY() || board.getNumberOfMines() != entry.getNumberOfMines()) {
+                    try {
+                        engine.setCustomSize(entry.getX(), entry.getY(), entry.getNumberOfMines());
+                    } catch (IllegalArgumentException e) {
+                        return false;
+                    }
+                }
+            } else if (engine.getDifficulty() != entry.getDifficulty()) {
+                engine.setDifficulty(entry.getDifficulty());
+            }
+            engine.setNoGuess(entry.isNoGuess());
+            engine.newGame(entry.getSeed());
+            return board.getBoardX() == entry.getX() && board.getBoardY() == entry.getY()
+                    && board.getNumberOfMines() == entry.getNumberOfMines();
+        }
+
+        MoveResult result;
+        switch (entry.getMove()) {
+            case REVEAL:
+                result = engine.reveal(entry.getX(), entry.getY());
+                break;
+            case CHORD:
+                result = engine.chord(entry.getX(), entry.getY());
+                break;
+            default:
+                result = engine.toggleFlag(entry.getX(), entry.getY());
+                break;
+        }
+        if (result.getOutcome() == MoveResult.Outcome.WIN) {
+            lifetimeWins.incrementAndGet();
+        } else if (result.getOutcome() == MoveResult.Outcome.LOSE) {
+            lifetimeLosses.incrementAndGet();
+        }
+        return result.getOutcome() == entry.getOutcome();
+    }
+
+    /**
+     * Starts recording the engine's games, every game won or lost is added to the replay file in the background.
+     * Added after the journal and before the GameManager, so the last move of a game is recorded before the next game
+     * starts
+     */
+    private void startRecording() {
+        new Replay.Recorder(replay -> {
+            lastReplay = replay;
+            replayWriter.append(replay);
+        }).attach(engine);
+    }
+
+    /**
+     * Returns the last game won or lost, from this session or the replay file
+     *
+     * @return Replay of the last finished game, null if there is none
+     */
+    private Replay getLastReplay() {
+        if (lastReplay == null) {
+            try {
+                lastReplay = Replay.readLast(Paths.get(REPLAY_FILE));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return lastReplay;
+    }
+
+    /**
+     * Plays the last finished game back in the GUI. The current game is kept and shown again once the replay ends
+     *
+     * @param speed int of how many times faster than recorded to play, 1 to 100
+     */
+    public void watchReplay(int speed) {
+        Replay replay = getLastReplay();
+        if (replay == null) {
+            gui.showReplayEnd("There are no finished games to replay");
+            return;
+        }
+        stopReplay();
+        stopSearch();
+        playback = new ReplayEngine.Playback(replay, speed, new GameListener() {
+            @Override
+            public void moveMade(MoveResult result) {
+                gui.updateGUI(result.getChanges());
+            }
+
+            @Override
+            public void boardReset() {
+                gui.resetBoard();
+            }
+        }, this::replayFinished);
+        gui.setBoard(playback.getEngine().getBoard());
+        gui.resetBoard();
+        playback.start();
+    }
+
+    /**
+     * Called when the replay has played its last move, reports whether it played out as recorded
+     */
+    private void replayFinished() {
+        int mismatch = playback.getMismatch();
+        gui.showReplayEnd(mismatch == ReplayEngine.MATCHED ? "Replay finished" :
+                "Replay finished, move " + (mismatch + 1) + " did not play out as recorded");
+        stopReplay();
+    }
+
+    /**
+     * Stops any replay being played and shows the current game again
+     */
+    public void stopReplay() {
+        if (playback == null) {
+            return;
+        }
+        playback.stop();
+        playback = null;
+        gui.setBoard(engine.getBoard());
+        gui.resetBoard();
+    }
+
+    /**
+     * Returns whether a replay is being played in the GUI
+     *
+     * @return boolean whether a replay is playing
+     */
+    public boolean isReplaying() {
+        return playback != null;
+    }
+
+    /**
+     * Opens the journal and starts journaling the engine's moves
+     *
+     * @param sequence long sequence number of the next journal entry
+     *
+     * @throws IOException if the journal can not be opened
+     */
+    private void startJournal(long sequence) throws IOException {
+        journal = new MoveJournal(Paths.get(JOURNAL_FILE), sequence);
+        journal.attach(engine);
+    }
+
+    /**
+     * Saves the current session in the background, the board is copied so play can carry on during the write.
+     * Once the save is on disk the journal entries it includes are dropped
+     */
+    public void save() {
+        MoveJournal current = journal;
+        long sequence = current.getSequence();
+        savedSequence = sequence;
+        saveWriter.save(snapshot(sequence), () -> current.compact(sequence));
+    }
+
+    /**
+     * Takes a copy of everything that goes in the save file
+     *
+     * @param sequence long sequence number of the first journal entry not included
+     *
+     * @return SaveFile.Snapshot of the current session
+     */
+    private SaveFile.Snapshot snapshot(long sequence) {
+        return new SaveFile.Snapshot(lifetimeWins.get(), lifetimeLosses.get(), engine.getBoard().copy(), engine.isFirstClick(),
+                engine.getDifficulty(), scale, engine.getSeed(), sequence, engine.isNoGuess());
+    }
+
     /**
      * Returns the BoardView scale
      *
@@ -207,7 +583,7 @@ public class GameManager implements Serializable {
      * Called when the user wins to reset the game and update scores
      */
     public void gameWin() {
-        lifetimeWins++;
+        lifetimeWins.incrementAndGet();
         sessionWins++;
         gui.showWin();
         newGame();
@@ -217,20 +593,17 @@ public class GameManager implements Serializable {
      * Called when the user loses to reset the game and update scores
      */
     public void gameLose() {
-        lifetimeLosses++;
+        lifetimeLosses.incrementAndGet();
         sessionLosses++;
         gui.showLoss();
         newGame();
     }
 
     /**
-     * Resets the game and updates the GUI
+     * Resets the game, the GUI is updated through boardReset()
      */
     private void newGame() {
-        firstClick = true;
-        board.generateNewBoard();
-        gui.updateGUI();
-        gui.pack();
+        engine.newGame();
     }
 
     /**
@@ -243,10 +616,18 @@ public class GameManager implements Serializable {
     }
 
     /**
-     * Called when the game closes
+     * Called when the game closes, waits for the save in progress and the final save before exiting
      */
     public void exitGame() {
-        save();
+        try {
+            MoveJournal current = journal;
+            long sequence = current.getSequence();
+            saveWriter.close(snapshot(sequence), () -> current.compact(sequence));
+            current.close();
+            replayWriter.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         System.exit(0);
     }
 
@@ -274,25 +655,89 @@ public class GameManager implements Serializable {
      * @return Difficulty enum of the difficulty field
      */
     public Difficulty getDifficulty() {
-        return difficulty;
+        return engine.getDifficulty();
     }
 
     /**
-     * Mutator of the difficulty field
+     * Mutator of the difficulty field, CUSTOM boards are set with setCustomDifficulty
      *
      * @param d Difficulty to set to
      */
     public void setDifficulty(Difficulty d) {
-        if (!(difficulty == d) && gui.confirmDifficulty(d)) {
-            difficulty = d;
-            board.setBoardDifficulty(difficulty);
-            gui.updateGUI();
-            gui.pack();
+        if (d != Difficulty.CUSTOM && !(engine.getDifficulty() == d) && gui.confirmDifficulty(d)) {
+            engine.setDifficulty(d);
         }
     }
 
     /**
-     * Enums for the default difficulty settings. CUSTOM has yet to be implemented.
+     * Changes to a CUSTOM board of the given size, after the user confirms
+     *
+     * @param boardX        int of the width of the board
+     * @param boardY        int of the height of the board
+     * @param numberOfMines int of the number of mines
+     *
+     * @throws IllegalArgumentException if the size is not valid (see Board.checkSize)
+     */
+    public void setCustomDifficulty(int boardX, int boardY, int numberOfMines) {
+        Board.checkSize(boardX, boardY, numberOfMines);
+        Board board = engine.getBoard();
+        if (engine.getDifficulty() == Difficulty.CUSTOM && board.getBoardX() == boardX && board.getBoardY() == boardY
+                && board.getNumberOfMines() == numberOfMines) {
+            return;
+        }
+        if (gui.confirmDifficulty(Difficulty.CUSTOM)) {
+            engine.setCustomSize(boardX, boardY, numberOfMines);
+        }
+    }
+
+    /**
+     * Returns whether boards are generated to need no guessing
+     *
+     * @return boolean whether no-guess mode is on
+     */
+    public boolean isNoGuess() {
+        return engine.isNoGuess();
+    }
+
+    /**
+     * Turns no-guess mode on or off. A game that has not had its first click yet is restarted, so its journal entry
+     * and replay record the new mode, while a game under way keeps its board. The game is saved so the mode is kept
+     *
+     * @param noGuess boolean whether boards should need no guessing
+     */
+    public void setNoGuess(boolean noGuess) {
+        if (noGuess == engine.isNoGuess()) {
+            return;
+        }
+        engine.setNoGuess(noGuess);
+        if (engine.isFirstClick()) {
+            engine.newGame();
+        }
+        save();
+    }
+
+    /**
+     * Returns the number of boards the pool keeps ready
+     *
+     * @return int of the pool size
+     */
+    public int getPoolSize() {
+        return boardPool.getCapacity();
+    }
+
+    /**
+     * Sets the number of boards the pool keeps ready for new games (see BoardPool)
+     *
+     * @param size int of the number of boards, 0 to generate every board on its first click
+     *
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public void setPoolSize(int size) {
+        boardPool.setCapacity(size);
+    }
+
+    /**
+     * Enums for the default difficulty settings. CUSTOM boards have their own size, see setCustomDifficulty
      */
     public enum Difficulty {
         BEGINNER, MEDIUM, EXPERT, CUSTOM
@@ -0,0 +1,487 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>The <b>GameServer</b> hosts many games at once in one JVM. Every connection gets its own <b>GameEngine</b> and is
+ * served by its own thread, a virtual thread where the JVM has them (Java 21 and later) and a small platform thread
+ * otherwise.</p>
+ * <p>A session can also join a room, where every session in it plays one <b>SharedBoard</b> of the server's
+ * difficulty together, until it starts a game of its own again. Revealing a mine there is a loss for that session
+ * only, the board plays on. Once a room's board is won, the next session to join the room starts a new one.</p>
+ * <p>Requests and responses are fixed size and big endian. A client sends a request and reads its response before
+ * sending the next one.</p>
+ * <pre>
+ * request  (9 bytes)  byte op (1 reveal, 2 flag, 3 chord, 4 state, 5 new game, 6 join room), int x, int y
+ *                     new game takes the difficulty (ordinal of GameManager.Difficulty, not CUSTOM) as x
+ *                     join room takes the room (0 to 1023) as x, its response describes the safe cell in the
+ *                     middle of the board
+ * response (16 bytes) byte status (0 ok, 1 error), byte outcome (ordinal of MoveResult.Outcome),
+ *                     byte state (ordinal of GameEngine.State), byte cell at x, y (0-8 revealed number,
+ *                     9 unrevealed, 10 flagged, 11 revealed mine), int cells changed, int mines left,
+ *                     int safe cells left
+ * </pre>
+ * <p>Usage: java GameServer [port] [difficulty]</p>
+ */
+public class GameServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 7357;
+    public static final int REQUEST_BYTES = 9;
+    public static final int RESPONSE_BYTES = 16;
+
+    public static final byte OP_REVEAL = 1;
+    public static final byte OP_FLAG = 2;
+    public static final byte OP_CHORD = 3;
+    public static final byte OP_STATE = 4;
+    public static final byte OP_NEW_GAME = 5;
+    public static final byte OP_JOIN_ROOM = 6;
+
+    public static final int ROOMS = 1024;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+
+    public static final byte CELL_UNREVEALED = 9;
+    public static final byte CELL_FLAGGED = 10;
+    public static final byte CELL_MINE = 11;
+
+    /**
+     * Stack size of the platform threads used when virtual threads are not available, sessions only need a few frames
+     */
+    private static final long PLATFORM_STACK_BYTES = 256 * 1024;
+    /**
+     * Length of the queue of connections waiting to be accepted
+     */
+    private static final int BACKLOG = 4096;
+
+    private final ServerSocket serverSocket;
+    private final GameManager.Difficulty difficulty;
+    private final ExecutorService sessions;
+    private final Thread acceptThread;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<Integer, SharedBoard> rooms = new ConcurrentHashMap<>();
+    private final AtomicInteger openSessions = new AtomicInteger();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder wins = new LongAdder();
+    private final LongAdder losses = new LongAdder();
+
+    /**
+     * Constructor for the GameServer, binds the port and starts accepting connections
+     *
+     * @param port       int of the port to listen on, 0 for any free port
+     * @param difficulty Difficulty enum of the first game of every session
+     *
+     * @throws IOException if the port can not be bound
+     */
+    public GameServer(int port, GameManager.Difficulty difficulty) throws IOException {
+        if (difficulty == GameManager.Difficulty.CUSTOM) {
+            throw new IllegalArgumentException("Sessions can not start on a CUSTOM board");
+        }
+        this.difficulty = difficulty;
+        serverSocket = new ServerSocket(port, BACKLOG);
+        sessions = newSessionExecutor();
+        acceptThread = new Thread(this::acceptConnections, "GameServer accept");
+        acceptThread.start();
+    }
+
+    /**
+     * Main method to run a server from the command line, printing its totals every 5 seconds
+     *
+     * @param args port and difficulty, both optional
+     *
+     * @throws Exception if the server can not be started
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        GameManager.Difficulty d = args.length > 1 ? GameManager.Difficulty.valueOf(args[1].toUpperCase())
+                : GameManager.Difficulty.EXPERT;
+        GameServer server = new GameServer(port, d);
+        System.out.println("Serving " + d.name() + " games on port " + server.getPort() + " with "
+                + (hasVirtualThreads() ? "virtual" : "platform") + " threads");
+        long lastMoves = 0;
+        while (true) {
+            Thread.sleep(5000);
+            long total = server.getMoves();
+            System.out.printf("%d sessions, %d moves/sec, %d wins, %d losses%n", server.getOpenSessions(),
+                    (total - lastMoves) / 5, server.wins.sum(), server.losses.sum());
+            lastMoves = total;
+        }
+    }
+
+    /**
+     * Returns whether this JVM has virtual threads
+     *
+     * @return boolean whether sessions are served on virtual threads
+     */
+    public static boolean hasVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates the executor that runs each session on its own thread. Virtual threads are looked up by reflection so
+     * the game still builds and runs on Java versions without them
+     *
+     * @return ExecutorService starting a new thread for every session
+     */
+    private static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(null, task, "GameServer session " + count.incrementAndGet(),
+                        PLATFORM_STACK_BYTES);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Accessor for the port the server is listening on
+     *
+     * @return int of the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of sessions currently connected
+     *
+     * @return int of the open sessions
+     */
+    public int getOpenSessions() {
+        return openSessions.get();
+    }
+
+    /**
+     * Returns the number of requests served across every session
+     *
+     * @return long of the moves
+     */
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    /**
+     * Returns the board being played in a room, starting a new one if the room is empty or its board has been won
+     *
+     * @param room int of the room, 0 to ROOMS - 1
+     *
+     * @return SharedBoard of the room
+     */
+    private SharedBoard room(int room) {
+        return rooms.compute(room, (key, board) -> {
+            if (board != null && !board.isWon()) {
+                return board;
+            }
+            Board size = new Board(difficulty);
+            return new SharedBoard(size.getBoardX(), size.getBoardY(), size.getNumberOfMines(),
+                    ThreadLocalRandom.current().nextLong(), size.getBoardX() / 2, size.getBoardY() / 2);
+        });
+    }
+
+    /**
+     * Stops accepting connections and closes every session
+     *
+     * @throws IOException if the server socket can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sessions.shutdownNow();
+        for (Socket socket : sockets) {
+            //Closing the socket ends a session blocked reading it
+            socket.close();
+        }
+        try {
+            acceptThread.join();
+            sessions.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Accepts connections until the server socket is closed, starting a session for each
+     */
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                openSessions.incrementAndGet();
+                sockets.add(socket);
+                sessions.execute(new Session(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * A <b>Session</b> plays one connection's games on its own engine, or on a room's shared board, until the
+     * connection closes
+     */
+    private class Session implements Runnable {
+
+        private final Socket socket;
+        private final ByteBuffer response = ByteBuffer.allocate(RESPONSE_BYTES);
+        private GameEngine engine;
+        /**
+         * The session's player on a room's shared board, null while it plays on its own engine
+         */
+        private SharedBoard.Player player;
+
+        /**
+         * Constructor for the Session
+         *
+         * @param socket Socket of the connection
+         */
+        Session(Socket socket) {
+            this.socket = socket;
+        }
+
+        /**
+         * Serves requests until the client disconnects or sends something that is not a request
+         */
+        @Override
+        public void run() {
+            engine = new GameEngine(difficulty, new SplittableRandom());
+            try (Socket s = socket) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                OutputStream out = new BufferedOutputStream(s.getOutputStream(), RESPONSE_BYTES);
+                while (true) {
+                    int op = in.read();
+                    if (op < 0) {
+                        break;
+                    }
+                    int x = in.readInt();
+                    int y = in.readInt();
+                    handle(op, x, y);
+                    out.write(response.array());
+                    out.flush();
+                    moves.increment();
+                }
+            } catch (EOFException e) {
+                //The client disconnected part way through a request
+            } catch (IOException e) {
+                //The connection was reset or the server is closing
+            } finally {
+                sockets.remove(socket);
+                openSessions.decrementAndGet();
+            }
+        }
+
+        /**
+         * Carries out one request and fills in the response
+         *
+         * @param op int of the operation
+         * @param x  int x position, or the difficulty of a new game
+         * @param y  int y position
+         */
+        private void handle(int op, int x, int y) {
+            response.clear();
+            if (op == OP_JOIN_ROOM) {
+                if (x < 0 || x >= ROOMS) {
+                    error();
+                    return;
+                }
+                player = room(x).join();
+                SharedBoard shared = player.getBoard();
+                writeResponse(shared, MoveResult.Outcome.IGNORED, shared.getBoardX() / 2, shared.getBoardY() / 2, 0);
+                return;
+            }
+            if (player != null && op != OP_NEW_GAME) {
+                handleShared(op, x, y);
+                return;
+            }
+            Board board = engine.getBoard();
+            if (op == OP_NEW_GAME) {
+                player = null;
+                GameManager.Difficulty[] difficulties = GameManager.Difficulty.values();
+                if (x < 0 || x >= difficulties.length || difficulties[x] == GameManager.Difficulty.CUSTOM) {
+                    error();
+                    return;
+                }
+                if (engine.getDifficulty() != difficulties[x]) {
+                    engine.setDifficulty(difficulties[x]);
+                } else {
+                    engine.newGame();
+                }
+                writeResponse(MoveResult.Outcome.IGNORED, 0, 0, 0);
+                return;
+            }
+            if (x < 0 || x >= board.getBoardX() || y < 0 || y >= board.getBoardY()) {
+                error();
+                return;
+            }
+
+            MoveResult result;
+            switch (op) {
+                case OP_REVEAL:
+                    result = engine.reveal(x, y);
+                    break;
+                case OP_FLAG:
+                    result = engine.toggleFlag(x, y);
+                    break;
+                case OP_CHORD:
+                    result = engine.chord(x, y);
+                    break;
+                case OP_STATE:
+                    writeResponse(MoveResult.Outcome.IGNORED, x, y, 0);
+                    return;
+                default:
+                    error();
+                    return;
+            }
+            count(result);
+            writeResponse(result.getOutcome(), x, y, result.getChanges().size());
+        }
+
+        /**
+         * Carries out one request on the room's shared board and fills in the response
+         *
+         * @param op int of the operation
+         * @param x  int x position
+         * @param y  int y position
+         */
+        private void handleShared(int op, int x, int y) {
+            SharedBoard shared = player.getBoard();
+            if (x < 0 || x >= shared.getBoardX() || y < 0 || y >= shared.getBoardY()) {
+                error();
+                return;
+            }
+
+            MoveResult result;
+            switch (op) {
+                case OP_REVEAL:
+                    result = player.reveal(x, y);
+                    break;
+                case OP_FLAG:
+                    result = player.toggleFlag(x, y);
+                    break;
+                case OP_CHORD:
+                    result = player.chord(x, y);
+                    break;
+                case OP_STATE:
+                    writeResponse(shared, MoveResult.Outcome.IGNORED, x, y, 0);
+                    return;
+                default:
+                    error();
+                    return;
+            }
+            count(result);
+            writeResponse(shared, result.getOutcome(), x, y, result.getChanges().size());
+        }
+
+        /**
+         * Adds a move that won or lost to the server's totals
+         *
+         * @param result MoveResult of the move
+         */
+        private void count(MoveResult result) {
+            if (result.getOutcome() == MoveResult.Outcome.WIN) {
+                wins.increment();
+            } else if (result.getOutcome() == MoveResult.Outcome.LOSE) {
+                losses.increment();
+            }
+        }
+
+        /**
+         * Fills in a successful response
+         *
+         * @param outcome Outcome enum of the move
+         * @param x       x position of the cell to describe
+         * @param y       y position of the cell to describe
+         * @param changed int of the number of cells the move changed
+         */
+        private void writeResponse(MoveResult.Outcome outcome, int x, int y, int changed) {
+            Board board = engine.getBoard();
+            response.put(STATUS_OK);
+            response.put((byte) outcome.ordinal());
+            response.put((byte) engine.getState().ordinal());
+            response.put(cell(board, x, y));
+            response.putInt(changed);
+            response.putInt(board.minesLeft());
+            response.putInt(board.nonMinesLeft());
+        }
+
+        /**
+         * Fills in a successful response for a move on a shared board. The board is PLAYING until it is won, a mine
+         * revealed on it does not end it
+         *
+         * @param shared  SharedBoard the move was made on
+         * @param outcome Outcome enum of the move
+         * @param x       x position of the cell to describe
+         * @param y       y position of the cell to describe
+         * @param changed int of the number of cells the move changed
+         */
+        private void writeResponse(SharedBoard shared, MoveResult.Outcome outcome, int x, int y, int changed) {
+            GameEngine.State state = shared.isWon() ? GameEngine.State.WON : GameEngine.State.PLAYING;
+            byte cell;
+            if (shared.isRevealed(x, y)) {
+                cell = shared.isMine(x, y) ? CELL_MINE : (byte) shared.getAdjacentMines(x, y);
+            } else {
+                cell = shared.isFlagged(x, y) ? CELL_FLAGGED : CELL_UNREVEALED;
+            }
+            response.put(STATUS_OK);
+            response.put((byte) outcome.ordinal());
+            response.put((byte) state.ordinal());
+            response.put(cell);
+            response.putInt(changed);
+            response.putInt(shared.minesLeft());
+            response.putInt(shared.nonMinesLeft());
+        }
+
+        /**
+         * Fills in an error response, for a request the session could not carry out
+         */
+        private void error() {
+            response.put(STATUS_ERROR);
+            while (response.hasRemaining()) {
+                response.put((byte) 0);
+            }
+        }
+
+        /**
+         * Returns what the player can see of a cell
+         *
+         * @param board Board the cell is on
+         * @param x     x position of the cell
+         * @param y     y position of the cell
+         *
+         * @return byte of the cell code, see the protocol
+         */
+        private byte cell(Board board, int x, int y) {
+            if (board.isRevealed(x, y)) {
+                return board.isMine(x, y) ? CELL_MINE : (byte) board.getAdjacentMines(x, y);
+            }
+            return board.isFlagged(x, y) ? CELL_FLAGGED : CELL_UNREVEALED;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>The <b>LoadGenerator</b> holds many sessions open on a <b>GameServer</b> and plays random moves on all of them,
+ * then reports the sessions held, moves per second and the latency of a move.</p>
+ * <p>Each worker thread owns a share of the sessions and sends one request to each in turn, waiting for its response,
+ * so a few threads can keep thousands of sessions busy. A session whose game ends starts a new one.</p>
+ * <p>With players per room set, the sessions join the server's rooms that many at a time and play shared boards
+ * together instead of games of their own, to load the server with players contending for the same cells.</p>
+ * <p>Usage: java LoadGenerator [host, or "local" to start a server in this JVM] [port] [sessions] [threads] [seconds]
+ * [difficulty] [players per room, 0 for a game each]</p>
+ */
+public class LoadGenerator {
+
+    private final String host;
+    private final int port;
+    private final GameManager.Difficulty difficulty;
+    private final int playersPerRoom;
+    private final int boardX;
+    private final int boardY;
+    private final Metrics.Metric latency = Metrics.register("load.move", "ns");
+    private final AtomicInteger connected = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Constructor for the LoadGenerator
+     *
+     * @param host       String host name of the server
+     * @param port       int of the port of the server
+     * @param difficulty     Difficulty enum to play
+     * @param playersPerRoom int of the number of sessions sharing each room's board, 0 for a game each
+     */
+    public LoadGenerator(String host, int port, GameManager.Difficulty difficulty, int playersPerRoom) {
+        this.host = host;
+        this.port = port;
+        this.difficulty = difficulty;
+        this.playersPerRoom = playersPerRoom;
+        Board board = new Board(difficulty);
+        boardX = board.getBoardX();
+        boardY = board.getBoardY();
+    }
+
+    /**
+     * Main method to run a load test from the command line
+     *
+     * @param args host, port, sessions, threads, seconds, difficulty and players per room, all optional
+     *
+     * @throws Exception if the test can not be run
+     */
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "local";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+        int sessions = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 30;
+        GameManager.Difficulty d = args.length > 5 ? GameManager.Difficulty.valueOf(args[5].toUpperCase())
+                : GameManager.Difficulty.EXPERT;
+        int playersPerRoom = args.length > 6 ? Integer.parseInt(args[6]) : 0;
+
+        GameServer server = null;
+        if (host.equals("local")) {
+            server = new GameServer(0, d);
+            host = "localhost";
+            port = server.getPort();
+        }
+        System.out.println("Playing " + d.name() + " on " + sessions + " sessions with " + threads + " threads for "
+                + seconds + " s against " + host + ":" + port
+                + (playersPerRoom > 0 ? ", " + playersPerRoom + " players per room" : ""));
+        LoadGenerator generator = new LoadGenerator(host, port, d, playersPerRoom);
+        System.out.println(generator.run(sessions, threads, seconds));
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    /**
+     * Connects the sessions, plays on them for the given time and closes them
+     *
+     * @param sessions int of the number of sessions to hold open
+     * @param threads  int of the number of worker threads
+     * @param seconds  int of how long to play for once every session is connected
+     *
+     * @return String of the report
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for the workers
+     */
+    public String run(int sessions, int threads, int seconds) throws InterruptedException {
+        Metrics.setEnabled(true);
+        List<Worker> workers = new ArrayList<>();
+        int first = 0;
+        for (int i = 0; i < threads; i++) {
+            int share = sessions / threads + (i < sessions % threads ? 1 : 0);
+            workers.add(new Worker(first, share, new SplittableRandom(i)));
+            first += share;
+        }
+        for (Worker worker : workers) {
+            worker.connect();
+        }
+        int held = connected.get();
+
+        Metrics.reset();
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1000000000L;
+        List<Thread> running = new ArrayList<>();
+        for (int i = 0; i < workers.size(); i++) {
+            Worker worker = workers.get(i);
+            String name = "LoadGenerator " + i;
+            Thread thread = new Thread(() -> worker.play(deadline), name);
+            thread.start();
+            running.add(thread);
+        }
+        for (Thread thread : running) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        for (Worker worker : workers) {
+            worker.close();
+        }
+
+        return String.format("%d of %d sessions held (%d still open at the end), %d moves in %.1f s, "
+                        + "%.0f moves/sec, %d errors%nlatency us: mean %.1f, p50 %.1f, p99 %.1f, max %.1f", held,
+                sessions, connected.get(), moves.sum(), elapsed / 1e9, moves.sum() / (elapsed / 1e9), errors.sum(),
+                latency.getMean() / 1000, latency.getPercentile(50) / 1000.0, latency.getPercentile(99) / 1000.0,
+                latency.getMax() / 1000.0) + (failed.get() > 0 ? "\n" + failed.get() + " sessions failed" : "");
+    }
+
+    /**
+     * A <b>Worker</b> plays on its share of the sessions, one request at a time to each in turn
+     */
+    private class Worker {
+
+        private final int first;
+        private final int count;
+        private final SplittableRandom random;
+        private final List<Client> clients = new ArrayList<>();
+
+        /**
+         * Constructor for the Worker
+         *
+         * @param first  int index of the worker's first session among all of them, which decides the rooms joined
+         * @param count  int of the number of sessions to open
+         * @param random SplittableRandom to choose the moves with
+         */
+        Worker(int first, int count, SplittableRandom random) {
+            this.first = first;
+            this.count = count;
+            this.random = random;
+        }
+
+        /**
+         * Opens the worker's sessions and starts a game of the chosen difficulty on each, or joins its room
+         */
+        void connect() {
+            for (int i = 0; i < count; i++) {
+                try {
+                    Client client = new Client(playersPerRoom > 0 ? (first + i) / playersPerRoom % GameServer.ROOMS
+                            : -1);
+                    client.startGame();
+                    clients.add(client);
+                    connected.incrementAndGet();
+                } catch (IOException e) {
+                    failed.incrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * Plays random moves on every session until the deadline. A session that fails is dropped
+         *
+         * @param deadline long of the System.nanoTime() to stop at
+         */
+        void play(long deadline) {
+            while (System.nanoTime() < deadline && !clients.isEmpty()) {
+                for (int i = clients.size() - 1; i >= 0; i--) {
+                    Client client = clients.get(i);
+                    try {
+                        byte op = random.nextInt(10) == 0 ? GameServer.OP_FLAG : GameServer.OP_REVEAL;
+                        long start = System.nanoTime();
+                        client.send(op, random.nextInt(boardX), random.nextInt(boardY));
+                        latency.recordSince(start);
+                        moves.increment();
+                        if (client.isGameOver()) {
+                            client.startGame();
+                        }
+                    } catch (IOException e) {
+                        clients.remove(i);
+                        client.close();
+                        connected.decrementAndGet();
+                        failed.incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Closes every session
+         */
+        void close() {
+            for (Client client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * A <b>Client</b> is one session's connection to the server
+     */
+    private class Client {
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final byte[] response = new byte[GameServer.RESPONSE_BYTES];
+        private final int room;
+
+        /**
+         * Constructor for the Client, connects to the server
+         *
+         * @param room int of the room to play in, -1 for a game of its own
+         *
+         * @throws IOException if the connection fails
+         */
+        Client(int room) throws IOException {
+            this.room = room;
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), GameServer.RESPONSE_BYTES));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), GameServer.REQUEST_BYTES));
+        }
+
+        /**
+         * Sends a request and waits for its response
+         *
+         * @param op byte of the operation
+         * @param x  int x position, or the difficulty of a new game
+         * @param y  int y position
+         *
+         * @throws IOException if the connection fails
+         */
+        void send(byte op, int x, int y) throws IOException {
+            out.writeByte(op);
+            out.writeInt(x);
+            out.writeInt(y);
+            out.flush();
+            in.readFully(response);
+            if (response[0] != GameServer.STATUS_OK) {
+                errors.increment();
+            }
+        }
+
+        /**
+         * Starts a new game of the chosen difficulty, or joins the client's room, which starts a new shared board if
+         * its last one has been won
+         *
+         * @throws IOException if the connection fails
+         */
+        void startGame() throws IOException {
+            if (room >= 0) {
+                send(GameServer.OP_JOIN_ROOM, room, 0);
+            } else {
+                send(GameServer.OP_NEW_GAME, difficulty.ordinal(), 0);
+            }
+        }
+
+        /**
+         * Returns whether the last response ended the game
+         *
+         * @return boolean whether the game is won or lost
+         */
+        boolean isGameOver() {
+            return response[2] != GameEngine.State.PLAYING.ordinal();
+        }
+
+        /**
+         * Closes the connection
+         */
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //Already closed
+            }
+        }
+    }
+}
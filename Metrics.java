@@ -0,0 +1,315 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p><b>Metrics</b> is an in-process registry of how long the game's hot paths take and how much work they do.</p>
+ * <p>Every <b>Metric</b> keeps a count, total, maximum and a histogram with about 12% resolution, so percentiles can be
+ * read at any time. Recording is lock free and can be done from any thread. Each measurement is also sent to Java
+ * Flight Recorder as one of the <b>GameEvents</b> by the code that records it.</p>
+ * <p>Nothing is recorded until the registry is enabled, which the game does on startup. Headless tools such as the
+ * <b>Simulation</b> leave it disabled, so threads playing in parallel do not contend on the shared counters.</p>
+ */
+public final class Metrics {
+
+    private static final List<Metric> METRICS = Collections.synchronizedList(new ArrayList<>());
+    private static volatile boolean enabled;
+
+    public static final Metric BOARD_GENERATION = register("board.generate", "ns");
+    public static final Metric MOVE = register("move.nextTurn", "ns");
+    public static final Metric FLOOD_FILL = register("flood.duration", "ns");
+    public static final Metric FLOOD_FILL_CELLS = register("flood.cells", "cells");
+    public static final Metric NO_GUESS = register("board.noGuess", "ns");
+    public static final Metric NO_GUESS_CANDIDATES = register("board.candidates", "boards");
+    public static final Metric PAINT = register("paint.frame", "ns");
+    public static final Metric PAINT_CELLS = register("paint.cells", "cells");
+    public static final Metric SAVE = register("save.duration", "ns");
+    public static final Metric SAVE_BYTES = register("save.bytes", "bytes");
+    public static final Metric LOAD = register("load.duration", "ns");
+    public static final Metric LOAD_BYTES = register("load.bytes", "bytes");
+
+    /**
+     * Metrics only has static methods
+     */
+    private Metrics() {
+    }
+
+    /**
+     * Creates a metric and adds it to the registry
+     *
+     * @param name String name of the metric
+     * @param unit String unit of the values recorded
+     *
+     * @return Metric registered
+     */
+    public static Metric register(String name, String unit) {
+        Metric metric = new Metric(name, unit);
+        METRICS.add(metric);
+        return metric;
+    }
+
+    /**
+     * Returns whether values are being recorded
+     *
+     * @return boolean of the enabled field
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops recording values in every metric
+     *
+     * @param enabled boolean whether to record values
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Returns every registered metric
+     *
+     * @return List of the metrics in the order they were registered
+     */
+    public static List<Metric> all() {
+        synchronized (METRICS) {
+            return new ArrayList<>(METRICS);
+        }
+    }
+
+    /**
+     * Clears every registered metric
+     */
+    public static void reset() {
+        for (Metric metric : all()) {
+            metric.reset();
+        }
+    }
+
+    /**
+     * Formats every metric as a table for reading, durations are shown in microseconds
+     *
+     * @return String of the table
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-16s %6s %10s %12s %12s %12s %12s%n", "metric", "unit", "count", "mean", "p50", "p99",
+                "max"));
+        for (Metric metric : all()) {
+            boolean nanos = metric.getUnit().equals("ns");
+            double scale = nanos ? 1000 : 1;
+            sb.append(String.format("%-16s %6s %10d %12.1f %12.1f %12.1f %12.1f%n", metric.getName(),
+                    nanos ? "us" : metric.getUnit(), metric.getCount(), metric.getMean() / scale,
+                    metric.getPercentile(50) / scale, metric.getPercentile(99) / scale, metric.getMax() / scale));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes every metric to a CSV file, replacing any file already at the path
+     *
+     * @param path Path of the file
+     *
+     * @throws IOException if the file can not be written
+     */
+    public static void export(Path path) throws IOException {
+        StringBuilder sb = new StringBuilder("metric,unit,count,total,mean,p50,p90,p99,max\n");
+        for (Metric metric : all()) {
+            sb.append(metric.getName()).append(',').append(metric.getUnit()).append(',')
+                    .append(metric.getCount()).append(',').append(metric.getTotal()).append(',')
+                    .append(String.format("%.1f", metric.getMean())).append(',')
+                    .append(metric.getPercentile(50)).append(',').append(metric.getPercentile(90)).append(',')
+                    .append(metric.getPercentile(99)).append(',').append(metric.getMax()).append('\n');
+        }
+        Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * <p>A <b>Metric</b> collects the values recorded for one measurement.</p>
+     * <p>The histogram has 8 buckets for every power of two, so a percentile is within about 12% of the true value.</p>
+     */
+    public static final class Metric {
+
+        /**
+         * Number of histogram buckets for each power of two, as a power of two
+         */
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+        private final String name;
+        private final String unit;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        /**
+         * Constructor for the Metric, see Metrics.register
+         *
+         * @param name String name of the metric
+         * @param unit String unit of the values recorded
+         */
+        private Metric(String name, String unit) {
+            this.name = name;
+            this.unit = unit;
+        }
+
+        /**
+         * Adds a value to the metric, negative values are recorded as 0. Does nothing unless Metrics is enabled
+         *
+         * @param value long value to record
+         */
+        public void record(long value) {
+            if (!enabled) {
+                return;
+            }
+            value = Math.max(0, value);
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+            buckets.incrementAndGet(bucket(value));
+        }
+
+        /**
+         * Adds the time since a System.nanoTime() reading to the metric
+         *
+         * @param start long of the System.nanoTime() the measurement started at
+         */
+        public void recordSince(long start) {
+            record(System.nanoTime() - start);
+        }
+
+        /**
+         * Returns the histogram bucket of a value. Values below SUB_BUCKETS have a bucket each, larger values share a
+         * bucket with the values that have the same highest SUB_BITS + 1 bits
+         *
+         * @param value long value, at least 0
+         *
+         * @return int index of the bucket
+         */
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        /**
+         * Returns the smallest value that falls in a histogram bucket
+         *
+         * @param bucket int index of the bucket
+         *
+         * @return long of the lowest value of the bucket
+         */
+        private static long lowest(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            long sub = bucket % SUB_BUCKETS;
+            return (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+        }
+
+        /**
+         * Clears every value recorded
+         */
+        public void reset() {
+            count.reset();
+            total.reset();
+            max.reset();
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+        }
+
+        /**
+         * Accessor for the name field
+         *
+         * @return String name of the metric
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Accessor for the unit field
+         *
+         * @return String unit of the values recorded
+         */
+        public String getUnit() {
+            return unit;
+        }
+
+        /**
+         * Returns the number of values recorded
+         *
+         * @return long of the count
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Returns the sum of the values recorded
+         *
+         * @return long of the total
+         */
+        public long getTotal() {
+            return total.sum();
+        }
+
+        /**
+         * Returns the largest value recorded
+         *
+         * @return long of the maximum, 0 if nothing has been recorded
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Returns the mean of the values recorded
+         *
+         * @return double of the mean, 0 if nothing has been recorded
+         */
+        public double getMean() {
+            long n = getCount();
+            return n == 0 ? 0 : (double) getTotal() / n;
+        }
+
+        /**
+         * Returns an estimate of a percentile of the values recorded, the lowest value of the bucket it falls in
+         *
+         * @param percentile double from 0 to 100
+         *
+         * @return long of the estimate, 0 if nothing has been recorded
+         */
+        public long getPercentile(double percentile) {
+            long[] counts = new long[BUCKETS];
+            long n = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                n += counts[i];
+            }
+            long rank = (long) Math.ceil(n * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(lowest(i), getMax());
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,639 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * <p>The <b>MoveJournal</b> appends every move made with a <b>GameEngine</b> to a file, so a game can be recovered
+ * after a crash from the last save plus the moves made since, without saving the whole board after every move.</p>
+ * <p>Every entry has a sequence number. A save records the sequence number of the first entry it does not include,
+ * and once it is on disk the entries before it are dropped from the journal (see compact()), so recovery only ever
+ * replays the moves made since the last save.</p>
+ * <p>Entries are written by a background thread in batches, once 64 are waiting or 100ms after the first of them.
+ * Each batch is framed with its length and a CRC32, so a batch cut short by a crash is dropped on reading.</p>
+ * <pre>
+ *  0 int    magic "MSWJ"
+ *  4 short  version
+ *  6 short  reserved
+ *  8 long   sequence number of the first entry
+ * 16 frames of int length, int CRC32 of the entries, then the entries
+ *
+ * move entry     byte type (1 reveal, 2 flag, 3 chord), int x, int y, byte outcome (ordinal of MoveResult.Outcome)
+ * new game entry byte type (4), byte difficulty (ordinal, plus 128 for a no-guess board), int width, int height,
+ *                int mines, long seed
+ * </pre>
+ */
+public class MoveJournal implements GameListener {
+
+    static final int MAGIC = 0x4D53574A;
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int BATCH_ENTRIES = 64;
+    static final long FLUSH_MILLIS = 100;
+
+    private static final byte NEW_GAME = 4;
+    private static final int NO_GUESS = 0x80;
+    private static final int MOVE_BYTES = 10;
+    private static final int NEW_GAME_BYTES = 22;
+
+    private final Path path;
+    private final Thread thread;
+    private GameEngine engine;
+    /**
+     * Entries not yet handed to the writer thread, their count, the sequence number of the next entry, the sequence
+     * number to compact to and whether the journal is closed. Guarded by this
+     */
+    private ByteBuffer batch = ByteBuffer.allocate(BATCH_ENTRIES * NEW_GAME_BYTES);
+    private int batchEntries;
+    private long sequence;
+    private long compactTo;
+    private boolean closed;
+    /**
+     * The open journal file, the sequence numbers of its first entry and of the entry after its last, and the last
+     * compaction carried out. Only used by the writer thread once it has started
+     */
+    private FileChannel channel;
+    private long fileBase;
+    private long fileEnd;
+    private long compacted;
+
+    /**
+     * Constructor for the MoveJournal, starts the writer thread. Entries already in the file are kept if the file
+     * ends at the given sequence number (i.e. it has just been replayed), otherwise the file is started again
+     *
+     * @param path     Path of the journal file
+     * @param sequence long sequence number of the next entry
+     *
+     * @throws IOException if the file can not be opened or created
+     */
+    public MoveJournal(Path path, long sequence) throws IOException {
+        this.path = path;
+        this.sequence = sequence;
+        Contents existing = read(path);
+        if (existing != null && existing.getEnd() == sequence) {
+            channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            channel.truncate(existing.validBytes);
+            channel.position(existing.validBytes);
+            fileBase = existing.getBase();
+        } else {
+            rewrite(sequence, new byte[0]);
+        }
+        fileEnd = sequence;
+        compactTo = fileBase;
+        compacted = fileBase;
+
+        thread = new Thread(this::run, "journal-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Reads a journal file, stopping at the first batch that is cut short or does not match its checksum
+     *
+     * @param path Path of the journal file
+     *
+     * @return Contents of the journal, or null if there is no journal file or it is not one
+     *
+     * @throws IOException if the file can not be read
+     */
+    public static Contents read(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC || in.getShort() > VERSION) {
+            return null;
+        }
+        in.getShort();
+        long base = in.getLong();
+
+        List<Entry> entries = new ArrayList<>();
+        CRC32 crc = new CRC32();
+        int validBytes = in.position();
+        while (in.remaining() >= 8) {
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length <= 0 || length > in.remaining()) {
+                break;
+            }
+            crc.reset();
+            crc.update(in.array(), in.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            ByteBuffer frame = ByteBuffer.wrap(in.array(), in.position(), length).slice();
+            List<Entry> parsed = new ArrayList<>();
+            while (frame.hasRemaining()) {
+                Entry entry = Entry.read(frame, base + entries.size() + parsed.size());
+                if (entry == null) {
+                    break;
+                }
+                parsed.add(entry);
+            }
+            if (frame.hasRemaining()) {
+                break;
+            }
+            entries.addAll(parsed);
+            in.position(in.position() + length);
+            validBytes = in.position();
+        }
+        return new Contents(base, entries, validBytes);
+    }
+
+    /**
+     * Starts journaling the moves of an engine. The journal should be added before any other listener, so a move is
+     * journaled before a listener reacting to it (i.e. by starting a new game) journals anything else
+     *
+     * @param engine GameEngine to journal
+     */
+    public void attach(GameEngine engine) {
+        this.engine = engine;
+        engine.addListener(this);
+    }
+
+    /**
+     * Journals every move that changed the game
+     *
+     * @param result MoveResult of the move
+     */
+    @Override
+    public void moveMade(MoveResult result) {
+        if (result.getOutcome() == MoveResult.Outcome.IGNORED) {
+            return;
+        }
+        synchronized (this) {
+            ByteBuffer out = reserve();
+            out.put((byte) (result.getMove().ordinal() + 1));
+            out.putInt(result.getX());
+            out.putInt(result.getY());
+            out.put((byte) result.getOutcome().ordinal());
+            appended();
+        }
+    }
+
+    /**
+     * Journals the new board, so the moves after it can be replayed on the same mines
+     */
+    @Override
+    public void boardReset() {
+        recordNewGame();
+    }
+
+    /**
+     * Journals the difficulty, size and seed of the engine's current board
+     */
+    public void recordNewGame() {
+        Board board = engine.getBoard();
+        synchronized (this) {
+            ByteBuffer out = reserve();
+            out.put(NEW_GAME);
+            out.put((byte) (engine.getDifficulty().ordinal() | (engine.isNoGuess() ? NO_GUESS : 0)));
+            out.putInt(board.getBoardX());
+            out.putInt(board.getBoardY());
+            out.putInt(board.getNumberOfMines());
+            out.putLong(engine.getSeed());
+            appended();
+        }
+    }
+
+    /**
+     * Returns the sequence number the next entry will have, i.e. the number a save taken now should record
+     *
+     * @return long of the next sequence number
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Drops the entries before the given sequence number from the file, once a save that includes them is on disk
+     *
+     * @param sequence long sequence number of the first entry to keep
+     */
+    public synchronized void compact(long sequence) {
+        if (!closed && sequence > compactTo) {
+            compactTo = sequence;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Writes every waiting entry, carries out any waiting compaction and stops the writer thread
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void close() throws InterruptedException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        thread.join();
+    }
+
+    /**
+     * Makes room in the batch for one more entry. Only called while holding the lock
+     *
+     * @return ByteBuffer to write the entry to
+     */
+    private ByteBuffer reserve() {
+        if (closed) {
+            throw new IllegalStateException("MoveJournal is closed");
+        }
+        if (batch.remaining() < NEW_GAME_BYTES) {
+            ByteBuffer bigger = ByteBuffer.allocate(batch.capacity() * 2);
+            batch.flip();
+            bigger.put(batch);
+            batch = bigger;
+        }
+        return batch;
+    }
+
+    /**
+     * Counts an entry that has been written to the batch, and wakes the writer thread when it has something to do.
+     * Only called while holding the lock
+     */
+    private void appended() {
+        sequence++;
+        batchEntries++;
+        if (batchEntries == 1 || batchEntries == BATCH_ENTRIES) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Body of the writer thread, writes batches and compacts the file until the journal is closed
+     */
+    private void run() {
+        boolean done = false;
+        while (!done) {
+            byte[] entries = null;
+            int count;
+            long compact;
+            synchronized (this) {
+                try {
+                    if (batchEntries == 0 && compactTo <= compacted && !closed) {
+                        wait();
+                    }
+                    if (batchEntries > 0 && batchEntries < BATCH_ENTRIES && !closed) {
+                        wait(FLUSH_MILLIS);
+                    }
+                } catch (InterruptedException e) {
+                    closed = true;
+                }
+                count = batchEntries;
+                if (count > 0) {
+                    entries = new byte[batch.position()];
+                    batch.flip();
+                    batch.get(entries);
+                    batch.clear();
+                    batchEntries = 0;
+                }
+                compact = compactTo;
+                done = closed;
+            }
+
+            try {
+                if (entries != null) {
+                    writeFrame(entries);
+                    fileEnd += count;
+                }
+                if (compact > compacted) {
+                    compacted = compact;
+                    compactFile(compact);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Appends a batch of entries to the file as one frame and forces it to disk
+     *
+     * @param entries byte[] of the entries
+     *
+     * @throws IOException if the file can not be written
+     */
+    private void writeFrame(byte[] entries) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(entries, 0, entries.length);
+        ByteBuffer frame = ByteBuffer.allocate(8 + entries.length);
+        frame.putInt(entries.length);
+        frame.putInt((int) crc.getValue());
+        frame.put(entries);
+        frame.flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Rewrites the file without the entries before the given sequence number. Entries that are not in the file yet
+     * are not dropped, they are skipped on recovery instead
+     *
+     * @param sequence long sequence number of the first entry to keep
+     *
+     * @throws IOException if the file can not be rewritten
+     */
+    private void compactFile(long sequence) throws IOException {
+        long base = Math.min(sequence, fileEnd);
+        if (base <= fileBase) {
+            return;
+        }
+        Contents contents = read(path);
+        ByteBuffer kept = ByteBuffer.allocate(contents == null ? 0 : contents.validBytes);
+        if (contents != null) {
+            for (Entry entry : contents.getEntries()) {
+                if (entry.getSequence() >= base) {
+                    entry.write(kept);
+                }
+            }
+        }
+        byte[] entries = new byte[kept.position()];
+        kept.flip();
+        kept.get(entries);
+        channel.close();
+        rewrite(base, entries);
+    }
+
+    /**
+     * Atomically replaces the file with a new journal holding the given entries, and opens it for appending
+     *
+     * @param base    long sequence number of the first entry
+     * @param entries byte[] of the entries, may be empty
+     *
+     * @throws IOException if the file can not be written
+     */
+    private void rewrite(long base, byte[] entries) throws IOException {
+        ByteBuffer file = ByteBuffer.allocate(HEADER_BYTES + 8 + entries.length);
+        file.putInt(MAGIC);
+        file.putShort(VERSION);
+        file.putShort((short) 0);
+        file.putLong(base);
+        if (entries.length > 0) {
+            CRC32 crc = new CRC32();
+            crc.update(entries, 0, entries.length);
+            file.putInt(entries.length);
+            file.putInt((int) crc.getValue());
+            file.put(entries);
+        }
+        file.flip();
+        SaveFile.replace(path, file);
+        channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileBase = base;
+    }
+
+    /**
+     * The entries read from a journal file
+     */
+    public static final class Contents {
+
+        private final long base;
+        private final List<Entry> entries;
+        private final int validBytes;
+
+        /**
+         * Constructor for the Contents
+         *
+         * @param base       long sequence number of the first entry
+         * @param entries    List of the entries in order
+         * @param validBytes int of the length of the file up to the end of the last whole batch
+         */
+        Contents(long base, List<Entry> entries, int validBytes) {
+            this.base = base;
+            this.entries = entries;
+            this.validBytes = validBytes;
+        }
+
+        /**
+         * Accessor for the base field
+         *
+         * @return long sequence number of the first entry
+         */
+        public long getBase() {
+            return base;
+        }
+
+        /**
+         * Returns the sequence number after the last entry
+         *
+         * @return long of the sequence number the next entry would have
+         */
+        public long getEnd() {
+            return base + entries.size();
+        }
+
+        /**
+         * Accessor for the entries field
+         *
+         * @return List of the entries in order
+         */
+        public List<Entry> getEntries() {
+            return entries;
+        }
+    }
+
+    /**
+     * One journaled move, or the start of a new board
+     */
+    public static final class Entry {
+
+        private final long sequence;
+        private final MoveResult.Move move;
+        private final int x;
+        private final int y;
+        private final MoveResult.Outcome outcome;
+        private final GameManager.Difficulty difficulty;
+        private final int numberOfMines;
+        private final long seed;
+        private final boolean noGuess;
+
+        /**
+         * Constructor for the Entry, x and y are the size of the board for a new game
+         *
+         * @param sequence      long sequence number of the entry
+         * @param move          Move enum of the move, or null for a new game
+         * @param x             x position of the cell, or the width of a new board
+         * @param y             y position of the cell, or the height of a new board
+         * @param outcome       Outcome enum of the move, or null for a new game
+         * @param difficulty    Difficulty enum of a new board, or null for a move
+         * @param numberOfMines int of the mines on a new board
+         * @param seed          long seed of a new board
+         * @param noGuess       boolean whether a new board needs no guessing
+         */
+        private Entry(long sequence, MoveResult.Move move, int x, int y, MoveResult.Outcome outcome,
+                      GameManager.Difficulty difficulty, int numberOfMines, long seed, boolean noGuess) {
+            this.sequence = sequence;
+            this.move = move;
+            this.x = x;
+            this.y = y;
+            this.outcome = outcome;
+            this.difficulty = difficulty;
+            this.numberOfMines = numberOfMines;
+            this.seed = seed;
+            this.noGuess = noGuess;
+        }
+
+        /**
+         * Reads one entry
+         *
+         * @param in       ByteBuffer positioned at the entry
+         * @param sequence long sequence number of the entry
+         *
+         * @return Entry read, or null if the bytes are not an entry
+         */
+        private static Entry read(ByteBuffer in, long sequence) {
+            int type = in.get(in.position());
+            MoveResult.Move[] moves = MoveResult.Move.values();
+            if (type >= 1 && type <= moves.length && in.remaining() >= MOVE_BYTES) {
+                in.get();
+                int x = in.getInt();
+                int y = in.getInt();
+                int outcome = in.get();
+                MoveResult.Outcome[] outcomes = MoveResult.Outcome.values();
+                if (outcome < 0 || outcome >= outcomes.length) {
+                    return null;
+                }
+                return new Entry(sequence, moves[type - 1], x, y, outcomes[outcome], null, 0, 0, false);
+            }
+            if (type == NEW_GAME && in.remaining() >= NEW_GAME_BYTES) {
+                in.get();
+                int difficulty = in.get() & 0xFF;
+                boolean noGuess = (difficulty & NO_GUESS) != 0;
+                difficulty &= ~NO_GUESS;
+                int width = in.getInt();
+                int height = in.getInt();
+                int mines = in.getInt();
+                long seed = in.getLong();
+                GameManager.Difficulty[] difficulties = GameManager.Difficulty.values();
+                if (difficulty < 0 || difficulty >= difficulties.length) {
+                    return null;
+                }
+                return new Entry(sequence, null, width, height, null, difficulties[difficulty], mines, seed, noGuess);
+            }
+            return null;
+        }
+
+        /**
+         * Writes the entry in the journal format
+         *
+         * @param out ByteBuffer to write to
+         */
+        private void write(ByteBuffer out) {
+            if (isNewGame()) {
+                out.put(NEW_GAME);
+                out.put((byte) (difficulty.ordinal() | (noGuess ? NO_GUESS : 0)));
+                out.putInt(x);
+                out.putInt(y);
+                out.putInt(numberOfMines);
+                out.putLong(seed);
+            } else {
+                out.put((byte) (move.ordinal() + 1));
+                out.putInt(x);
+                out.putInt(y);
+                out.put((byte) outcome.ordinal());
+            }
+        }
+
+        /**
+         * Accessor for the sequence field
+         *
+         * @return long sequence number of the entry
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Returns whether the entry starts a new board rather than being a move
+         *
+         * @return boolean whether the entry is a new game
+         */
+        public boolean isNewGame() {
+            return move == null;
+        }
+
+        /**
+         * Accessor for the move field
+         *
+         * @return Move enum of the move, null for a new game
+         */
+        public MoveResult.Move getMove() {
+            return move;
+        }
+
+        /**
+         * Accessor for the x field
+         *
+         * @return int x position of the cell, or the width of a new board
+         */
+        public int getX() {
+            return x;
+        }
+
+        /**
+         * Accessor for the y field
+         *
+         * @return int y position of the cell, or the height of a new board
+         */
+        public int getY() {
+            return y;
+        }
+
+        /**
+         * Accessor for the outcome field
+         *
+         * @return Outcome enum the move had, null for a new game
+         */
+        public MoveResult.Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * Accessor for the difficulty field
+         *
+         * @return Difficulty enum of a new board, null for a move
+         */
+        public GameManager.Difficulty getDifficulty() {
+            return difficulty;
+        }
+
+        /**
+         * Accessor for the numberOfMines field
+         *
+         * @return int of the mines on a new board
+         */
+        public int getNumberOfMines() {
+            return numberOfMines;
+        }
+
+        /**
+         * Accessor for the seed field
+         *
+         * @return long seed of a new board
+         */
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * Accessor for the noGuess field
+         *
+         * @return boolean whether a new board needs no guessing
+         */
+        public boolean isNoGuess() {
+            return noGuess;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * <p><b>MoveResult</b> describes what a move made with the <b>GameEngine</b> did to the game</p>
+ */
+public class MoveResult {
+
+    private final Move move;
+    private final int x;
+    private final int y;
+    private final Outcome outcome;
+    private final CellChanges changes;
+
+    /**
+     * Constructor for the MoveResult
+     *
+     * @param move    Move enum of the move that was made
+     * @param x       x position of the cell the move was made on
+     * @param y       y position of the cell the move was made on
+     * @param outcome Outcome enum of the move
+     * @param changes CellChanges of the cells changed by the move
+     */
+    public MoveResult(Move move, int x, int y, Outcome outcome, CellChanges changes) {
+        this.move = move;
+        this.x = x;
+        this.y = y;
+        this.outcome = outcome;
+        this.changes = changes;
+    }
+
+    /**
+     * Accessor for the move field
+     *
+     * @return Move enum of the move that was made
+     */
+    public Move getMove() {
+        return move;
+    }
+
+    /**
+     * Accessor for the x field
+     *
+     * @return int x position of the cell the move was made on
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Accessor for the y field
+     *
+     * @return int y position of the cell the move was made on
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Accessor for the outcome field
+     *
+     * @return Outcome enum of the move
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Accessor for the changes field. The engine reuses this object, so it is only valid until the next move
+     *
+     * @return CellChanges of the cells changed by the move
+     */
+    public CellChanges getChanges() {
+        return changes;
+    }
+
+    /**
+     * Returns whether the move ended the game
+     *
+     * @return boolean whether the move won or lost the game
+     */
+    public boolean isGameOver() {
+        return outcome == Outcome.WIN || outcome == Outcome.LOSE;
+    }
+
+    /**
+     * Enums for the moves that can be made on a cell
+     */
+    public enum Move {
+        REVEAL, FLAG, CHORD
+    }
+
+    /**
+     * Enums for the outcome of a move. IGNORED is used when the move was not allowed, e.g. revealing a flagged cell
+     */
+    public enum Outcome {
+        IGNORED, CONTINUE, WIN, LOSE
+    }
+}
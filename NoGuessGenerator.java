@@ -0,0 +1,567 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * <p>The <b>NoGuessGenerator</b> finds boards that can be cleared by logic alone from the first click, so the player
+ * never has to guess.</p>
+ * <p>Candidate boards are generated with Board.generateMines from seeds derived from the game's seed, and every worker
+ * thread checks candidates with its own <b>Checker</b>, a deterministic solver. As soon as one candidate is verified
+ * the workers stop taking new ones and abandon the candidate they are checking unless it comes before it. The lowest
+ * verified candidate always wins, so the same seed and first click give the same board on any number of threads,
+ * which keeps journals and replays of no-guess games reproducible.</p>
+ * <p>Only boards of up to MAX_CELLS cells with up to MAX_MINE_PERCENT mines are searched (see supports). Beyond that
+ * each candidate takes longer to check and far more are needed, so a search could take seconds, and those boards are
+ * generated as usual. The limits depend only on the size, so they keep the search reproducible too.</p>
+ * <p>Usage: java NoGuessGenerator [boards per difficulty] [threads] [master seed]</p>
+ */
+public class NoGuessGenerator {
+
+    /**
+     * Number of candidates tried before giving up and using the game's own seed, which may need a guess
+     */
+    public static final int MAX_CANDIDATES = 100000;
+    /**
+     * Most cells a board can have to be searched, 32x32 or twice an expert board
+     */
+    public static final int MAX_CELLS = 1024;
+    /**
+     * Most mines a board can have to be searched, as a percentage of its cells. Expert boards have 20.6%
+     */
+    public static final int MAX_MINE_PERCENT = 21;
+
+    private final ForkJoinPool pool;
+    /**
+     * Number of candidates the last call of findSeed needed, including the one that verified, or MAX_CANDIDATES + 1
+     * if it gave up
+     */
+    private volatile long lastCandidates;
+
+    /**
+     * Constructor for the NoGuessGenerator, checks candidates on the common pool
+     */
+    public NoGuessGenerator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for the NoGuessGenerator
+     *
+     * @param pool ForkJoinPool to check candidates on, one worker per thread
+     */
+    public NoGuessGenerator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Main method to measure generation latency from the command line
+     *
+     * @param args boards per difficulty, threads and master seed, all optional
+     */
+    public static void main(String[] args) {
+        int boards = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long masterSeed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        NoGuessGenerator generator = new NoGuessGenerator(pool);
+        System.out.println("Generating " + boards + " no-guess boards per difficulty on " + threads + " threads, seed "
+                + masterSeed);
+        System.out.printf("%-9s %10s %10s %10s %10s %12s %10s%n", "", "median ms", "p99 ms", "max ms", "mean ms",
+                "candidates", "gave up");
+        for (GameManager.Difficulty d : new GameManager.Difficulty[]{GameManager.Difficulty.BEGINNER,
+                GameManager.Difficulty.MEDIUM, GameManager.Difficulty.EXPERT}) {
+            Board board = new Board(d);
+            int x = board.getBoardX() / 2;
+            int y = board.getBoardY() / 2;
+            //Warm up, so the first boards are not measured before the JIT has compiled the checker
+            for (int i = 0; i < 20; i++) {
+                generator.findSeed(board, x, y, candidateSeed(~masterSeed, i + 1));
+            }
+
+            long[] times = new long[boards];
+            long candidates = 0;
+            int gaveUp = 0;
+            for (int i = 0; i < boards; i++) {
+                long seed = candidateSeed(masterSeed + d.ordinal(), i + 1);
+                long start = System.nanoTime();
+                generator.findSeed(board, x, y, seed);
+                times[i] = System.nanoTime() - start;
+                candidates += generator.getLastCandidates();
+                if (generator.getLastCandidates() > MAX_CANDIDATES) {
+                    gaveUp++;
+                }
+            }
+            Arrays.sort(times);
+            long total = 0;
+            for (long t : times) {
+                total += t;
+            }
+            System.out.printf("%-9s %10.2f %10.2f %10.2f %10.2f %12.1f %10d%n", d.name(), times[boards / 2] / 1e6,
+                    times[(int) Math.ceil(boards * 0.99) - 1] / 1e6, times[boards - 1] / 1e6,
+                    total / 1e6 / boards, (double) candidates / boards, gaveUp);
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * Accessor for the lastCandidates field
+     *
+     * @return long of the number of candidates the last call of findSeed checked, MAX_CANDIDATES + 1 if it gave up
+     */
+    public long getLastCandidates() {
+        return lastCandidates;
+    }
+
+    /**
+     * Returns whether no-guess boards are searched for boards of the given size, see MAX_CELLS and MAX_MINE_PERCENT
+     *
+     * @param boardX        int of the width of the board
+     * @param boardY        int of the height of the board
+     * @param numberOfMines int of the number of mines
+     *
+     * @return boolean whether findSeed searches for boards of this size
+     */
+    public static boolean supports(int boardX, int boardY, int numberOfMines) {
+        long cells = (long) boardX * boardY;
+        return cells <= MAX_CELLS && numberOfMines * 100L <= cells * MAX_MINE_PERCENT;
+    }
+
+    /**
+     * Returns the seed of a candidate board, mixed from the game's seed and the candidate's index. Candidate 0 is the
+     * game's own seed, so a game whose board already needs no guessing gets the same board as without this generator
+     *
+     * @param seed long seed of the game
+     * @param n    long index of the candidate
+     *
+     * @return long seed to generate the candidate's mines from
+     */
+    public static long candidateSeed(long seed, long n) {
+        if (n == 0) {
+            return seed;
+        }
+        long z = seed + 0x9E3779B97F4A7C15L * n;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Finds a seed whose mines, generated with the cell at x, y as the first click, can be cleared without guessing.
+     * The board is only read for its size and number of mines
+     *
+     * @param board Board to find a seed for
+     * @param x     x position of the first click
+     * @param y     y position of the first click
+     * @param seed  long seed of the game
+     *
+     * @return long seed to pass to Board.generateMines, or the game's own seed if the board is too big to search (see
+     * supports) or no candidate verified within MAX_CANDIDATES
+     */
+    public long findSeed(Board board, int x, int y, long seed) {
+        return findSeed(board.getBoardX(), board.getBoardY(), board.getNumberOfMines(), x, y, seed, new AtomicLong());
+    }
+
+    /**
+     * Finds a seed whose mines, generated with the cell at x, y as the first click, can be cleared without guessing
+     *
+     * @param boardX int of the width of the board
+     * @param boardY int of the height of the board
+     * @param mines  int of the number of mines
+     * @param x      x position of the first click
+     * @param y      y position of the first click
+     * @param seed   long seed of the game
+     * @param next   AtomicLong at 0 that the workers take candidates from, so another thread can follow the search
+     *
+     * @return long seed to pass to Board.generateMines, or the game's own seed if the board is too big to search (see
+     * supports) or no candidate verified within MAX_CANDIDATES
+     */
+    public long findSeed(int boardX, int boardY, int mines, int x, int y, long seed, AtomicLong next) {
+        if (!supports(boardX, boardY, mines)) {
+            lastCandidates = 0;
+            return seed;
+        }
+        long start = System.nanoTime();
+        AtomicLong found = new AtomicLong(Long.MAX_VALUE);
+
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < pool.getParallelism(); i++) {
+            workers.add(() -> {
+                Board candidate = new Board(boardX, boardY, mines);
+                Checker checker = new Checker(candidate);
+                while (true) {
+                    long n = next.getAndIncrement();
+                    if (n >= MAX_CANDIDATES || n > found.get()) {
+                        return null;
+                    }
+                    candidate.generateNewBoard();
+                    candidate.setSafeCells(x, y);
+                    candidate.generateMines(candidateSeed(seed, n));
+                    if (checker.check(x, y, () -> found.get() < n)) {
+                        found.accumulateAndGet(n, Math::min);
+                    }
+                }
+            });
+        }
+        pool.invokeAll(workers);
+
+        long n = found.get();
+        lastCandidates = n == Long.MAX_VALUE ? MAX_CANDIDATES + 1 : n + 1;
+        Metrics.NO_GUESS.recordSince(start);
+        Metrics.NO_GUESS_CANDIDATES.record(lastCandidates);
+        return n == Long.MAX_VALUE ? seed : candidateSeed(seed, n);
+    }
+
+    /**
+     * <p>A <b>Checker</b> plays a board from its first click using only deductions that are certain, and reports
+     * whether that clears it.</p>
+     * <p>It repeatedly applies, in order of cost: the rules of a single number (its mines are all found, or all of its
+     * unknown neighbours must be mines), the rule of two overlapping numbers (the difference in their mines fits only
+     * one way into the cells they do not share), the total number of mines, and near the end of the game the
+     * <b>Solver</b>, which enumerates every arrangement of the frontier. It stops when the board is cleared or nothing
+     * more is certain, so a board it accepts never needs a guess, though it may reject some that do not either.</p>
+     */
+    static class Checker {
+
+        /**
+         * Most unknown cells left for the Solver to be run. Enumerating a large frontier costs far more than trying
+         * another candidate, so boards that only the Solver could get through early on are rejected instead
+         */
+        private static final int SOLVER_MAX_UNKNOWN = 64;
+
+        private static final byte UNKNOWN = 0;
+        private static final byte OPEN = 1;
+        private static final byte MINE = 2;
+
+        private final Board board;
+        private final Solver solver = new Solver();
+        private final int boardX;
+        private final int boardY;
+        private final byte[] known;
+        private final boolean[] queued;
+        private final int[] queue;
+        private final int[] stack;
+        private final int[] neighbours = new int[9];
+        private final int[] around = new int[9];
+        private final int[] first = new int[8];
+        private final int[] second = new int[8];
+        private int head;
+        private int tail;
+        private int opened;
+        private int minesFound;
+
+        /**
+         * Constructor for the Checker
+         *
+         * @param board Board the candidates are generated on, its size must not change
+         */
+        Checker(Board board) {
+            this.board = board;
+            boardX = board.getBoardX();
+            boardY = board.getBoardY();
+            int cells = boardX * boardY;
+            known = new byte[cells];
+            queued = new boolean[cells];
+            queue = new int[cells];
+            stack = new int[cells];
+        }
+
+        /**
+         * Checks whether the board's mines can be found without guessing, starting from the given first click.
+         * The board's revealed cells are changed if the Solver is needed
+         *
+         * @param x         x position of the first click
+         * @param y         y position of the first click
+         * @param cancelled BooleanSupplier that is true once the result is no longer needed
+         *
+         * @return boolean whether every cell that is not a mine can be revealed by logic alone
+         */
+        boolean check(int x, int y, BooleanSupplier cancelled) {
+            Arrays.fill(known, UNKNOWN);
+            head = 0;
+            tail = 0;
+            opened = 0;
+            minesFound = 0;
+            int safeCells = known.length - board.getNumberOfMines();
+
+            open(x * boardY + y);
+            while (true) {
+                applySingleRules();
+                if (opened == safeCells) {
+                    return true;
+                }
+                if (cancelled.getAsBoolean()) {
+                    return false;
+                }
+                if (!applyPairRules() && !applyMineCount() && !applySolver()) {
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * Reveals a cell, and the region around it if it has no adjacent mines, queueing each number revealed
+         *
+         * @param index int index of the cell
+         */
+        private void open(int index) {
+            if (known[index] != UNKNOWN) {
+                return;
+            }
+            int top = 0;
+            known[index] = OPEN;
+            stack[top++] = index;
+            while (top > 0) {
+                int cell = stack[--top];
+                opened++;
+                if (board.getAdjacentMines(cell / boardY, cell % boardY) > 0) {
+                    enqueue(cell);
+                    enqueueNumbersAround(cell);
+                    continue;
+                }
+                int count = board.getAdjacentIndices(cell / boardY, cell % boardY, neighbours);
+                for (int i = 0; i < count; i++) {
+                    int n = neighbours[i];
+                    if (known[n] == UNKNOWN) {
+                        known[n] = OPEN;
+                        stack[top++] = n;
+                    } else if (known[n] == OPEN) {
+                        enqueue(n);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Marks a cell as a mine and queues the numbers around it
+         *
+         * @param index int index of the cell
+         */
+        private void markMine(int index) {
+            if (known[index] == UNKNOWN) {
+                known[index] = MINE;
+                minesFound++;
+                enqueueNumbersAround(index);
+            }
+        }
+
+        /**
+         * Queues every revealed number around a cell, as what is known about them has changed
+         *
+         * @param index int index of the cell
+         */
+        private void enqueueNumbersAround(int index) {
+            int count = board.getAdjacentIndices(index / boardY, index % boardY, around);
+            for (int i = 0; i < count; i++) {
+                if (known[around[i]] == OPEN) {
+                    enqueue(around[i]);
+                }
+            }
+        }
+
+        /**
+         * Adds a revealed number to the queue of numbers to look at, unless it is already queued
+         *
+         * @param index int index of the cell
+         */
+        private void enqueue(int index) {
+            if (!queued[index] && board.getAdjacentMines(index / boardY, index % boardY) > 0) {
+                queued[index] = true;
+                queue[tail] = index;
+                tail = tail + 1 == queue.length ? 0 : tail + 1;
+            }
+        }
+
+        /**
+         * Applies the rules of a single number to every queued number until the queue is empty
+         */
+        private void applySingleRules() {
+            while (head != tail) {
+                int index = queue[head];
+                head = head + 1 == queue.length ? 0 : head + 1;
+                queued[index] = false;
+
+                int unknown = unknownAround(index, first);
+                if (unknown == 0) {
+                    continue;
+                }
+                int needed = mineNeeded(index);
+                if (needed == 0) {
+                    for (int i = 0; i < unknown; i++) {
+                        open(first[i]);
+                    }
+                } else if (needed == unknown) {
+                    for (int i = 0; i < unknown; i++) {
+                        markMine(first[i]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Compares every pair of numbers on the frontier that share unknown cells. If a has k more mines left to find
+         * than b, and exactly k of a's unknown cells are not next to b, those cells are mines and b's other unknown
+         * cells are safe
+         *
+         * @return boolean whether anything was deduced
+         */
+        private boolean applyPairRules() {
+            boolean progress = false;
+            for (int a = 0; a < known.length; a++) {
+                if (known[a] != OPEN || board.getAdjacentMines(a / boardY, a % boardY) == 0) {
+                    continue;
+                }
+                int firstCount = unknownAround(a, first);
+                if (firstCount == 0) {
+                    continue;
+                }
+                int ax = a / boardY;
+                int ay = a % boardY;
+                for (int bx = Math.max(0, ax - 2); bx <= Math.min(boardX - 1, ax + 2); bx++) {
+                    for (int by = Math.max(0, ay - 2); by <= Math.min(boardY - 1, ay + 2); by++) {
+                        int b = bx * boardY + by;
+                        if (b == a || known[b] != OPEN || board.getAdjacentMines(bx, by) == 0) {
+                            continue;
+                        }
+                        int secondCount = unknownAround(b, second);
+                        int onlyFirst = 0;
+                        for (int i = 0; i < firstCount; i++) {
+                            if (!isAdjacent(first[i], bx, by)) {
+                                onlyFirst++;
+                            }
+                        }
+                        if (onlyFirst == 0 || onlyFirst != mineNeeded(a) - mineNeeded(b)) {
+                            continue;
+                        }
+                        for (int i = 0; i < firstCount; i++) {
+                            if (!isAdjacent(first[i], bx, by)) {
+                                markMine(first[i]);
+                            }
+                        }
+                        for (int i = 0; i < secondCount; i++) {
+                            if (!isAdjacent(second[i], ax, ay)) {
+                                open(second[i]);
+                            }
+                        }
+                        progress = true;
+                        firstCount = unknownAround(a, first);
+                        if (firstCount == 0) {
+                            break;
+                        }
+                    }
+                    if (firstCount == 0) {
+                        break;
+                    }
+                }
+                if (progress) {
+                    applySingleRules();
+                }
+            }
+            return progress;
+        }
+
+        /**
+         * Opens every unknown cell once all of the mines have been found
+         *
+         * @return boolean whether anything was opened
+         */
+        private boolean applyMineCount() {
+            if (minesFound < board.getNumberOfMines()) {
+                return false;
+            }
+            for (int i = 0; i < known.length; i++) {
+                open(i);
+            }
+            return true;
+        }
+
+        /**
+         * Runs the Solver on what has been revealed, once at most SOLVER_MAX_UNKNOWN cells are unknown, opening every
+         * cell it finds certainly safe and marking every cell it finds certainly a mine. This also takes the total
+         * number of mines into account, across the whole frontier
+         *
+         * @return boolean whether anything was deduced
+         */
+        private boolean applySolver() {
+            if (known.length - opened - minesFound > SOLVER_MAX_UNKNOWN) {
+                return false;
+            }
+            for (int x = 0; x < boardX; x++) {
+                for (int y = 0; y < boardY; y++) {
+                    board.setRevealed(x, y, known[x * boardY + y] == OPEN);
+                }
+            }
+            Solver.Result result = solver.solve(board);
+            boolean progress = false;
+            for (int x = 0; x < boardX; x++) {
+                for (int y = 0; y < boardY; y++) {
+                    if (known[x * boardY + y] != UNKNOWN) {
+                        continue;
+                    }
+                    if (result.isSafe(x, y)) {
+                        open(x * boardY + y);
+                        progress = true;
+                    } else if (result.isMine(x, y)) {
+                        markMine(x * boardY + y);
+                        progress = true;
+                    }
+                }
+            }
+            return progress;
+        }
+
+        /**
+         * Writes the unknown neighbours of a cell into the given array
+         *
+         * @param index int index of the cell
+         * @param cells int array of at least 8 elements
+         *
+         * @return int of the number of unknown neighbours
+         */
+        private int unknownAround(int index, int[] cells) {
+            int count = board.getAdjacentIndices(index / boardY, index % boardY, neighbours);
+            int unknown = 0;
+            for (int i = 0; i < count; i++) {
+                if (known[neighbours[i]] == UNKNOWN) {
+                    cells[unknown++] = neighbours[i];
+                }
+            }
+            return unknown;
+        }
+
+        /**
+         * Returns how many of a number's mines have not been found yet
+         *
+         * @param index int index of the revealed number
+         *
+         * @return int of the mines left around it
+         */
+        private int mineNeeded(int index) {
+            int count = board.getAdjacentIndices(index / boardY, index % boardY, neighbours);
+            int needed = board.getAdjacentMines(index / boardY, index % boardY);
+            for (int i = 0; i < count; i++) {
+                if (known[neighbours[i]] == MINE) {
+                    needed--;
+                }
+            }
+            return needed;
+        }
+
+        /**
+         * Returns whether a cell is next to, or is, the cell at the given coordinates
+         *
+         * @param index int index of the cell
+         * @param x     x position of the other cell
+         * @param y     y position of the other cell
+         *
+         * @return boolean whether the cells are at most one apart in each direction
+         */
+        private boolean isAdjacent(int index, int x, int y) {
+            return Math.abs(index / boardY - x) <= 1 && Math.abs(index % boardY - y) <= 1;
+        }
+    }
+}
@@ -0,0 +1,526 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * <p>A <b>Replay</b> is a recorded game: the board's difficulty, size and seed, and every move made on it in order,
+ * with the time it was made and its outcome.</p>
+ * <p>The seed and the first click decide the mines, so replaying the moves on a <b>GameEngine</b> started from the
+ * same seed plays out the same game. A replay whose moves no longer give the recorded outcomes shows that the engine's
+ * behaviour has changed (see ReplayEngine).</p>
+ * <p>Replay files are any number of replays one after another, so games can be appended as they finish. A replay
+ * cut short by a crash part way through an append ends the file, the replays before it are still read. The last
+ * replay is also kept on its own in a file next to it (see ReplayWriter), so it can be found without reading them
+ * all.</p>
+ * <pre>
+ *  0 int    magic "MSWR"
+ *  4 short  version
+ *  6 byte   difficulty (ordinal of GameManager.Difficulty)
+ *  7 byte   flags (1 if the board was generated to need no guessing)
+ *  8 int    width
+ * 12 int    height
+ * 16 int    number of mines
+ * 20 long   seed
+ * 28 int    number of moves
+ * 32 moves  byte type (1 reveal, 2 flag, 3 chord), byte outcome (ordinal of MoveResult.Outcome), int x, int y,
+ *           int milliseconds since the game started
+ * </pre>
+ * <p>Games are recorded by attaching a <b>Replay.Recorder</b> to the engine.</p>
+ */
+public class Replay {
+
+    static final int MAGIC = 0x4D535752;
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int MOVE_BYTES = 14;
+    static final int FLAG_NO_GUESS = 1;
+
+    private final GameManager.Difficulty difficulty;
+    private final int boardX;
+    private final int boardY;
+    private final int numberOfMines;
+    private final long seed;
+    private final boolean noGuess;
+    private byte[] moves = new byte[16];
+    private byte[] outcomes = new byte[16];
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private int[] times = new int[16];
+    private int count;
+
+    /**
+     * Constructor for the Replay, with no moves
+     *
+     * @param difficulty    Difficulty enum (see GameManager) of the board
+     * @param boardX        int of the width of the board
+     * @param boardY        int of the height of the board
+     * @param numberOfMines int of the number of mines
+     * @param seed          long seed the mines are generated from
+     */
+    public Replay(GameManager.Difficulty difficulty, int boardX, int boardY, int numberOfMines, long seed) {
+        this(difficulty, boardX, boardY, numberOfMines, seed, false);
+    }
+
+    /**
+     * Constructor for the Replay, with no moves
+     *
+     * @param difficulty    Difficulty enum (see GameManager) of the board
+     * @param boardX        int of the width of the board
+     * @param boardY        int of the height of the board
+     * @param numberOfMines int of the number of mines
+     * @param seed          long seed the mines are generated from
+     * @param noGuess       boolean whether the mines were placed to need no guessing (see NoGuessGenerator)
+     */
+    public Replay(GameManager.Difficulty difficulty, int boardX, int boardY, int numberOfMines, long seed,
+                  boolean noGuess) {
+        this.difficulty = difficulty;
+        this.boardX = boardX;
+        this.boardY = boardY;
+        this.numberOfMines = numberOfMines;
+        this.seed = seed;
+        this.noGuess = noGuess;
+    }
+
+    /**
+     * Starts a replay of the engine's current board, which must not have had its first click yet
+     *
+     * @param engine GameEngine to record
+     *
+     * @return Replay with no moves
+     */
+    public static Replay of(GameEngine engine) {
+        Board board = engine.getBoard();
+        return new Replay(engine.getDifficulty(), board.getBoardX(), board.getBoardY(), board.getNumberOfMines(),
+                engine.getSeed(), engine.isNoGuess());
+    }
+
+    /**
+     * Reads every replay in a file, up to the first one that is cut short or corrupt
+     *
+     * @param path Path of the replay file
+     *
+     * @return List of the replays in the order they were written
+     *
+     * @throws IOException if the file can not be read
+     */
+    public static List<Replay> readAll(Path path) throws IOException {
+        return readAll(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    /**
+     * Reads replays until the buffer ends or holds one that is cut short or corrupt, i.e. the last append before a
+     * crash. The buffer is left at the end of the last whole replay
+     *
+     * @param in ByteBuffer positioned at the first replay
+     *
+     * @return List of the whole replays in the order they were written
+     */
+    static List<Replay> readAll(ByteBuffer in) {
+        List<Replay> replays = new ArrayList<>();
+        while (in.hasRemaining()) {
+            int start = in.position();
+            try {
+                replays.add(read(in));
+            } catch (IOException e) {
+                in.position(start);
+                break;
+            }
+        }
+        return replays;
+    }
+
+    /**
+     * Reads the last whole replay of a replay file. It is read from the file holding the last replay alone where
+     * there is one, otherwise the file's replays are skipped through by their headers without reading their moves
+     *
+     * @param path Path of the replay file
+     *
+     * @return Replay written last, or null if there is none
+     *
+     * @throws IOException if the file can not be read
+     */
+    public static Replay readLast(Path path) throws IOException {
+        Path last = lastPath(path);
+        if (Files.isRegularFile(last)) {
+            List<Replay> replays = readAll(last);
+            if (!replays.isEmpty()) {
+                return replays.get(0);
+            }
+        }
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            long position = 0;
+            long lastStart = -1;
+            while (position + HEADER_BYTES <= size) {
+                header.clear();
+                readFully(channel, header, position);
+                int count = header.getInt(28);
+                long length = HEADER_BYTES + (long) count * MOVE_BYTES;
+                if (header.getInt(0) != MAGIC || count < 0 || position + length > size) {
+                    break;
+                }
+                lastStart = position;
+                position += length;
+            }
+            if (lastStart < 0) {
+                return null;
+            }
+            ByteBuffer replay = ByteBuffer.allocate((int) (position - lastStart));
+            readFully(channel, replay, lastStart);
+            replay.flip();
+            List<Replay> replays = readAll(replay);
+            return replays.isEmpty() ? null : replays.get(0);
+        }
+    }
+
+    /**
+     * Returns the path of the file holding the last replay of a replay file on its own
+     *
+     * @param path Path of the replay file
+     *
+     * @return Path of the file next to it, with .last added to its name
+     */
+    static Path lastPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".last");
+    }
+
+    /**
+     * Fills a buffer from a position in a file
+     *
+     * @param channel  FileChannel to read
+     * @param buffer   ByteBuffer to fill
+     * @param position long of the position in the file to read from
+     *
+     * @throws IOException if the file can not be read or ends first
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Replay file ended early");
+            }
+        }
+    }
+
+    /**
+     * Appends replays to a file, creating it if needed
+     *
+     * @param path    Path of the replay file
+     * @param replays List of the replays to append
+     *
+     * @throws IOException if the file can not be written
+     */
+    public static void appendAll(Path path, List<Replay> replays) throws IOException {
+        int size = 0;
+        for (Replay replay : replays) {
+            size += replay.size();
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        for (Replay replay : replays) {
+            replay.write(out);
+        }
+        Files.write(path, out.array(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Reads one replay
+     *
+     * @param in ByteBuffer positioned at the replay
+     *
+     * @return Replay read
+     *
+     * @throws IOException if the bytes are not a replay
+     */
+    public static Replay read(ByteBuffer in) throws IOException {
+        if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC) {
+            throw new IOException("Not a replay");
+        }
+        short version = in.getShort();
+        if (version > VERSION) {
+            throw new IOException("Replay version " + version + " is newer than this game supports");
+        }
+        int difficulty = in.get();
+        int flags = in.get();
+        int boardX = in.getInt();
+        int boardY = in.getInt();
+        int mines = in.getInt();
+        long seed = in.getLong();
+        int count = in.getInt();
+        GameManager.Difficulty[] difficulties = GameManager.Difficulty.values();
+        if (difficulty < 0 || difficulty >= difficulties.length || boardX <= 0 || boardY <= 0 || count < 0
+                || (long) count * MOVE_BYTES > in.remaining()) {
+            throw new IOException("Corrupt replay");
+        }
+
+        Replay replay = new Replay(difficulties[difficulty], boardX, boardY, mines, seed,
+                (flags & FLAG_NO_GUESS) != 0);
+        MoveResult.Move[] moves = MoveResult.Move.values();
+        MoveResult.Outcome[] outcomes = MoveResult.Outcome.values();
+        for (int i = 0; i < count; i++) {
+            int move = in.get() - 1;
+            int outcome = in.get();
+            int x = in.getInt();
+            int y = in.getInt();
+            int time = in.getInt();
+            if (move < 0 || move >= moves.length || outcome < 0 || outcome >= outcomes.length
+                    || x < 0 || x >= boardX || y < 0 || y >= boardY) {
+                throw new IOException("Corrupt replay move " + i);
+            }
+            replay.addMove(moves[move], x, y, outcomes[outcome], time);
+        }
+        return replay;
+    }
+
+    /**
+     * Writes the replay
+     *
+     * @param out ByteBuffer with at least size() bytes remaining
+     */
+    public void write(ByteBuffer out) {
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        out.put((byte) difficulty.ordinal());
+        out.put((byte) (noGuess ? FLAG_NO_GUESS : 0));
+        out.putInt(boardX);
+        out.putInt(boardY);
+        out.putInt(numberOfMines);
+        out.putLong(seed);
+        out.putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.put(moves[i]);
+            out.put(outcomes[i]);
+            out.putInt(xs[i]);
+            out.putInt(ys[i]);
+            out.putInt(times[i]);
+        }
+    }
+
+    /**
+     * Returns the number of bytes the replay takes when written
+     *
+     * @return int of the size in bytes
+     */
+    public int size() {
+        return HEADER_BYTES + count * MOVE_BYTES;
+    }
+
+    /**
+     * Adds a move to the end of the replay
+     *
+     * @param move    Move enum of the move
+     * @param x       x position of the cell
+     * @param y       y position of the cell
+     * @param outcome Outcome enum the move had
+     * @param time    int of the milliseconds since the game started
+     */
+    public void addMove(MoveResult.Move move, int x, int y, MoveResult.Outcome outcome, int time) {
+        if (count == xs.length) {
+            int length = count * 2;
+            moves = Arrays.copyOf(moves, length);
+            outcomes = Arrays.copyOf(outcomes, length);
+            xs = Arrays.copyOf(xs, length);
+            ys = Arrays.copyOf(ys, length);
+            times = Arrays.copyOf(times, length);
+        }
+        moves[count] = (byte) (move.ordinal() + 1);
+        outcomes[count] = (byte) outcome.ordinal();
+        xs[count] = x;
+        ys[count] = y;
+        times[count] = time;
+        count++;
+    }
+
+    /**
+     * Accessor for the difficulty field
+     *
+     * @return Difficulty enum of the board
+     */
+    public GameManager.Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Accessor for the boardX field
+     *
+     * @return int of the width of the board
+     */
+    public int getBoardX() {
+        return boardX;
+    }
+
+    /**
+     * Accessor for the boardY field
+     *
+     * @return int of the height of the board
+     */
+    public int getBoardY() {
+        return boardY;
+    }
+
+    /**
+     * Accessor for the numberOfMines field
+     *
+     * @return int of the number of mines
+     */
+    public int getNumberOfMines() {
+        return numberOfMines;
+    }
+
+    /**
+     * Accessor for the seed field
+     *
+     * @return long seed the mines are generated from
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Accessor for the noGuess field
+     *
+     * @return boolean whether the mines were placed to need no guessing
+     */
+    public boolean isNoGuess() {
+        return noGuess;
+    }
+
+    /**
+     * Returns the number of moves in the replay
+     *
+     * @return int of the number of moves
+     */
+    public int getMoveCount() {
+        return count;
+    }
+
+    /**
+     * Returns a move of the replay
+     *
+     * @param i int index of the move
+     *
+     * @return Move enum of the move
+     */
+    public MoveResult.Move getMove(int i) {
+        return MoveResult.Move.values()[moves[i] - 1];
+    }
+
+    /**
+     * Returns the x position of a move
+     *
+     * @param i int index of the move
+     *
+     * @return int x position of the cell
+     */
+    public int getX(int i) {
+        return xs[i];
+    }
+
+    /**
+     * Returns the y position of a move
+     *
+     * @param i int index of the move
+     *
+     * @return int y position of the cell
+     */
+    public int getY(int i) {
+        return ys[i];
+    }
+
+    /**
+     * Returns the recorded outcome of a move
+     *
+     * @param i int index of the move
+     *
+     * @return Outcome enum the move had when it was recorded
+     */
+    public MoveResult.Outcome getOutcome(int i) {
+        return MoveResult.Outcome.values()[outcomes[i]];
+    }
+
+    /**
+     * Returns the time of a move
+     *
+     * @param i int index of the move
+     *
+     * @return int of the milliseconds since the game started
+     */
+    public int getTime(int i) {
+        return times[i];
+    }
+
+    /**
+     * <p>The <b>Recorder</b> records every game played on a <b>GameEngine</b> and hands each replay on once the game
+     * is won or lost.</p>
+     * <p>It should be added before any listener that starts a new game when one ends, so the last move is recorded
+     * before the board is reset.</p>
+     */
+    public static class Recorder implements GameListener {
+
+        private final Consumer<Replay> finished;
+        private GameEngine engine;
+        private Replay current;
+        private long start;
+
+        /**
+         * Constructor for the Recorder
+         *
+         * @param finished Consumer given the replay of every game that is won or lost
+         */
+        public Recorder(Consumer<Replay> finished) {
+            this.finished = finished;
+        }
+
+        /**
+         * Starts recording the games of an engine. A game already under way is not recorded, as its earlier moves are
+         * unknown, recording starts with the next board
+         *
+         * @param engine GameEngine to record
+         */
+        public void attach(GameEngine engine) {
+            this.engine = engine;
+            engine.addListener(this);
+            if (engine.isFirstClick()) {
+                boardReset();
+            }
+        }
+
+        /**
+         * Adds every move that changed the game to the current replay, and hands the replay on when the game ends
+         *
+         * @param result MoveResult of the move
+         */
+        @Override
+        public void moveMade(MoveResult result) {
+            if (current == null || result.getOutcome() == MoveResult.Outcome.IGNORED) {
+                return;
+            }
+            int time = (int) Math.min(Integer.MAX_VALUE, (System.nanoTime() - start) / 1000000);
+            current.addMove(result.getMove(), result.getX(), result.getY(), result.getOutcome(), time);
+            if (result.isGameOver()) {
+                Replay replay = current;
+                current = null;
+                finished.accept(replay);
+            }
+        }
+
+        /**
+         * Starts a new replay for the new board, dropping the replay of a game that was not finished
+         */
+        @Override
+        public void boardReset() {
+            current = Replay.of(engine);
+            start = System.nanoTime();
+        }
+    }
+}
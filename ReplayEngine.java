@@ -0,0 +1,432 @@
+import javax.swing.Timer;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p>The <b>ReplayEngine</b> plays a <b>Replay</b> back on a <b>GameEngine</b> and checks that every move still has
+ * the outcome it was recorded with.</p>
+ * <p>Replays are verified headless as fast as the engine can go, and a file of them is verified across all cores, so a
+ * corpus of recorded games can be used to check that a change to the engine has not changed how games play out.
+ * A <b>Playback</b> plays a replay at 1x to 100x its recorded speed for the GUI.</p>
+ * <p>Usage: java ReplayEngine verify [replay file] [threads] [passes]<br>
+ * java ReplayEngine record [replay file] [games per difficulty] [master seed]</p>
+ */
+public class ReplayEngine {
+
+    /**
+     * Returned by verify when every move of the replay had its recorded outcome
+     */
+    public static final int MATCHED = -1;
+    /**
+     * Number of replays each fork/join leaf verifies on its own ReplayEngine
+     */
+    private static final int REPLAYS_PER_TASK = 256;
+
+    /**
+     * Engine of the last replay, reused while the replays have the same board size
+     */
+    private GameEngine engine;
+
+    /**
+     * Main method to verify or record a replay file from the command line
+     *
+     * @param args mode, replay file and the options of the mode, all optional
+     *
+     * @throws IOException if the replay file can not be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        String mode = args.length > 0 ? args[0] : "verify";
+        String file = args.length > 1 ? args[1] : "game.replays";
+        if (mode.equals("record")) {
+            int games = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+            long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+            List<Replay> replays = new ArrayList<>();
+            for (GameManager.Difficulty d : new GameManager.Difficulty[]{GameManager.Difficulty.BEGINNER,
+                    GameManager.Difficulty.MEDIUM, GameManager.Difficulty.EXPERT}) {
+                replays.addAll(record(d, games, seed));
+            }
+            Replay.appendAll(Paths.get(file), replays);
+            System.out.println("Recorded " + replays.size() + " games to " + file);
+            return;
+        }
+
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int passes = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        List<Replay> replays = Replay.readAll(Paths.get(file));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        System.out.println("Verifying " + replays.size() + " replays from " + file + " on " + threads + " threads");
+        Report report = null;
+        for (int pass = 1; pass <= passes; pass++) {
+            long start = System.nanoTime();
+            report = verifyAll(replays, pool);
+            long elapsed = System.nanoTime() - start;
+            System.out.println("pass " + pass + ": " + report.summary(elapsed));
+        }
+        pool.shutdown();
+        if (report != null && report.getMismatches() > 0) {
+            System.out.print(report.details());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Records games played by the Bot. Every game is seeded from the master seed, the difficulty and its index, so the
+     * same arguments always record the same games
+     *
+     * @param d          Difficulty enum to play
+     * @param games      int of the number of games to record
+     * @param masterSeed long seed that every game seed is derived from
+     *
+     * @return List of the replays of the games
+     */
+    public static List<Replay> record(GameManager.Difficulty d, int games, long masterSeed) {
+        List<Replay> replays = new ArrayList<>(games);
+        GameEngine engine = new GameEngine(d, new SplittableRandom(masterSeed));
+        new Replay.Recorder(replays::add).attach(engine);
+        Bot bot = new Bot();
+        SplittableRandom seeds = new SplittableRandom(masterSeed + d.ordinal());
+        for (int i = 0; i < games; i++) {
+            SplittableRandom random = seeds.split();
+            engine.newGame(random.nextLong());
+            bot.play(engine, random);
+        }
+        return replays;
+    }
+
+    /**
+     * Verifies replays across the threads of a pool
+     *
+     * @param replays List of the replays to verify
+     * @param pool    ForkJoinPool to verify them on
+     *
+     * @return Report of the replays
+     */
+    public static Report verifyAll(List<Replay> replays, ForkJoinPool pool) {
+        return pool.invoke(new VerifyTask(replays, 0, replays.size()));
+    }
+
+    /**
+     * Creates an engine with a new board for a replay
+     *
+     * @param replay Replay to play
+     *
+     * @return GameEngine ready for the first move of the replay
+     */
+    public static GameEngine newEngine(Replay replay) {
+        Board board = new Board(replay.getBoardX(), replay.getBoardY(), replay.getNumberOfMines());
+        GameEngine engine = new GameEngine(board, true, replay.getDifficulty(), new SplittableRandom(replay.getSeed()),
+                replay.getSeed());
+        engine.setNoGuess(replay.isNoGuess());
+        return engine;
+    }
+
+    /**
+     * Makes one move of a replay on an engine
+     *
+     * @param engine GameEngine to play on
+     * @param replay Replay to take the move from
+     * @param i      int index of the move
+     *
+     * @return MoveResult of the move
+     */
+    public static MoveResult play(GameEngine engine, Replay replay, int i) {
+        switch (replay.getMove(i)) {
+            case REVEAL:
+                return engine.reveal(replay.getX(i), replay.getY(i));
+            case CHORD:
+                return engine.chord(replay.getX(i), replay.getY(i));
+            default:
+                return engine.toggleFlag(replay.getX(i), replay.getY(i));
+        }
+    }
+
+    /**
+     * Plays a replay headless and checks the outcome of every move. The engine of the last replay is cleared and
+     * reused when the board size matches
+     *
+     * @param replay Replay to verify
+     *
+     * @return int index of the first move whose outcome differs from the recorded one, or MATCHED
+     */
+    public int verify(Replay replay) {
+        start(replay);
+        for (int i = 0; i < replay.getMoveCount(); i++) {
+            if (play(engine, replay, i).getOutcome() != replay.getOutcome(i)) {
+                return i;
+            }
+        }
+        return MATCHED;
+    }
+
+    /**
+     * Gets the engine ready for the first move of a replay
+     *
+     * @param replay Replay to play
+     */
+    private void start(Replay replay) {
+        Board board = engine == null ? null : engine.getBoard();
+        if (board == null || board.getBoardX() != replay.getBoardX() || board.getBoardY() != replay.getBoardY()
+                || board.getNumberOfMines() != replay.getNumberOfMines()
+                || engine.getDifficulty() != replay.getDifficulty()) {
+            engine = newEngine(replay);
+        } else {
+            engine.setNoGuess(replay.isNoGuess());
+            engine.newGame(replay.getSeed());
+        }
+    }
+
+    /**
+     * Fork/join task that splits a range of replays until it is small enough to verify on one ReplayEngine
+     */
+    private static class VerifyTask extends RecursiveTask<Report> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Replay> replays;
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructor for the VerifyTask
+         *
+         * @param replays List of all the replays
+         * @param from    int index of the first replay
+         * @param to      int index after the last replay
+         */
+        VerifyTask(List<Replay> replays, int from, int to) {
+            this.replays = replays;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Verifies the replays, or splits them in half and combines the reports of both halves
+         *
+         * @return Report of the replays in the range
+         */
+        @Override
+        protected Report compute() {
+            if (to - from > REPLAYS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                VerifyTask left = new VerifyTask(replays, from, middle);
+                left.fork();
+                Report right = new VerifyTask(replays, middle, to).compute();
+                return left.join().add(right);
+            }
+
+            ReplayEngine replayEngine = new ReplayEngine();
+            Report report = new Report();
+            for (int i = from; i < to; i++) {
+                Replay replay = replays.get(i);
+                report.record(i, replay, replayEngine.verify(replay));
+            }
+            return report;
+        }
+    }
+
+    /**
+     * Totals of a set of verified replays. Reports from different threads are combined with add
+     */
+    public static class Report {
+
+        /**
+         * Most mismatches whose details are kept
+         */
+        private static final int MAX_DETAILS = 20;
+
+        private final List<String> details = new ArrayList<>();
+        private long replays;
+        private long moves;
+        private long mismatches;
+
+        /**
+         * Adds the result of one replay
+         *
+         * @param index    int index of the replay in its file
+         * @param replay   Replay that was verified
+         * @param mismatch int index of its first mismatched move, or MATCHED
+         */
+        public void record(int index, Replay replay, int mismatch) {
+            replays++;
+            moves += replay.getMoveCount();
+            if (mismatch != MATCHED) {
+                mismatches++;
+                if (details.size() < MAX_DETAILS) {
+                    details.add(String.format("replay %d (%s, seed %d): move %d %s at %d,%d was %s%n", index,
+                            replay.getDifficulty().name(), replay.getSeed(), mismatch, replay.getMove(mismatch).name(),
+                            replay.getX(mismatch), replay.getY(mismatch), replay.getOutcome(mismatch).name()));
+                }
+            }
+        }
+
+        /**
+         * Adds another report to this one
+         *
+         * @param other Report to add
+         *
+         * @return this Report object
+         */
+        public Report add(Report other) {
+            replays += other.replays;
+            moves += other.moves;
+            mismatches += other.mismatches;
+            for (String detail : other.details) {
+                if (details.size() < MAX_DETAILS) {
+                    details.add(detail);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Accessor for the mismatches field
+         *
+         * @return long of the number of replays that did not play out as recorded
+         */
+        public long getMismatches() {
+            return mismatches;
+        }
+
+        /**
+         * Formats the totals for printing
+         *
+         * @param elapsed long of the nanoseconds the replays took
+         *
+         * @return String of the summary
+         */
+        public String summary(long elapsed) {
+            return String.format("%d replays, %d moves in %.3f s, %.0f replays/sec, %.0f moves/sec, %d mismatched",
+                    replays, moves, elapsed / 1e9, replays / (elapsed / 1e9), moves / (elapsed / 1e9), mismatches);
+        }
+
+        /**
+         * Formats the first mismatches for printing
+         *
+         * @return String with a line for each mismatch kept
+         */
+        public String details() {
+            StringBuilder sb = new StringBuilder();
+            for (String detail : details) {
+                sb.append(detail);
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * <p>A <b>Playback</b> plays a replay on its own engine at its recorded timing sped up 1x to 100x.</p>
+     * <p>The moves are made on the Swing event thread by a timer, and passed on to a <b>GameListener</b> to draw them.</p>
+     */
+    public static class Playback implements ActionListener {
+
+        public static final int MIN_SPEED = 1;
+        public static final int MAX_SPEED = 100;
+
+        private final Replay replay;
+        private final int speed;
+        private final GameEngine engine;
+        private final Runnable finished;
+        private final Timer timer;
+        private int next;
+        private int mismatch = MATCHED;
+        private long start;
+
+        /**
+         * Constructor for the Playback
+         *
+         * @param replay   Replay to play
+         * @param speed    int of how many times faster than recorded to play, 1 to 100
+         * @param listener GameListener notified of every move
+         * @param finished Runnable run on the Swing event thread once the last move has been made
+         *
+         * @throws IllegalArgumentException if the speed is out of range
+         */
+        public Playback(Replay replay, int speed, GameListener listener, Runnable finished) {
+            if (speed < MIN_SPEED || speed > MAX_SPEED) {
+                throw new IllegalArgumentException("Speed must be " + MIN_SPEED + "x to " + MAX_SPEED + "x");
+            }
+            this.replay = replay;
+            this.speed = speed;
+            this.finished = finished;
+            this.engine = newEngine(replay);
+            engine.addListener(listener);
+            timer = new Timer(0, this);
+            timer.setRepeats(false);
+        }
+
+        /**
+         * Accessor for the engine field
+         *
+         * @return GameEngine the replay is played on
+         */
+        public GameEngine getEngine() {
+            return engine;
+        }
+
+        /**
+         * Accessor for the mismatch field
+         *
+         * @return int index of the first move played whose outcome differed from the recorded one, or MATCHED
+         */
+        public int getMismatch() {
+            return mismatch;
+        }
+
+        /**
+         * Starts playing from the first move
+         */
+        public void start() {
+            start = System.nanoTime();
+            if (replay.getMoveCount() == 0) {
+                finished.run();
+            } else {
+                schedule();
+            }
+        }
+
+        /**
+         * Stops playing, the finished runnable is not run
+         */
+        public void stop() {
+            timer.stop();
+        }
+
+        /**
+         * Makes every move that is due, then waits for the next one or finishes
+         *
+         * @param e ActionEvent of the timer
+         */
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            long elapsed = (System.nanoTime() - start) / 1000000 * speed;
+            while (next < replay.getMoveCount() && replay.getTime(next) <= elapsed) {
+                if (play(engine, replay, next).getOutcome() != replay.getOutcome(next) && mismatch == MATCHED) {
+                    mismatch = next;
+                }
+                next++;
+            }
+            if (next < replay.getMoveCount()) {
+                schedule();
+            } else {
+                finished.run();
+            }
+        }
+
+        /**
+         * Sets the timer to go off when the next move is due
+         */
+        private void schedule() {
+            long due = (replay.getTime(next) + speed - 1) / speed;
+            long elapsed = (System.nanoTime() - start) / 1000000;
+            timer.setInitialDelay((int) Math.max(0, due - elapsed));
+            timer.restart();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>The <b>ReplayWriter</b> appends finished games to a replay file on a background thread, so recording a game
+ * never blocks the GUI.</p>
+ * <p>Before its first append it cuts off any replay left cut short by a crash, so later games are not appended after
+ * it where they could not be read. After every append the last replay is also written on its own to a file next to
+ * the replay file (see Replay.readLast). Once the file holds twice MAX_REPLAYS games it is rewritten with the newest
+ * MAX_REPLAYS, so it does not grow for ever.</p>
+ */
+public class ReplayWriter {
+
+    /**
+     * Number of games kept when the replay file is trimmed
+     */
+    static final int MAX_REPLAYS = 1000;
+
+    private final Path path;
+    private final int maxReplays;
+    private final Thread thread;
+    /**
+     * Replays waiting to be written, and whether they are being written or the writer is closed. Guarded by this
+     */
+    private List<Replay> pending = new ArrayList<>();
+    private boolean writing;
+    private boolean closed;
+    private long writes;
+    /**
+     * Number of whole replays in the file. Only used by the writer thread
+     */
+    private int replays = -1;
+
+    /**
+     * Constructor for the ReplayWriter, starts the writer thread
+     *
+     * @param path Path of the replay file
+     */
+    public ReplayWriter(Path path) {
+        this(path, MAX_REPLAYS);
+    }
+
+    /**
+     * Constructor for the ReplayWriter, starts the writer thread
+     *
+     * @param path       Path of the replay file
+     * @param maxReplays int of the number of games kept when the file is trimmed
+     */
+    public ReplayWriter(Path path, int maxReplays) {
+        this.path = path;
+        this.maxReplays = maxReplays;
+        thread = new Thread(this::run, "replay-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a finished game to be appended to the file
+     *
+     * @param replay Replay of the game, which must not be changed afterwards
+     */
+    public synchronized void append(Replay replay) {
+        if (closed) {
+            throw new IllegalStateException("ReplayWriter is closed");
+        }
+        pending.add(replay);
+        notifyAll();
+    }
+
+    /**
+     * Waits until every queued replay has been written
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public synchronized void awaitIdle() throws InterruptedException {
+        while (writing || !pending.isEmpty()) {
+            wait();
+        }
+    }
+
+    /**
+     * Writes every queued replay and stops the writer
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void close() throws InterruptedException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        thread.join();
+    }
+
+    /**
+     * Returns the number of batches of replays written so far
+     *
+     * @return long of the completed writes
+     */
+    public synchronized long getWrites() {
+        return writes;
+    }
+
+    /**
+     * Body of the writer thread, appends the queued replays until the writer is closed and nothing is left to write
+     */
+    private void run() {
+        while (true) {
+            List<Replay> batch;
+            synchronized (this) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                writing = true;
+            }
+
+            try {
+                if (replays < 0) {
+                    repair();
+                }
+                write(batch);
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                synchronized (this) {
+                    writing = false;
+                    writes++;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the whole replays in the file and cuts off anything after them
+     *
+     * @throws IOException if the file can not be read or truncated
+     */
+    private void repair() throws IOException {
+        if (!Files.isRegularFile(path)) {
+            replays = 0;
+            return;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        replays = Replay.readAll(in).size();
+        if (in.hasRemaining()) {
+            System.err.println("Dropping " + in.remaining() + " bytes of a replay cut short at the end of " + path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(in.position());
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * Appends replays to the file and forces them to disk, then writes the last of them on its own and trims the file
+     * if it has grown too long
+     *
+     * @param batch List of the replays to append
+     *
+     * @throws IOException if a file can not be written
+     */
+    private void write(List<Replay> batch) throws IOException {
+        int size = 0;
+        for (Replay replay : batch) {
+            size += replay.size();
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        for (Replay replay : batch) {
+            replay.write(out);
+        }
+        out.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(false);
+        }
+        replays += batch.size();
+
+        Replay last = batch.get(batch.size() - 1);
+        ByteBuffer single = ByteBuffer.allocate(last.size());
+        last.write(single);
+        single.flip();
+        SaveFile.replace(Replay.lastPath(path), single);
+
+        if (replays >= 2 * maxReplays) {
+            trim();
+        }
+    }
+
+    /**
+     * Rewrites the file with only its newest games
+     *
+     * @throws IOException if the file can not be read or rewritten
+     */
+    private void trim() throws IOException {
+        List<Replay> all = Replay.readAll(path);
+        List<Replay> kept = all.subList(Math.max(0, all.size() - maxReplays), all.size());
+        int size = 0;
+        for (Replay replay : kept) {
+            size += replay.size();
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        for (Replay replay : kept) {
+            replay.write(out);
+        }
+        out.flip();
+        SaveFile.replace(path, out);
+        replays = kept.size();
+    }
+}
@@ -0,0 +1,453 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
+
+/**
+ * <p><b>SaveFile</b> reads and writes the game.data file in a compact, versioned binary format.</p>
+ * <p>The file is a 64 byte header followed by four bit planes of the board (mines, flags, revealed and safe cells),
+ * one bit per cell, and a CRC32 of everything before it. An Expert board takes 324 bytes and a 1000x1000 board
+ * about 500KB, and neither is ever converted to objects. Files are read into a buffer rather than memory mapped, as
+ * a mapped file can not be replaced until the mapping is garbage collected on some platforms (i.e. Windows), which
+ * would make the next save fail.</p>
+ * <p>Save files from before this format, written with Java serialization, are still read.</p>
+ * <pre>
+ *  0 int    magic "MSWP"
+ *  4 short  version
+ *  6 short  number of planes
+ *  8 int    lifetime wins
+ * 12 int    lifetime losses
+ * 16 byte   difficulty (ordinal of GameManager.Difficulty)
+ * 17 byte   first click (1 if the mines have not been generated yet)
+ * 18 byte   options (1 if boards are generated to need no guessing)
+ * 19 byte   reserved
+ * 20 int    scale
+ * 24 int    width
+ * 28 int    height
+ * 32 int    number of mines
+ * 36 long   seed the mines are generated from on the first click
+ * 44 long   sequence number of the first move journal entry not in this save (see MoveJournal)
+ * 52 byte[] reserved, up to 64
+ * 64 long[] planes, each (width * height + 63) / 64 longs, cell index x * height + y
+ *    int    CRC32 of the header and the planes
+ * </pre>
+ * <p>Version 1 files had a 48 byte header without the seed and the sequence number.</p>
+ */
+public final class SaveFile {
+
+    static final int MAGIC = 0x4D535750;
+    static final short VERSION = 2;
+    static final int HEADER_BYTES = 64;
+    private static final int VERSION_1_HEADER_BYTES = 48;
+    private static final int OPTION_NO_GUESS = 1;
+
+    private static final int[] PLANES = {Board.MINE, Board.FLAGGED, Board.REVEALED, Board.SAFE};
+    private static final int LEGACY_MAGIC = 0xACED;
+
+    /**
+     * SaveFile only has static methods
+     */
+    private SaveFile() {
+    }
+
+    /**
+     * Returns the size of a save file for a board of the given size
+     *
+     * @param boardX int of the width of the board
+     * @param boardY int of the height of the board
+     *
+     * @return long of the size of the file in bytes
+     */
+    public static long fileSize(int boardX, int boardY) {
+        return fileSize(HEADER_BYTES, boardX, boardY);
+    }
+
+    /**
+     * Returns the size of a save file for a board of the given size and a header of the given size
+     *
+     * @param headerBytes int of the size of the header
+     * @param boardX      int of the width of the board
+     * @param boardY      int of the height of the board
+     *
+     * @return long of the size of the file in bytes
+     */
+    private static long fileSize(int headerBytes, int boardX, int boardY) {
+        return headerBytes + (long) PLANES.length * Board.planeBytes(boardX * boardY) + 4;
+    }
+
+    /**
+     * Writes a save file, replacing any file already at the path.
+     * The file is written to a temporary file next to it, forced to disk and then renamed over the old file, so a
+     * crash part way through leaves either the old save or the new one, never a truncated file
+     *
+     * @param path     Path of the file
+     * @param snapshot Snapshot to save
+     *
+     * @throws IOException if the file can not be written
+     */
+    public static void write(Path path, Snapshot snapshot) throws IOException {
+        long start = System.nanoTime();
+        GameEvents.Save event = null;
+        if (GameEvents.SAVE.isEnabled()) {
+            event = new GameEvents.Save();
+            event.begin();
+        }
+        Board board = snapshot.getBoard();
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) fileSize(board.getBoardX(), board.getBoardY()));
+        encode(snapshot, buffer);
+        buffer.flip();
+        replace(path, buffer);
+        if (event != null) {
+            event.bytes = buffer.capacity();
+            event.commit();
+        }
+        Metrics.SAVE.recordSince(start);
+        Metrics.SAVE_BYTES.record(buffer.capacity());
+    }
+
+    /**
+     * Replaces a file with the remaining bytes of a buffer. The bytes are written to a temporary file next to it,
+     * forced to disk and then renamed over the old file
+     *
+     * @param path   Path of the file
+     * @param buffer ByteBuffer of the new contents
+     *
+     * @throws IOException if the file can not be written
+     */
+    static void replace(Path path, ByteBuffer buffer) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        forceDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Forces a directory to disk so a rename in it survives a crash. Not every platform can open a directory,
+     * where it can not the rename is left to the file system
+     *
+     * @param directory Path of the directory
+     */
+    private static void forceDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            //Directories can not be opened on every platform (i.e. Windows)
+        }
+    }
+
+    /**
+     * Writes a snapshot in the save format, including the checksum, at the position of the buffer
+     *
+     * @param snapshot Snapshot to write
+     * @param out      ByteBuffer with at least fileSize() bytes remaining
+     */
+    static void encode(Snapshot snapshot, ByteBuffer out) {
+        Board board = snapshot.getBoard();
+        int start = out.position();
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        out.putShort((short) PLANES.length);
+        out.putInt(snapshot.getLifetimeWins());
+        out.putInt(snapshot.getLifetimeLosses());
+        out.put((byte) snapshot.getDifficulty().ordinal());
+        out.put((byte) (snapshot.isFirstClick() ? 1 : 0));
+        out.put((byte) (snapshot.isNoGuess() ? OPTION_NO_GUESS : 0));
+        out.put((byte) 0);
+        out.putInt(snapshot.getScale());
+        out.putInt(board.getBoardX());
+        out.putInt(board.getBoardY());
+        out.putInt(board.getNumberOfMines());
+        out.putLong(snapshot.getSeed());
+        out.putLong(snapshot.getJournalSequence());
+        while (out.position() - start < HEADER_BYTES) {
+            out.put((byte) 0);
+        }
+        for (int flag : PLANES) {
+            board.writePlane(flag, out);
+        }
+
+        CRC32 crc = new CRC32();
+        ByteBuffer written = out.duplicate();
+        written.position(start).limit(out.position());
+        crc.update(written);
+        out.putInt((int) crc.getValue());
+    }
+
+    /**
+     * Reads a save file in either the binary format or the older serialized format
+     *
+     * @param path Path of the file
+     *
+     * @return Snapshot of the saved game
+     *
+     * @throws IOException if the file can not be read or is not a valid save file
+     */
+    public static Snapshot read(Path path) throws IOException {
+        long start = System.nanoTime();
+        GameEvents.Load event = null;
+        if (GameEvents.LOAD.isEnabled()) {
+            event = new GameEvents.Load();
+            event.begin();
+        }
+        Snapshot snapshot;
+        long size;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            if (size > fileSize(HEADER_BYTES, 1, Board.MAX_CELLS)) {
+                throw new IOException("Save file is " + size + " bytes, too large for any board");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                //Keep reading until the file is in the buffer
+            }
+            buffer.flip();
+
+            if (buffer.remaining() >= 2 && (buffer.getShort(0) & 0xFFFF) == LEGACY_MAGIC) {
+                snapshot = readLegacy(path);
+            } else {
+                snapshot = decode(buffer);
+            }
+        }
+        if (event != null) {
+            event.bytes = size;
+            event.commit();
+        }
+        Metrics.LOAD.recordSince(start);
+        Metrics.LOAD_BYTES.record(size);
+        return snapshot;
+    }
+
+    /**
+     * Reads a snapshot in the save format from the position of the buffer
+     *
+     * @param in ByteBuffer holding the whole file
+     *
+     * @return Snapshot of the saved game
+     *
+     * @throws IOException if the buffer does not hold a valid save file
+     */
+    static Snapshot decode(ByteBuffer in) throws IOException {
+        int start = in.position();
+        if (in.remaining() < HEADER_BYTES + 4 || in.getInt() != MAGIC) {
+            throw new IOException("Not a save file");
+        }
+        short version = in.getShort();
+        if (version > VERSION) {
+            throw new IOException("Save file version " + version + " is newer than this game supports");
+        }
+        int planes = in.getShort();
+        int wins = in.getInt();
+        int losses = in.getInt();
+        int difficulty = in.get();
+        boolean firstClick = in.get() != 0;
+        boolean noGuess = (in.get() & OPTION_NO_GUESS) != 0;
+        in.get();
+        int scale = in.getInt();
+        int boardX = in.getInt();
+        int boardY = in.getInt();
+        int mines = in.getInt();
+        int headerBytes = VERSION_1_HEADER_BYTES;
+        long seed = new SplittableRandom().nextLong();
+        long journalSequence = 0;
+        if (version >= 2) {
+            headerBytes = HEADER_BYTES;
+            seed = in.getLong();
+            journalSequence = in.getLong();
+        }
+
+        GameManager.Difficulty[] difficulties = GameManager.Difficulty.values();
+        if (difficulty < 0 || difficulty >= difficulties.length || planes != PLANES.length || boardX <= 0
+                || boardY <= 0 || (long) boardX * boardY > Integer.MAX_VALUE - 63) {
+            throw new IOException("Corrupt save file header");
+        }
+        long size = fileSize(headerBytes, boardX, boardY);
+        if (in.limit() - start != size) {
+            throw new IOException("Save file is " + (in.limit() - start) + " bytes, expected " + size);
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer body = in.duplicate();
+        body.position(start).limit((int) (start + size - 4));
+        crc.update(body);
+        if (in.getInt((int) (start + size - 4)) != (int) crc.getValue()) {
+            throw new IOException("Save file checksum does not match");
+        }
+
+        Board board = new Board(boardX, boardY, mines);
+        in.position(start + headerBytes);
+        for (int flag : PLANES) {
+            board.readPlane(flag, in);
+        }
+        board.rebuild();
+        return new Snapshot(wins, losses, board, firstClick, difficulties[difficulty], scale, seed, journalSequence,
+                noGuess);
+    }
+
+    /**
+     * Reads a save file written with Java serialization, before the binary format
+     *
+     * @param path Path of the file
+     *
+     * @return Snapshot of the saved game
+     *
+     * @throws IOException if the file can not be read or deserialized
+     */
+    private static Snapshot readLegacy(Path path) throws IOException {
+        try (InputStream fs = Files.newInputStream(path); ObjectInputStream os = new ObjectInputStream(fs)) {
+            int wins = (int) os.readObject();
+            int losses = (int) os.readObject();
+            Board board = (Board) os.readObject();
+            boolean firstClick = (boolean) os.readObject();
+            GameManager.Difficulty difficulty = (GameManager.Difficulty) os.readObject();
+            int scale = (int) os.readObject();
+            return new Snapshot(wins, losses, board, firstClick, difficulty, scale, new SplittableRandom().nextLong(),
+                    0, false);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Corrupt legacy save file", e);
+        }
+    }
+
+    /**
+     * Everything stored in a save file
+     */
+    public static final class Snapshot {
+
+        private final int lifetimeWins;
+        private final int lifetimeLosses;
+        private final Board board;
+        private final boolean firstClick;
+        private final GameManager.Difficulty difficulty;
+        private final int scale;
+        private final long seed;
+        private final long journalSequence;
+        private final boolean noGuess;
+
+        /**
+         * Constructor for the Snapshot
+         *
+         * @param lifetimeWins    int of the lifetime wins
+         * @param lifetimeLosses  int of the lifetime losses
+         * @param board           Board of the current game
+         * @param firstClick      boolean whether the mines still have to be generated
+         * @param difficulty      Difficulty enum (see GameManager) of the board
+         * @param scale           int of the BoardView scale
+         * @param seed            long seed the mines are generated from on the first click
+         * @param journalSequence long sequence number of the first journal entry not in the snapshot
+         * @param noGuess         boolean whether boards are generated to need no guessing
+         */
+        public Snapshot(int lifetimeWins, int lifetimeLosses, Board board, boolean firstClick,
+                        GameManager.Difficulty difficulty, int scale, long seed, long journalSequence,
+                        boolean noGuess) {
+            this.lifetimeWins = lifetimeWins;
+            this.lifetimeLosses = lifetimeLosses;
+            this.board = board;
+            this.firstClick = firstClick;
+            this.difficulty = difficulty;
+            this.scale = scale;
+            this.seed = seed;
+            this.journalSequence = journalSequence;
+            this.noGuess = noGuess;
+        }
+
+        /**
+         * Accessor for the lifetimeWins field
+         *
+         * @return int of the lifetime wins
+         */
+        public int getLifetimeWins() {
+            return lifetimeWins;
+        }
+
+        /**
+         * Accessor for the lifetimeLosses field
+         *
+         * @return int of the lifetime losses
+         */
+        public int getLifetimeLosses() {
+            return lifetimeLosses;
+        }
+
+        /**
+         * Accessor for the board field
+         *
+         * @return Board of the saved game
+         */
+        public Board getBoard() {
+            return board;
+        }
+
+        /**
+         * Accessor for the firstClick field
+         *
+         * @return boolean whether the mines still have to be generated
+         */
+        public boolean isFirstClick() {
+            return firstClick;
+        }
+
+        /**
+         * Accessor for the difficulty field
+         *
+         * @return Difficulty enum of the saved board
+         */
+        public GameManager.Difficulty getDifficulty() {
+            return difficulty;
+        }
+
+        /**
+         * Accessor for the scale field
+         *
+         * @return int of the BoardView scale
+         */
+        public int getScale() {
+            return scale;
+        }
+
+        /**
+         * Accessor for the seed field
+         *
+         * @return long seed the mines are generated from on the first click
+         */
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * Accessor for the journalSequence field
+         *
+         * @return long sequence number of the first journal entry not in the snapshot
+         */
+        public long getJournalSequence() {
+            return journalSequence;
+        }
+
+        /**
+         * Accessor for the noGuess field
+         *
+         * @return boolean whether boards are generated to need no guessing
+         */
+        public boolean isNoGuess() {
+            return noGuess;
+        }
+    }
+}
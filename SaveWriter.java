@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * <p>The <b>SaveWriter</b> writes save files on a background thread so saving never blocks the GUI.</p>
+ * <p>Each save is given a snapshot that no other thread changes (see Board.copy()). Only the newest snapshot waiting
+ * to be written is kept, so saves requested while a write is running coalesce into one write of the latest state.</p>
+ */
+public class SaveWriter {
+
+    private final Path path;
+    private final Thread thread;
+    /**
+     * The newest snapshot not yet being written, or null. Guarded by this
+     */
+    private SaveFile.Snapshot pending;
+    private Runnable pendingCallback;
+    private boolean writing;
+    private boolean closed;
+    private long writes;
+
+    /**
+     * Constructor for the SaveWriter, starts the writer thread
+     *
+     * @param path Path of the save file
+     */
+    public SaveWriter(Path path) {
+        this.path = path;
+        thread = new Thread(this::run, "save-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a snapshot to be saved, replacing any snapshot still waiting to be written
+     *
+     * @param snapshot Snapshot to save
+     */
+    public void save(SaveFile.Snapshot snapshot) {
+        save(snapshot, null);
+    }
+
+    /**
+     * Queues a snapshot to be saved, replacing any snapshot still waiting to be written (whose callback is dropped)
+     *
+     * @param snapshot  Snapshot to save
+     * @param onWritten Runnable run on the writer thread once the snapshot is safely on disk, or null
+     */
+    public synchronized void save(SaveFile.Snapshot snapshot, Runnable onWritten) {
+        if (closed) {
+            throw new IllegalStateException("SaveWriter is closed");
+        }
+        pending = snapshot;
+        pendingCallback = onWritten;
+        notifyAll();
+    }
+
+    /**
+     * Waits until every queued snapshot has been written
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public synchronized void awaitIdle() throws InterruptedException {
+        while (writing || pending != null) {
+            wait();
+        }
+    }
+
+    /**
+     * Saves a final snapshot and stops the writer. Any snapshot still waiting is dropped in favour of the final one,
+     * so this only waits for the write in progress (if any) and the final write
+     *
+     * @param snapshot  Snapshot to save last
+     * @param onWritten Runnable run on the writer thread once the snapshot is safely on disk, or null
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void close(SaveFile.Snapshot snapshot, Runnable onWritten) throws InterruptedException {
+        synchronized (this) {
+            save(snapshot, onWritten);
+            closed = true;
+            notifyAll();
+        }
+        thread.join();
+    }
+
+    /**
+     * Returns the number of snapshots written so far
+     *
+     * @return long of the completed writes
+     */
+    public synchronized long getWrites() {
+        return writes;
+    }
+
+    /**
+     * Body of the writer thread, writes the newest snapshot until the writer is closed and nothing is left to write
+     */
+    private void run() {
+        while (true) {
+            SaveFile.Snapshot snapshot;
+            Runnable onWritten;
+            synchronized (this) {
+                while (pending == null && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending == null) {
+                    return;
+                }
+                snapshot = pending;
+                onWritten = pendingCallback;
+                pending = null;
+                pendingCallback = null;
+                writing = true;
+            }
+
+            try {
+                SaveFile.write(path, snapshot);
+                if (onWritten != null) {
+                    onWritten.run();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                synchronized (this) {
+                    writing = false;
+                    writes++;
+                    notifyAll();
+                }
+            }
+        }
+    }
+}
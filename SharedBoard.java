@@ -0,0 +1,470 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A <b>SharedBoard</b> is one board played by many players at once, human or bot, each on their own thread.</p>
+ * <p>The mines and adjacent mine counts are fixed when the board is created. Only the revealed and flagged bits
+ * change, and they are packed 32 cells to a long in an atomic array and changed with compare-and-set, so no lock is
+ * ever taken. A cell is revealed by exactly one player, the one whose compare-and-set succeeded, and only that player
+ * carries a flood fill on from it, so fills started by different players can run into each other safely.</p>
+ * <p>The number of flags and revealed safe cells are kept in striped counters (LongAdder), so players updating them
+ * at the same time do not contend. The totals read from them are exact once no move is running.</p>
+ * <p>Revealing a mine does not end the shared game: the mine stays revealed and the move is a loss for the player who
+ * made it. The game is won once every safe cell is revealed.</p>
+ * <p><b>GameServer</b> sessions play them together in rooms, see OP_JOIN_ROOM.</p>
+ */
+public class SharedBoard {
+
+    /**
+     * Bits of a cell in the packed state array
+     */
+    static final int REVEALED = 1;
+    static final int FLAGGED = 1 << 1;
+    private static final int CELL_BITS = 2;
+    private static final int CELLS_PER_WORD = 64 / CELL_BITS;
+    /**
+     * Bit of a cell in the fixed cell array, the low bits hold the number of adjacent mines
+     */
+    private static final int MINE = 1 << 4;
+    private static final int ADJACENT_MASK = 0xF;
+
+    private final int boardX;
+    private final int boardY;
+    private final int numberOfMines;
+    private final byte[] cells;
+    private final AtomicLongArray state;
+    private final LongAdder flags = new LongAdder();
+    private final LongAdder revealedSafeCells = new LongAdder();
+    private final LongAdder minesHit = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    /**
+     * Constructor for the SharedBoard, generates the mines so the given cell and its neighbours are safe
+     *
+     * @param boardX        int of the width of the board
+     * @param boardY        int of the height of the board
+     * @param numberOfMines int of the number of mines
+     * @param seed          long seed for the mine positions
+     * @param safeX         x position of the cell every player can start from
+     * @param safeY         y position of the cell every player can start from
+     *
+     * @throws IllegalArgumentException if the size is not valid (see Board.checkSize)
+     */
+    public SharedBoard(int boardX, int boardY, int numberOfMines, long seed, int safeX, int safeY) {
+        Board.checkSize(boardX, boardY, numberOfMines);
+        this.boardX = boardX;
+        this.boardY = boardY;
+        this.numberOfMines = numberOfMines;
+
+        Board board = new Board(boardX, boardY, numberOfMines);
+        board.setSafeCells(safeX, safeY);
+        board.generateMines(seed);
+        cells = new byte[boardX * boardY];
+        for (int x = 0; x < boardX; x++) {
+            for (int y = 0; y < boardY; y++) {
+                int mine = board.isMine(x, y) ? MINE : 0;
+                cells[x * boardY + y] = (byte) (mine | board.getAdjacentMines(x, y));
+            }
+        }
+        state = new AtomicLongArray((cells.length + CELLS_PER_WORD - 1) / CELLS_PER_WORD);
+    }
+
+    /**
+     * Creates a player of the board. A player must only be used by one thread at a time
+     *
+     * @return Player of the board
+     */
+    public Player join() {
+        return new Player();
+    }
+
+    /**
+     * Accessor for the boardX field
+     *
+     * @return int of the width of the board
+     */
+    public int getBoardX() {
+        return boardX;
+    }
+
+    /**
+     * Accessor for the boardY field
+     *
+     * @return int of the height of the board
+     */
+    public int getBoardY() {
+        return boardY;
+    }
+
+    /**
+     * Accessor for the numberOfMines field
+     *
+     * @return int of the number of mines
+     */
+    public int getNumberOfMines() {
+        return numberOfMines;
+    }
+
+    /**
+     * Returns whether a cell is a mine
+     *
+     * @param x x position of the cell
+     * @param y y position of the cell
+     *
+     * @return boolean whether the cell is a mine
+     */
+    public boolean isMine(int x, int y) {
+        return (cells[x * boardY + y] & MINE) != 0;
+    }
+
+    /**
+     * Returns the number of mines around a cell
+     *
+     * @param x x position of the cell
+     * @param y y position of the cell
+     *
+     * @return int of the adjacent mines
+     */
+    public int getAdjacentMines(int x, int y) {
+        return cells[x * boardY + y] & ADJACENT_MASK;
+    }
+
+    /**
+     * Returns whether a cell has been revealed
+     *
+     * @param x x position of the cell
+     * @param y y position of the cell
+     *
+     * @return boolean whether the cell is revealed
+     */
+    public boolean isRevealed(int x, int y) {
+        return (bits(x * boardY + y) & REVEALED) != 0;
+    }
+
+    /**
+     * Returns whether a cell has been flagged
+     *
+     * @param x x position of the cell
+     * @param y y position of the cell
+     *
+     * @return boolean whether the cell is flagged
+     */
+    public boolean isFlagged(int x, int y) {
+        return (bits(x * boardY + y) & FLAGGED) != 0;
+    }
+
+    /**
+     * Returns the number of mines minus the number of flags
+     *
+     * @return int of the mines left
+     */
+    public int minesLeft() {
+        return (int) (numberOfMines - flags.sum());
+    }
+
+    /**
+     * Returns the number of safe cells that have not been revealed
+     *
+     * @return int of the safe cells left
+     */
+    public int nonMinesLeft() {
+        return (int) (cells.length - numberOfMines - revealedSafeCells.sum());
+    }
+
+    /**
+     * Returns the number of mines revealed by players
+     *
+     * @return long of the mines hit
+     */
+    public long getMinesHit() {
+        return minesHit.sum();
+    }
+
+    /**
+     * Returns the number of compare-and-set attempts that failed because another player changed the same word first,
+     * a measure of how much the players contend
+     *
+     * @return long of the retries
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * Returns whether every safe cell has been revealed
+     *
+     * @return boolean whether the game is won
+     */
+    public boolean isWon() {
+        return nonMinesLeft() == 0;
+    }
+
+    /**
+     * Returns the state bits of a cell
+     *
+     * @param index int index of the cell
+     *
+     * @return int of the REVEALED and FLAGGED bits
+     */
+    private int bits(int index) {
+        return (int) (state.get(index / CELLS_PER_WORD) >>> shift(index)) & (REVEALED | FLAGGED);
+    }
+
+    /**
+     * Returns the position of a cell's bits in its word
+     *
+     * @param index int index of the cell
+     *
+     * @return int of the shift
+     */
+    private static int shift(int index) {
+        return (index % CELLS_PER_WORD) * CELL_BITS;
+    }
+
+    /**
+     * Reveals a cell unless it is already revealed, updating the counters
+     *
+     * @param index  int index of the cell
+     * @param unflag boolean whether a flagged cell is unflagged and revealed (as in a flood fill) or left alone
+     *
+     * @return boolean whether this call revealed it
+     */
+    private boolean tryReveal(int index, boolean unflag) {
+        int word = index / CELLS_PER_WORD;
+        int shift = shift(index);
+        int blocking = unflag ? REVEALED : REVEALED | FLAGGED;
+        while (true) {
+            long old = state.get(word);
+            long bits = old >>> shift;
+            if ((bits & blocking) != 0) {
+                return false;
+            }
+            long revealed = (old & ~((long) FLAGGED << shift)) | ((long) REVEALED << shift);
+            if (state.compareAndSet(word, old, revealed)) {
+                if ((bits & FLAGGED) != 0) {
+                    flags.decrement();
+                }
+                if ((cells[index] & MINE) != 0) {
+                    minesHit.increment();
+                } else {
+                    revealedSafeCells.increment();
+                }
+                return true;
+            }
+            retries.increment();
+        }
+    }
+
+    /**
+     * Flags or unflags a cell unless it is revealed, updating the counter
+     *
+     * @param index int index of the cell
+     *
+     * @return boolean whether this call changed it
+     */
+    private boolean tryToggleFlag(int index) {
+        int word = index / CELLS_PER_WORD;
+        int shift = shift(index);
+        while (true) {
+            long old = state.get(word);
+            long bits = old >>> shift;
+            if ((bits & REVEALED) != 0) {
+                return false;
+            }
+            if (state.compareAndSet(word, old, old ^ ((long) FLAGGED << shift))) {
+                if ((bits & FLAGGED) != 0) {
+                    flags.decrement();
+                } else {
+                    flags.increment();
+                }
+                return true;
+            }
+            retries.increment();
+        }
+    }
+
+    /**
+     * <p>A <b>Player</b> makes moves on the shared board. It holds the work queue and the changes of its moves, so
+     * players never share anything but the board.</p>
+     */
+    public class Player {
+
+        private final CellChanges changes = new CellChanges();
+        private final int[] neighbours = new int[9];
+        private int[] queue = new int[64];
+
+        /**
+         * Constructor for the Player, see SharedBoard.join
+         */
+        private Player() {
+        }
+
+        /**
+         * Accessor for the board the player is on
+         *
+         * @return SharedBoard being played
+         */
+        public SharedBoard getBoard() {
+            return SharedBoard.this;
+        }
+
+        /**
+         * Reveals a cell, opening the region around it if it has no adjacent mines
+         *
+         * @param x x position of the cell
+         * @param y y position of the cell
+         *
+         * @return MoveResult of the move, IGNORED if the cell is flagged or someone else revealed it first
+         */
+        public MoveResult reveal(int x, int y) {
+            changes.clear();
+            int index = x * boardY + y;
+            if (!tryReveal(index, false)) {
+                return new MoveResult(MoveResult.Move.REVEAL, x, y, MoveResult.Outcome.IGNORED, changes);
+            }
+            changes.add(x, y);
+            boolean hitMine = (cells[index] & MINE) != 0;
+            if (!hitMine) {
+                flood(index);
+            }
+            return finishMove(MoveResult.Move.REVEAL, x, y, hitMine);
+        }
+
+        /**
+         * Flags an unrevealed cell, or removes the flag if it is already flagged
+         *
+         * @param x x position of the cell
+         * @param y y position of the cell
+         *
+         * @return MoveResult of the move, IGNORED if the cell is revealed
+         */
+        public MoveResult toggleFlag(int x, int y) {
+            changes.clear();
+            if (!tryToggleFlag(x * boardY + y)) {
+                return new MoveResult(MoveResult.Move.FLAG, x, y, MoveResult.Outcome.IGNORED, changes);
+            }
+            changes.add(x, y);
+            return new MoveResult(MoveResult.Move.FLAG, x, y, MoveResult.Outcome.CONTINUE, changes);
+        }
+
+        /**
+         * Reveals every unflagged neighbour of a revealed cell, when the number of flags around it matches the number
+         * of mines around it, not counting the cell itself if it is a revealed mine. The flags are read once, other
+         * players may change them while the neighbours are revealed
+         *
+         * @param x x position of the cell
+         * @param y y position of the cell
+         *
+         * @return MoveResult of the move, IGNORED if the cell is not revealed or the flags do not match
+         */
+        public MoveResult chord(int x, int y) {
+            changes.clear();
+            if (!isRevealed(x, y)) {
+                return new MoveResult(MoveResult.Move.CHORD, x, y, MoveResult.Outcome.IGNORED, changes);
+            }
+            int index = x * boardY + y;
+            int count = adjacentIndices(index);
+            int flagged = 0;
+            for (int i = 0; i < count; i++) {
+                if ((bits(neighbours[i]) & FLAGGED) != 0) {
+                    flagged++;
+                }
+            }
+            //The adjacent count includes the cell itself, and on a shared board a revealed mine stays in play
+            int around = (cells[index] & ADJACENT_MASK) - ((cells[index] & MINE) != 0 ? 1 : 0);
+            if (flagged != around) {
+                return new MoveResult(MoveResult.Move.CHORD, x, y, MoveResult.Outcome.IGNORED, changes);
+            }
+
+            int[] targets = Arrays.copyOf(neighbours, count);
+            boolean hitMine = false;
+            for (int n : targets) {
+                if (tryReveal(n, false)) {
+                    changes.add(n / boardY, n % boardY);
+                    if ((cells[n] & MINE) != 0) {
+                        hitMine = true;
+                    } else {
+                        flood(n);
+                    }
+                }
+            }
+            return finishMove(MoveResult.Move.CHORD, x, y, hitMine);
+        }
+
+        /**
+         * Opens the region with no adjacent mines around a cell this player has just revealed, unflagging its cells.
+         * The cells around a cell with no adjacent mines are never mines, so only safe cells are revealed.
+         * Each cell is only carried on from by the player that revealed it, so regions opened by several players at
+         * once are each opened exactly once between them
+         *
+         * @param start int index of the revealed cell
+         */
+        private void flood(int start) {
+            if ((cells[start] & ADJACENT_MASK) != 0) {
+                return;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            while (head < tail) {
+                int count = adjacentIndices(queue[head++]);
+                for (int i = 0; i < count; i++) {
+                    int n = neighbours[i];
+                    if (tryReveal(n, true)) {
+                        changes.add(n / boardY, n % boardY);
+                        if ((cells[n] & ADJACENT_MASK) == 0) {
+                            if (tail == queue.length) {
+                                queue = Arrays.copyOf(queue, tail * 2);
+                            }
+                            queue[tail++] = n;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Fills the neighbours array with the indices of the cells around a cell
+         *
+         * @param index int index of the cell
+         *
+         * @return int of the number of neighbours
+         */
+        private int adjacentIndices(int index) {
+            int x = index / boardY;
+            int y = index % boardY;
+            int count = 0;
+            for (int i = Math.max(0, x - 1); i <= Math.min(boardX - 1, x + 1); i++) {
+                for (int j = Math.max(0, y - 1); j <= Math.min(boardY - 1, y + 1); j++) {
+                    if (i != x || j != y) {
+                        neighbours[count++] = i * boardY + j;
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Works out the outcome of a move
+         *
+         * @param move    Move enum of the move
+         * @param x       x position of the cell the move was made on
+         * @param y       y position of the cell the move was made on
+         * @param hitMine boolean whether the move revealed a mine
+         *
+         * @return MoveResult of the move
+         */
+        private MoveResult finishMove(MoveResult.Move move, int x, int y, boolean hitMine) {
+            MoveResult.Outcome outcome;
+            if (hitMine) {
+                outcome = MoveResult.Outcome.LOSE;
+            } else if (isWon()) {
+                outcome = MoveResult.Outcome.WIN;
+            } else {
+                outcome = MoveResult.Outcome.CONTINUE;
+            }
+            return new MoveResult(move, x, y, outcome, changes);
+        }
+    }
+}
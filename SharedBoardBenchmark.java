@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p><b>SharedBoardBenchmark</b> measures how the throughput of a <b>SharedBoard</b> scales with the number of
+ * players writing to it, doubling from 1 thread up to the given maximum.</p>
+ * <p>Every player reveals (80%) and flags (20%) random cells, either anywhere on the board or, to force contention,
+ * only inside a small hot region in the middle. Each step starts from a new board with the same seed, and checks
+ * afterwards that the striped counters match a scan of the board.</p>
+ * <p>Usage: java SharedBoardBenchmark [max threads] [seconds per step] [width] [height] [mines] [hot region size,
+ * 0 for the whole board]</p>
+ */
+public class SharedBoardBenchmark {
+
+    /**
+     * Main method to run the benchmark from the command line
+     *
+     * @param args max threads, seconds per step, board size, mines and hot region size, all optional
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for the players
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+        int width = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int height = args.length > 3 ? Integer.parseInt(args[3]) : 2000;
+        int mines = args.length > 4 ? Integer.parseInt(args[4]) : width * height / 6;
+        int hot = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+
+        System.out.println("SharedBoard " + width + "x" + height + ", " + mines + " mines, "
+                + (hot > 0 ? hot + "x" + hot + " hot region" : "whole board") + ", " + seconds + " s per step, "
+                + Runtime.getRuntime().availableProcessors() + " cores");
+        System.out.printf("%8s %14s %10s %14s %12s %10s%n", "threads", "moves/sec", "speedup", "cells revealed",
+                "CAS retries", "counters");
+        //Warm up on a board of its own so the single thread step is not measured before the JIT has compiled it
+        run(new SharedBoard(width, height, mines, 1, width / 2, height / 2), 1, seconds, hot);
+        double base = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            SharedBoard board = new SharedBoard(width, height, mines, 1, width / 2, height / 2);
+            double rate = run(board, threads, seconds, hot);
+            if (threads == 1) {
+                base = rate;
+            }
+            System.out.printf("%8d %14.0f %9.2fx %14d %12d %10s%n", threads, rate, rate / base,
+                    (long) width * height - mines - board.nonMinesLeft(), board.getRetries(),
+                    countersMatch(board) ? "ok" : "MISMATCH");
+        }
+    }
+
+    /**
+     * Runs the players on one board until a shared deadline
+     *
+     * @param board   SharedBoard to play on
+     * @param threads int of the number of players, each on its own thread
+     * @param seconds double of how long to play for
+     * @param hot     int of the size of the hot region, 0 for the whole board
+     *
+     * @return double of the moves made per second of wall clock time
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for the players
+     */
+    private static double run(SharedBoard board, int threads, double seconds, int hot) throws InterruptedException {
+        LongAdder moves = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> players = new ArrayList<>();
+        int width = hot > 0 ? Math.min(hot, board.getBoardX()) : board.getBoardX();
+        int height = hot > 0 ? Math.min(hot, board.getBoardY()) : board.getBoardY();
+        int offsetX = (board.getBoardX() - width) / 2;
+        int offsetY = (board.getBoardY() - height) / 2;
+        long[] deadline = new long[1];
+
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            SharedBoard.Player player = board.join();
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long count = 0;
+                while ((count & 255) != 0 || System.nanoTime() < deadline[0]) {
+                    int x = offsetX + random.nextInt(width);
+                    int y = offsetY + random.nextInt(height);
+                    if (random.nextInt(5) == 0) {
+                        player.toggleFlag(x, y);
+                    } else {
+                        player.reveal(x, y);
+                    }
+                    count++;
+                }
+                moves.add(count);
+            }, "SharedBoard player " + t);
+            thread.start();
+            players.add(thread);
+        }
+        long begin = System.nanoTime();
+        deadline[0] = begin + (long) (seconds * 1e9);
+        start.countDown();
+        for (Thread thread : players) {
+            thread.join();
+        }
+        return moves.sum() / ((System.nanoTime() - begin) / 1e9);
+    }
+
+    /**
+     * Scans the board and checks the striped counters against it, once no player is running
+     *
+     * @param board SharedBoard to check
+     *
+     * @return boolean whether the mines left and safe cells left match the scan
+     */
+    private static boolean countersMatch(SharedBoard board) {
+        int flags = 0;
+        int hidden = 0;
+        for (int x = 0; x < board.getBoardX(); x++) {
+            for (int y = 0; y < board.getBoardY(); y++) {
+                if (board.isFlagged(x, y)) {
+                    flags++;
+                }
+                if (!board.isMine(x, y) && !board.isRevealed(x, y)) {
+                    hidden++;
+                }
+            }
+        }
+        return board.minesLeft() == board.getNumberOfMines() - flags && board.nonMinesLeft() == hidden;
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p>The <b>Simulation</b> plays many games per difficulty with the <b>Bot</b> across all cores and reports
+ * throughput, win rate, average moves and how many cells the first click opens.</p>
+ * <p>Every game is seeded from the master seed and its own index, so the results are the same for any number of
+ * threads.</p>
+ * <p>Usage: java Simulation [games per difficulty] [threads] [master seed]</p>
+ */
+public class Simulation {
+
+    /**
+     * Number of games each fork/join leaf plays on its own engine
+     */
+    private static final int GAMES_PER_TASK = 256;
+
+    private final int games;
+    private final long masterSeed;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor for the Simulation
+     *
+     * @param games      int of the number of games to play per difficulty
+     * @param threads    int of the number of worker threads
+     * @param masterSeed long seed that every game seed is derived from
+     */
+    public Simulation(int games, int threads, long masterSeed) {
+        this.games = games;
+        this.masterSeed = masterSeed;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Main method to run the simulation from the command line
+     *
+     * @param args games per difficulty, threads and master seed, all optional
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+        Simulation simulation = new Simulation(games, threads, seed);
+        System.out.println("Simulating " + games + " games per difficulty on " + threads + " threads, seed " + seed);
+        for (GameManager.Difficulty d : new GameManager.Difficulty[]{GameManager.Difficulty.BEGINNER,
+                GameManager.Difficulty.MEDIUM, GameManager.Difficulty.EXPERT}) {
+            long start = System.nanoTime();
+            Stats stats = simulation.run(d);
+            long elapsed = System.nanoTime() - start;
+            System.out.println(stats.report(d, elapsed));
+        }
+        simulation.pool.shutdown();
+    }
+
+    /**
+     * Plays every game of one difficulty
+     *
+     * @param d Difficulty enum to play
+     *
+     * @return Stats of all the games
+     */
+    public Stats run(GameManager.Difficulty d) {
+        return pool.invoke(new SimulationTask(d, 0, games));
+    }
+
+    /**
+     * Returns the seed of a game, mixed from the master seed, the difficulty and the game index
+     *
+     * @param d     Difficulty enum of the game
+     * @param index int index of the game
+     *
+     * @return long seed of the game
+     */
+    private long gameSeed(GameManager.Difficulty d, int index) {
+        long z = masterSeed + 0x9E3779B97F4A7C15L * (((long) d.ordinal() << 32) + index + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Fork/join task that splits a range of games until it is small enough to play on one engine
+     */
+    private class SimulationTask extends RecursiveTask<Stats> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final GameManager.Difficulty difficulty;
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructor for the SimulationTask
+         *
+         * @param difficulty Difficulty enum to play
+         * @param from       int index of the first game
+         * @param to         int index after the last game
+         */
+        SimulationTask(GameManager.Difficulty difficulty, int from, int to) {
+            this.difficulty = difficulty;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Plays the games, or splits them in half and combines the stats of both halves
+         *
+         * @return Stats of the games in the range
+         */
+        @Override
+        protected Stats compute() {
+            if (to - from > GAMES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                SimulationTask left = new SimulationTask(difficulty, from, middle);
+                left.fork();
+                Stats right = new SimulationTask(difficulty, middle, to).compute();
+                return left.join().add(right);
+            }
+
+            GameEngine engine = new GameEngine(difficulty, new SplittableRandom(0));
+            Bot bot = new Bot();
+            Stats stats = new Stats(engine.getBoard().getBoardX() * engine.getBoard().getBoardY());
+            for (int i = from; i < to; i++) {
+                SplittableRandom random = new SplittableRandom(gameSeed(difficulty, i));
+                engine.newGame(random.nextLong());
+                stats.record(bot.play(engine, random));
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * Totals of a set of simulated games. Stats from different threads are combined with add
+     */
+    public static class Stats {
+
+        private final long[] firstOpened;
+        private long games;
+        private long wins;
+        private long moves;
+
+        /**
+         * Constructor for the Stats
+         *
+         * @param cells int of the number of cells on the board, the most the first click can open
+         */
+        public Stats(int cells) {
+            firstOpened = new long[cells + 1];
+        }
+
+        /**
+         * Adds the result of one game
+         *
+         * @param result Bot.Result of the game
+         */
+        public void record(Bot.Result result) {
+            games++;
+            if (result.isWon()) {
+                wins++;
+            }
+            moves += result.getMoves();
+            firstOpened[result.getFirstOpened()]++;
+        }
+
+        /**
+         * Adds another set of stats to these
+         *
+         * @param other Stats to add
+         *
+         * @return this Stats object
+         */
+        public Stats add(Stats other) {
+            games += other.games;
+            wins += other.wins;
+            moves += other.moves;
+            for (int i = 0; i < firstOpened.length; i++) {
+                firstOpened[i] += other.firstOpened[i];
+            }
+            return this;
+        }
+
+        /**
+         * Formats the stats for printing
+         *
+         * @param d       Difficulty enum the games were played on
+         * @param elapsed long of the nanoseconds the games took
+         *
+         * @return String of the report
+         */
+        public String report(GameManager.Difficulty d, long elapsed) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%s: %d games in %.2f s, %.0f games/sec, win rate %.2f%%, average moves %.1f%n",
+                    d.name(), games, elapsed / 1e9, games / (elapsed / 1e9), 100.0 * wins / games,
+                    (double) moves / games));
+            sb.append("  cells opened by first click (percent of games):");
+            int[] bounds = {1, 2, 10, 20, 50, 100, 200, Integer.MAX_VALUE};
+            int lower = 0;
+            for (int bound : bounds) {
+                long count = 0;
+                for (int i = lower; i < Math.min(bound, firstOpened.length); i++) {
+                    count += firstOpened[i];
+                }
+                if (lower < firstOpened.length) {
+                    String label = bound == Integer.MAX_VALUE ? lower + "+" : bound - lower == 1 ? Integer.toString(lower) : lower + "-" + (bound - 1);
+                    sb.append(String.format(" %s: %.2f", label, 100.0 * count / games));
+                }
+                lower = bound;
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,585 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * <p>The <b>Solver</b> reads the visible state of a <b>Board</b> and works out, for every unrevealed cell, whether it
+ * is certainly safe, certainly a mine, or the exact probability that it is a mine.</p>
+ * <p>Each revealed number is a constraint on its unrevealed neighbours. The unrevealed cells next to a number (the
+ * frontier) are split into independent components that are enumerated in parallel, and the components are then
+ * combined with the number of ways the remaining mines can fill the cells away from the frontier, so the total
+ * number of mines on the board is taken into account. Flags are ignored, as they are only the player's guesses.</p>
+ */
+public class Solver {
+
+    /**
+     * Analyses the visible state of the board
+     *
+     * @param board Board to analyse, with its mines already generated
+     *
+     * @return Result with the status and probability of every cell
+     */
+    public Result solve(Board board) {
+        int cells = board.getBoardX() * board.getBoardY();
+        int[] neighbours = new int[9];
+
+        //Frontier cells get an id, the union-find joins cells that share a number
+        int[] frontierId = new int[cells];
+        Arrays.fill(frontierId, -1);
+        int[] frontier = new int[cells];
+        int frontierSize = 0;
+        List<int[]> constraints = new ArrayList<>();
+        List<Integer> values = new ArrayList<>();
+
+        for (int index = 0; index < cells; index++) {
+            int x = board.getX(index);
+            int y = board.getY(index);
+            if (!board.isRevealed(x, y) || board.isMine(x, y)) {
+                continue;
+            }
+            int count = board.getAdjacentIndices(x, y, neighbours);
+            int unknown = 0;
+            for (int i = 0; i < count; i++) {
+                if (!board.isRevealed(board.getX(neighbours[i]), board.getY(neighbours[i]))) {
+                    neighbours[unknown++] = neighbours[i];
+                }
+            }
+            if (unknown == 0) {
+                continue;
+            }
+            int[] constraint = Arrays.copyOf(neighbours, unknown);
+            for (int i = 0; i < unknown; i++) {
+                if (frontierId[constraint[i]] < 0) {
+                    frontierId[constraint[i]] = frontierSize;
+                    frontier[frontierSize++] = constraint[i];
+                }
+                constraint[i] = frontierId[constraint[i]];
+            }
+            constraints.add(constraint);
+            values.add(board.getAdjacentMines(x, y));
+        }
+
+        int[] parent = new int[frontierSize];
+        for (int i = 0; i < frontierSize; i++) {
+            parent[i] = i;
+        }
+        for (int[] constraint : constraints) {
+            for (int i = 1; i < constraint.length; i++) {
+                parent[find(parent, constraint[i])] = find(parent, constraint[0]);
+            }
+        }
+
+        //Group the cells and constraints of each component
+        int[] componentOf = new int[frontierSize];
+        Arrays.fill(componentOf, -1);
+        List<Component> components = new ArrayList<>();
+        for (int i = 0; i < frontierSize; i++) {
+            int root = find(parent, i);
+            if (componentOf[root] < 0) {
+                componentOf[root] = components.size();
+                components.add(new Component());
+            }
+            componentOf[i] = componentOf[root];
+            components.get(componentOf[i]).addCell(frontier[i]);
+        }
+        for (int c = 0; c < constraints.size(); c++) {
+            components.get(componentOf[constraints.get(c)[0]]).addConstraint(constraints.get(c), values.get(c));
+        }
+
+        if (components.size() > 1) {
+            IntStream.range(0, components.size()).parallel().forEach(c -> components.get(c).enumerate(frontierId));
+        } else {
+            for (Component component : components) {
+                component.enumerate(frontierId);
+            }
+        }
+
+        int interior = cells - board.getRevealedSafeCells() - frontierSize;
+        return combine(board, components, interior);
+    }
+
+    /**
+     * Finds the root of a union-find set, halving the path as it goes
+     *
+     * @param parent int array of parent links
+     * @param i      int of the element to find
+     *
+     * @return int of the root element
+     */
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Combines the solutions of every component with the number of ways to place the remaining mines in the interior
+     *
+     * @param board      Board being analysed
+     * @param components List of the enumerated components
+     * @param interior   int of the number of unrevealed cells that are not on the frontier
+     *
+     * @return Result of the analysis
+     */
+    private Result combine(Board board, List<Component> components, int interior) {
+        int mines = board.getNumberOfMines();
+        int n = components.size();
+
+        //Prefix and suffix convolutions, so each component can be combined with all of the others
+        double[][] prefix = new double[n + 1][];
+        double[][] suffix = new double[n + 1][];
+        prefix[0] = new double[]{1};
+        suffix[n] = new double[]{1};
+        for (int c = 0; c < n; c++) {
+            prefix[c + 1] = convolve(prefix[c], components.get(c).solutions);
+        }
+        for (int c = n - 1; c >= 0; c--) {
+            suffix[c] = convolve(suffix[c + 1], components.get(c).solutions);
+        }
+        double[] interiorWeights = interiorWeights(mines, interior, prefix[n].length - 1);
+
+        Result result = new Result(board);
+        for (int c = 0; c < n; c++) {
+            Component component = components.get(c);
+            double[] others = convolve(prefix[c], suffix[c + 1]);
+            double[] weights = new double[component.solutions.length];
+            boolean[] feasible = new boolean[component.solutions.length];
+            double total = 0;
+            for (int k = 0; k < weights.length; k++) {
+                if (component.solutions[k] == 0) {
+                    continue;
+                }
+                for (int j = 0; j < others.length; j++) {
+                    int left = mines - k - j;
+                    if (others[j] > 0 && left >= 0 && left <= interior) {
+                        weights[k] += others[j] * interiorWeights[left];
+                        feasible[k] = true;
+                    }
+                }
+                total += component.solutions[k] * weights[k];
+            }
+
+            for (int i = 0; i < component.size; i++) {
+                double mine = 0;
+                boolean possibleMine = false;
+                boolean possibleSafe = false;
+                for (int k = 0; k < weights.length; k++) {
+                    if (!feasible[k]) {
+                        continue;
+                    }
+                    mine += component.mineCounts[k][i] * weights[k];
+                    possibleMine |= component.mineCounts[k][i] > 0;
+                    possibleSafe |= component.someSafe[k][i];
+                }
+                result.set(component.cells[i], total > 0 ? mine / total : 0, possibleMine, possibleSafe);
+            }
+        }
+
+        //Every interior cell has the same probability, the expected share of the mines left for the interior
+        if (interior > 0) {
+            double[] all = prefix[n];
+            double expected = 0;
+            double total = 0;
+            boolean possibleMine = false;
+            boolean possibleSafe = false;
+            for (int k = 0; k < all.length; k++) {
+                int left = mines - k;
+                if (all[k] == 0 || left < 0 || left > interior) {
+                    continue;
+                }
+                double weight = all[k] * interiorWeights[left];
+                expected += weight * left;
+                total += weight;
+                possibleMine |= left > 0;
+                possibleSafe |= left < interior;
+            }
+            double probability = total > 0 ? expected / total / interior : 0;
+            for (int index = 0; index < result.status.length; index++) {
+                if (result.status[index] == null) {
+                    result.set(index, probability, possibleMine, possibleSafe);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the relative number of ways to place each number of mines in the interior, i.e. interior choose r,
+     * scaled so the largest value used is 1 to stay within the range of a double. Very unlikely counts can round to 0,
+     * so these weights are only used for probabilities and never to decide whether a count is possible
+     *
+     * @param mines        int of the number of mines on the board
+     * @param interior     int of the number of interior cells
+     * @param frontierMost int of the most mines the frontier can hold
+     *
+     * @return double array indexed by the number of interior mines
+     */
+    private static double[] interiorWeights(int mines, int interior, int frontierMost) {
+        double[] logWeights = new double[interior + 1];
+        for (int r = 0; r < interior; r++) {
+            logWeights[r + 1] = logWeights[r] + Math.log((double) (interior - r) / (r + 1));
+        }
+        int from = Math.max(0, mines - frontierMost);
+        int to = Math.min(interior, mines);
+        double max = Double.NEGATIVE_INFINITY;
+        for (int r = from; r <= to; r++) {
+            max = Math.max(max, logWeights[r]);
+        }
+        double[] weights = new double[interior + 1];
+        for (int r = from; r <= to; r++) {
+            weights[r] = Math.exp(logWeights[r] - max);
+        }
+        return weights;
+    }
+
+    /**
+     * Convolves two distributions over a number of mines, scaling the result so the largest value is 1
+     *
+     * @param a double array of the first distribution
+     * @param b double array of the second distribution
+     *
+     * @return double array of the combined distribution
+     */
+    private static double[] convolve(double[] a, double[] b) {
+        double[] result = new double[a.length + b.length - 1];
+        double max = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == 0) {
+                continue;
+            }
+            for (int j = 0; j < b.length; j++) {
+                result[i + j] += a[i] * b[j];
+            }
+        }
+        for (double v : result) {
+            max = Math.max(max, v);
+        }
+        if (max > 0) {
+            for (int i = 0; i < result.length; i++) {
+                result[i] /= max;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * An independent group of frontier cells and the numbers that constrain them.
+     * Cells touched by exactly the same numbers are interchangeable, so they are enumerated together as one group by
+     * how many mines the group holds, weighted by the number of ways to arrange them
+     */
+    private static class Component {
+
+        private int[] cells = new int[8];
+        private int size;
+        private final List<int[]> constraints = new ArrayList<>();
+        private final List<Integer> values = new ArrayList<>();
+
+        /**
+         * Number of solutions and, per cell, number of solutions where the cell is a mine, by number of mines.
+         * someSafe records whether any solution with that number of mines leaves the cell safe
+         */
+        private double[] solutions;
+        private double[][] mineCounts;
+        private boolean[][] someSafe;
+
+        private int groupCount;
+        private int[] groupSize;
+        private int[][] groupConstraints;
+        private int[] order;
+        private int[] groupMines;
+        private double[][] groupMineCounts;
+        private boolean[][] groupSomeSafe;
+        private double[][] binomial;
+        private int[] remainingMines;
+        private int[] remainingCells;
+
+        /**
+         * Adds a frontier cell
+         *
+         * @param index int board index of the cell
+         */
+        void addCell(int index) {
+            if (size == cells.length) {
+                cells = Arrays.copyOf(cells, size * 2);
+            }
+            cells[size++] = index;
+        }
+
+        /**
+         * Adds a constraint
+         *
+         * @param constraint int array of the frontier ids of the constrained cells
+         * @param value      int of the number of mines among them
+         */
+        void addConstraint(int[] constraint, int value) {
+            constraints.add(constraint);
+            values.add(value);
+        }
+
+        /**
+         * Enumerates every assignment of mines to the cells that satisfies all of the constraints
+         *
+         * @param frontierId int array mapping board indices to frontier ids
+         */
+        void enumerate(int[] frontierId) {
+            //Collect the constraints of each cell, by frontier id
+            Map<Integer, Integer> localOf = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                localOf.put(frontierId[cells[i]], i);
+            }
+            List<List<Integer>> cellConstraints = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                cellConstraints.add(new ArrayList<>());
+            }
+            for (int c = 0; c < constraints.size(); c++) {
+                for (int id : constraints.get(c)) {
+                    cellConstraints.get(localOf.get(id)).add(c);
+                }
+            }
+
+            //Group cells with the same constraints
+            Map<List<Integer>, Integer> groupOf = new HashMap<>();
+            int[] cellGroup = new int[size];
+            List<List<Integer>> groups = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                Integer group = groupOf.get(cellConstraints.get(i));
+                if (group == null) {
+                    group = groups.size();
+                    groupOf.put(cellConstraints.get(i), group);
+                    groups.add(cellConstraints.get(i));
+                }
+                cellGroup[i] = group;
+            }
+            groupCount = groups.size();
+            groupSize = new int[groupCount];
+            groupConstraints = new int[groupCount][];
+            for (int i = 0; i < size; i++) {
+                groupSize[cellGroup[i]]++;
+            }
+            List<List<Integer>> constraintGroups = new ArrayList<>();
+            for (int c = 0; c < constraints.size(); c++) {
+                constraintGroups.add(new ArrayList<>());
+            }
+            for (int g = 0; g < groupCount; g++) {
+                List<Integer> list = groups.get(g);
+                groupConstraints[g] = new int[list.size()];
+                for (int j = 0; j < list.size(); j++) {
+                    groupConstraints[g][j] = list.get(j);
+                    constraintGroups.get(list.get(j)).add(g);
+                }
+            }
+
+            remainingMines = new int[constraints.size()];
+            remainingCells = new int[constraints.size()];
+            for (int c = 0; c < constraints.size(); c++) {
+                remainingMines[c] = values.get(c);
+                remainingCells[c] = constraints.get(c).length;
+            }
+
+            //Visit groups in breadth first order so constraints are completed, and pruned, as early as possible
+            order = new int[groupCount];
+            boolean[] queued = new boolean[groupCount];
+            int tail = 0;
+            order[tail++] = 0;
+            queued[0] = true;
+            for (int head = 0; head < tail; head++) {
+                for (int c : groupConstraints[order[head]]) {
+                    for (int g : constraintGroups.get(c)) {
+                        if (!queued[g]) {
+                            queued[g] = true;
+                            order[tail++] = g;
+                        }
+                    }
+                }
+            }
+
+            int largest = Arrays.stream(groupSize).max().orElse(0);
+            binomial = new double[largest + 1][];
+            for (int n = 0; n <= largest; n++) {
+                binomial[n] = new double[n + 1];
+                binomial[n][0] = 1;
+                binomial[n][n] = 1;
+                for (int k = 1; k < n; k++) {
+                    binomial[n][k] = binomial[n - 1][k - 1] + binomial[n - 1][k];
+                }
+            }
+
+            solutions = new double[size + 1];
+            groupMineCounts = new double[size + 1][groupCount];
+            groupSomeSafe = new boolean[size + 1][groupCount];
+            groupMines = new int[groupCount];
+            search(0, 0, 1);
+
+            //Scale so the largest count is 1, which does not change any ratio but keeps later products in range
+            double max = 0;
+            for (double v : solutions) {
+                max = Math.max(max, v);
+            }
+            mineCounts = new double[size + 1][size];
+            someSafe = new boolean[size + 1][size];
+            for (int k = 0; k <= size; k++) {
+                solutions[k] /= max;
+                for (int i = 0; i < size; i++) {
+                    mineCounts[k][i] = groupMineCounts[k][cellGroup[i]] / max;
+                    someSafe[k][i] = groupSomeSafe[k][cellGroup[i]];
+                }
+            }
+        }
+
+        /**
+         * Tries every number of mines for the group at the given depth, counting each complete assignment
+         *
+         * @param depth  int position in the visiting order
+         * @param mines  int of the number of mines assigned so far
+         * @param weight double of the number of cell arrangements of the groups assigned so far
+         */
+        private void search(int depth, int mines, double weight) {
+            if (depth == groupCount) {
+                solutions[mines] += weight;
+                for (int g = 0; g < groupCount; g++) {
+                    if (groupMines[g] > 0) {
+                        groupMineCounts[mines][g] += weight * groupMines[g] / groupSize[g];
+                    }
+                    if (groupMines[g] < groupSize[g]) {
+                        groupSomeSafe[mines][g] = true;
+                    }
+                }
+                return;
+            }
+            int group = order[depth];
+            int n = groupSize[group];
+            for (int v = 0; v <= n; v++) {
+                boolean valid = true;
+                for (int c : groupConstraints[group]) {
+                    remainingCells[c] -= n;
+                    remainingMines[c] -= v;
+                    if (remainingMines[c] < 0 || remainingMines[c] > remainingCells[c]) {
+                        valid = false;
+                    }
+                }
+                if (valid) {
+                    groupMines[group] = v;
+                    search(depth + 1, mines + v, weight * binomial[n][v]);
+                }
+                boolean tooMany = false;
+                for (int c : groupConstraints[group]) {
+                    remainingCells[c] += n;
+                    remainingMines[c] += v;
+                    tooMany |= remainingMines[c] - v - 1 < 0;
+                }
+                if (tooMany) {
+                    break;
+                }
+            }
+            groupMines[group] = 0;
+        }
+    }
+
+    /**
+     * Result of the analysis of a board
+     */
+    public static class Result {
+
+        private final Board board;
+        private final double[] probability;
+        private final Status[] status;
+
+        /**
+         * Constructor for the Result, revealed cells are marked REVEALED
+         *
+         * @param board Board that was analysed
+         */
+        Result(Board board) {
+            this.board = board;
+            int cells = board.getBoardX() * board.getBoardY();
+            probability = new double[cells];
+            status = new Status[cells];
+            for (int index = 0; index < cells; index++) {
+                if (board.isRevealed(board.getX(index), board.getY(index))) {
+                    status[index] = Status.REVEALED;
+                }
+            }
+        }
+
+        /**
+         * Sets the result for one unrevealed cell
+         *
+         * @param index        int board index of the cell
+         * @param p            double probability that the cell is a mine
+         * @param possibleMine boolean whether any solution has a mine in the cell
+         * @param possibleSafe boolean whether any solution has no mine in the cell
+         */
+        private void set(int index, double p, boolean possibleMine, boolean possibleSafe) {
+            if (!possibleMine) {
+                status[index] = Status.SAFE;
+                probability[index] = 0;
+            } else if (!possibleSafe) {
+                status[index] = Status.MINE;
+                probability[index] = 1;
+            } else {
+                status[index] = Status.UNKNOWN;
+                probability[index] = p;
+            }
+        }
+
+        /**
+         * Returns the status of a cell
+         *
+         * @param x x position of the cell
+         * @param y y position of the cell
+         *
+         * @return Status enum of the cell
+         */
+        public Status getStatus(int x, int y) {
+            return status[board.getIndex(x, y)];
+        }
+
+        /**
+         * Returns the probability that a cell is a mine
+         *
+         * @param x x position of the cell
+         * @param y y position of the cell
+         *
+         * @return double between 0 and 1, 0 for revealed cells
+         */
+        public double getProbability(int x, int y) {
+            return probability[board.getIndex(x, y)];
+        }
+
+        /**
+         * Returns whether a cell is certainly not a mine
+         *
+         * @param x x position of the cell
+         * @param y y position of the cell
+         *
+         * @return boolean whether the cell is unrevealed and safe
+         */
+        public boolean isSafe(int x, int y) {
+            return getStatus(x, y) == Status.SAFE;
+        }
+
+        /**
+         * Returns whether a cell is certainly a mine
+         *
+         * @param x x position of the cell
+         * @param y y position of the cell
+         *
+         * @return boolean whether the cell is unrevealed and a mine
+         */
+        public boolean isMine(int x, int y) {
+            return getStatus(x, y) == Status.MINE;
+        }
+    }
+
+    /**
+     * Enums for what the solver knows about a cell
+     */
+    public enum Status {
+        REVEALED, SAFE, MINE, UNKNOWN
+    }
+}
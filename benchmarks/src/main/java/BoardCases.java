@@ -0,0 +1,201 @@
+import minesweeper.benchmarks.Cases;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * <p><b>BoardCases</b> holds the boards and buffers the operations <b>BoardBenchmarks</b> times at one board size, and
+ * the operations themselves (see Cases). It is in the default package so it can use the game's classes.</p>
+ */
+public class BoardCases implements Cases {
+
+    private final int width;
+    private final int height;
+    private final int cells;
+    private final int[] neighbours = new int[9];
+    private final Board played;
+    private final Board fresh;
+    private final BoardPool.Entry entry;
+    private final GameEngine engine;
+    private final long floodSeed;
+    private final byte[] legacy;
+    private final ByteArrayOutputStream legacyOut;
+    private final SaveFile.Snapshot snapshot;
+    private final ByteBuffer binary;
+    private final Path file;
+    private long seed;
+    private int index;
+
+    /**
+     * Constructor for the BoardCases, generates the boards, finds the seed for the flood fill and writes the saves the
+     * load cases read
+     *
+     * @param width  int of the width of the board
+     * @param height int of the height of the board
+     * @param mines  int of the number of mines
+     *
+     * @throws IOException if the saves can not be written
+     */
+    public BoardCases(int width, int height, int mines) throws IOException {
+        this.width = width;
+        this.height = height;
+        cells = width * height;
+        played = new Board(width, height, mines);
+        played.setSafeCells(width / 2, height / 2);
+        played.generateMines(1);
+        fresh = new Board(width, height, mines);
+        entry = new BoardPool.Entry(width, height, mines, 1);
+
+        //The flood fill is measured as a whole first move, on the seed that opens the most cells of the first few
+        engine = new GameEngine(new Board(width, height, mines), true, GameManager.Difficulty.CUSTOM,
+                new SplittableRandom(0));
+        long bestSeed = 0;
+        int bestOpened = -1;
+        for (long s = 0; s < 20; s++) {
+            engine.newGame(s);
+            int opened = engine.reveal(width / 2, height / 2).getChanges().size();
+            if (opened > bestOpened) {
+                bestOpened = opened;
+                bestSeed = s;
+            }
+        }
+        floodSeed = bestSeed;
+
+        ByteArrayOutputStream saved = new ByteArrayOutputStream();
+        writeLegacy(played, saved);
+        legacy = saved.toByteArray();
+        legacyOut = new ByteArrayOutputStream(legacy.length);
+
+        snapshot = new SaveFile.Snapshot(0, 0, played, false, GameManager.Difficulty.CUSTOM, 25, 1, 0, false);
+        binary = ByteBuffer.allocate((int) SaveFile.fileSize(width, height));
+        SaveFile.encode(snapshot, binary);
+        file = Files.createTempFile("benchmark", ".data");
+    }
+
+    @Override
+    public long generateNewBoard() {
+        fresh.generateNewBoard();
+        return fresh.getBoardX();
+    }
+
+    @Override
+    public long generateMines() {
+        fresh.generateNewBoard();
+        fresh.setSafeCells(width / 2, height / 2);
+        fresh.generateMines(seed++);
+        return fresh.nonMinesLeft();
+    }
+
+    @Override
+    public long pooledMines() {
+        fresh.generateNewBoard();
+        fresh.setSafeCells(width / 2, height / 2);
+        fresh.generateMines(entry.getMines(fresh));
+        return fresh.nonMinesLeft();
+    }
+
+    @Override
+    public long getAdjacentCells() {
+        index = index + 1 == cells ? 0 : index + 1;
+        return played.getAdjacentCells(played.getX(index), played.getY(index)).size();
+    }
+
+    @Override
+    public long getAdjacentIndices() {
+        index = index + 1 == cells ? 0 : index + 1;
+        return played.getAdjacentIndices(played.getX(index), played.getY(index), neighbours);
+    }
+
+    @Override
+    public long getAdjacentMines() {
+        index = index + 1 == cells ? 0 : index + 1;
+        return played.getAdjacentMines(played.getX(index), played.getY(index));
+    }
+
+    @Override
+    public long minesLeft() {
+        return played.nonMinesLeft() + played.minesLeft();
+    }
+
+    @Override
+    public long floodReveal() {
+        engine.newGame(floodSeed);
+        return engine.reveal(width / 2, height / 2).getChanges().size();
+    }
+
+    @Override
+    public long saveLegacy() throws IOException {
+        legacyOut.reset();
+        writeLegacy(played, legacyOut);
+        return legacyOut.size();
+    }
+
+    @Override
+    public long loadLegacy() throws Exception {
+        try (ObjectInputStream os = new ObjectInputStream(new ByteArrayInputStream(legacy))) {
+            os.readObject();
+            os.readObject();
+            Board board = (Board) os.readObject();
+            os.readObject();
+            os.readObject();
+            os.readObject();
+            return board.nonMinesLeft();
+        }
+    }
+
+    @Override
+    public long saveBinary() {
+        binary.clear();
+        SaveFile.encode(snapshot, binary);
+        return binary.position();
+    }
+
+    @Override
+    public long loadBinary() throws IOException {
+        binary.clear();
+        return SaveFile.decode(binary).getBoard().nonMinesLeft();
+    }
+
+    @Override
+    public long saveFile() throws IOException {
+        SaveFile.write(file, snapshot);
+        return SaveFile.read(file).getBoard().nonMinesLeft();
+    }
+
+    /**
+     * Deletes the save file written by saveFile
+     *
+     * @throws IOException if the file can not be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Writes a game with the same objects, in the same order, as GameManager.save did before the binary format
+     *
+     * @param board Board to write
+     * @param out   OutputStream to write to
+     *
+     * @throws IOException if the stream can not be written to
+     */
+    private static void writeLegacy(Board board, OutputStream out) throws IOException {
+        ObjectOutputStream os = new ObjectOutputStream(out);
+        os.writeObject(0);
+        os.writeObject(0);
+        os.writeObject(board);
+        os.writeObject(false);
+        os.writeObject(GameManager.Difficulty.CUSTOM);
+        os.writeObject(25);
+        os.close();
+    }
+}
@@ -0,0 +1,38 @@
+package minesweeper.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * <p><b>BenchmarkMain</b> runs the JMH benchmarks with the GC profiler, so every result comes with its allocation rate
+ * and bytes per operation.</p>
+ * <p>Usage: java -jar benchmarks/target/benchmarks.jar [JMH options]</p>
+ */
+public class BenchmarkMain {
+
+    /**
+     * Main method to run the benchmarks from the command line
+     *
+     * @param args JMH command line options, i.e. a benchmark name filter
+     *
+     * @throws CommandLineOptionException if the options can not be parsed
+     * @throws RunnerException            if a benchmark fails
+     * @throws IOException                if JMH can not list the benchmarks
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            //Nothing to run, let JMH print what was asked for
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,147 @@
+package minesweeper.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p><b>BoardBenchmarks</b> times the hot paths of the <b>Board</b> and <b>GameManager</b> with JMH, at Beginner,
+ * Expert and two large custom sizes. The operations themselves are in <b>BoardCases</b> (see Cases).</p>
+ * <p>Every benchmark and size runs in forked JVMs of its own, so one benchmark's JIT profile does not slow down the
+ * next. Run with <code>java -jar benchmarks/target/benchmarks.jar</code>, which adds the GC profiler for the
+ * allocation rate and bytes per operation (see BenchmarkMain), and takes the usual JMH options, i.e. a name filter or
+ * <code>-p size=expert</code>.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BoardBenchmarks {
+
+    /**
+     * Name of the board size, see setUp
+     */
+    @Param({"beginner", "expert", "1000x1000", "4000x4000"})
+    public String size;
+
+    private Cases cases;
+
+    /**
+     * Creates the cases for the board size
+     *
+     * @throws ReflectiveOperationException if BoardCases is not on the class path
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        int[] board;
+        switch (size) {
+            case "beginner":
+                board = new int[]{9, 9, 10};
+                break;
+            case "expert":
+                board = new int[]{30, 16, 99};
+                break;
+            case "1000x1000":
+                board = new int[]{1000, 1000, 100000};
+                break;
+            case "4000x4000":
+                board = new int[]{4000, 4000, 3300000};
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown size " + size);
+        }
+        //BoardCases is in the default package, which can not be imported
+        cases = (Cases) Class.forName("BoardCases").getConstructor(int.class, int.class, int.class)
+                .newInstance(board[0], board[1], board[2]);
+    }
+
+    /**
+     * Deletes the files the cases wrote
+     *
+     * @throws IOException if a file can not be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        cases.close();
+    }
+
+    @Benchmark
+    public long generateNewBoard() {
+        return cases.generateNewBoard();
+    }
+
+    @Benchmark
+    public long generateNewBoardGenerateMines() {
+        return cases.generateMines();
+    }
+
+    @Benchmark
+    public long generateNewBoardPooledMines() {
+        return cases.pooledMines();
+    }
+
+    @Benchmark
+    public long getAdjacentCells() {
+        return cases.getAdjacentCells();
+    }
+
+    @Benchmark
+    public long getAdjacentIndices() {
+        return cases.getAdjacentIndices();
+    }
+
+    @Benchmark
+    public long getAdjacentMines() {
+        return cases.getAdjacentMines();
+    }
+
+    @Benchmark
+    public long nonMinesLeftMinesLeft() {
+        return cases.minesLeft();
+    }
+
+    @Benchmark
+    public long newGameFloodReveal() {
+        return cases.floodReveal();
+    }
+
+    @Benchmark
+    public long saveLegacy() throws IOException {
+        return cases.saveLegacy();
+    }
+
+    @Benchmark
+    public long loadLegacy() throws Exception {
+        return cases.loadLegacy();
+    }
+
+    @Benchmark
+    public long saveBinary() {
+        return cases.saveBinary();
+    }
+
+    @Benchmark
+    public long loadBinary() throws IOException {
+        return cases.loadBinary();
+    }
+
+    @Benchmark
+    public long saveFileWriteRead() throws IOException {
+        return cases.saveFile();
+    }
+}
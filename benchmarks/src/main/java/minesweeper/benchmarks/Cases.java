@@ -0,0 +1,113 @@
+package minesweeper.benchmarks;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * <p>The operations <b>BoardBenchmarks</b> times, for one board size. They are implemented by the default package class
+ * <b>BoardCases</b>, as only classes in the default package can use the game's classes, and JMH does not allow a
+ * benchmark in the default package.</p>
+ * <p>Every operation returns a value derived from all of its work, which JMH consumes so the work can not be removed.
+ * Closing the cases deletes any file they wrote.</p>
+ */
+public interface Cases extends Closeable {
+
+    /**
+     * Clears the board for a new game
+     *
+     * @return long derived from the result
+     */
+    long generateNewBoard();
+
+    /**
+     * Clears the board and generates its mines around a first click in the middle
+     *
+     * @return long derived from the result
+     */
+    long generateMines();
+
+    /**
+     * Clears the board and places mines chosen in advance by a BoardPool entry
+     *
+     * @return long derived from the result
+     */
+    long pooledMines();
+
+    /**
+     * Lists the neighbours of the next cell as Cell objects
+     *
+     * @return long derived from the result
+     */
+    long getAdjacentCells();
+
+    /**
+     * Writes the indices of the neighbours of the next cell to an array
+     *
+     * @return long derived from the result
+     */
+    long getAdjacentIndices();
+
+    /**
+     * Reads the adjacent mine count of the next cell
+     *
+     * @return long derived from the result
+     */
+    long getAdjacentMines();
+
+    /**
+     * Reads the running counters of cells and mines left
+     *
+     * @return long derived from the result
+     */
+    long minesLeft();
+
+    /**
+     * Starts a new game and makes a first reveal that opens the largest region of the first few seeds
+     *
+     * @return long derived from the result
+     */
+    long floodReveal();
+
+    /**
+     * Saves the game with Java serialization, as GameManager.save did before the binary format
+     *
+     * @return long derived from the result
+     *
+     * @throws IOException if the game can not be serialized
+     */
+    long saveLegacy() throws IOException;
+
+    /**
+     * Loads a game saved with Java serialization, as GameManager.loadSave did before the binary format
+     *
+     * @return long derived from the result
+     *
+     * @throws Exception if the game can not be deserialized
+     */
+    long loadLegacy() throws Exception;
+
+    /**
+     * Encodes the game in the binary save format, in memory
+     *
+     * @return long derived from the result
+     */
+    long saveBinary();
+
+    /**
+     * Decodes the game from the binary save format, in memory
+     *
+     * @return long derived from the result
+     *
+     * @throws IOException if the save can not be decoded
+     */
+    long loadBinary() throws IOException;
+
+    /**
+     * Writes the save file and reads it back through the file system, as GameManager does
+     *
+     * @return long derived from the result
+     *
+     * @throws IOException if the file can not be written or read
+     */
+    long saveFile() throws IOException;
+}
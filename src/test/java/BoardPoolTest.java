@@ -0,0 +1,69 @@
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests that a <b>BoardPool.Entry</b> gives exactly the board its seed gives: for first clicks inside the board (9
+ * safe cells), along an edge (6) and in a corner (4), the mines placed from the entry's positions must be the mines
+ * generateMines(seed) places around the same click. Boards narrower than 3 cells, where a click makes other numbers of
+ * safe cells, are tested too
+ */
+class BoardPoolTest {
+
+    private static final int SEEDS = 200;
+
+    @ParameterizedTest
+    @CsvSource({"9, 9, 10", "16, 16, 40", "30, 16, 99", "40, 25, 400", "2, 10, 6", "1, 12, 4"})
+    void entryGivesTheBoardOfItsSeed(int boardX, int boardY, int mines) {
+        int[][] clicks = {{boardX / 2, boardY / 2}, {0, boardY / 2}, {boardX / 2, boardY - 1}, {0, 0},
+                {boardX - 1, boardY - 1}};
+        for (long seed = 0; seed < SEEDS; seed++) {
+            BoardPool.Entry entry = new BoardPool.Entry(boardX, boardY, mines, seed * 0x9E3779B97F4A7C15L);
+            assertNull(entry.getMines(new Board(boardX + 1, boardY, mines)), "entry used for a wider board");
+            assertNull(entry.getMines(new Board(boardX, boardY, mines - 1)), "entry used for fewer mines");
+            for (int[] click : clicks) {
+                compare(entry, boardX, boardY, mines, click[0], click[1]);
+            }
+        }
+    }
+
+    /**
+     * Asserts the board an entry gives for a first click is the board its seed gives
+     *
+     * @param entry  BoardPool.Entry to place the mines from
+     * @param boardX int of the width of the board
+     * @param boardY int of the height of the board
+     * @param mines  int of the number of mines
+     * @param x      x position of the first click
+     * @param y      y position of the first click
+     */
+    private static void compare(BoardPool.Entry entry, int boardX, int boardY, int mines, int x, int y) {
+        Board seeded = new Board(boardX, boardY, mines);
+        seeded.setSafeCells(x, y);
+        seeded.generateMines(entry.getSeed());
+
+        Board pooled = new Board(boardX, boardY, mines);
+        pooled.setSafeCells(x, y);
+        int safe = pooled.getSafeCellCount();
+        assertEquals((Math.min(x + 1, boardX - 1) - Math.max(x - 1, 0) + 1)
+                * (Math.min(y + 1, boardY - 1) - Math.max(y - 1, 0) + 1), safe, "safe cells around " + x + "," + y);
+        long[] chosen = entry.getMines(pooled);
+        assertNotNull(chosen, "entry has mines for " + safe + " safe cells");
+        pooled.generateMines(chosen);
+
+        String board = "seed " + entry.getSeed() + " clicked at " + x + "," + y + " (" + safe + " safe cells)";
+        for (int cx = 0; cx < boardX; cx++) {
+            for (int cy = 0; cy < boardY; cy++) {
+                assertEquals(seeded.isMine(cx, cy), pooled.isMine(cx, cy), board + ", mine at " + cx + "," + cy);
+                assertEquals(seeded.getAdjacentMines(cx, cy), pooled.getAdjacentMines(cx, cy),
+                        board + ", adjacent mines at " + cx + "," + cy);
+            }
+        }
+        assertEquals(seeded.minesLeft(), pooled.minesLeft(), board);
+        assertEquals(seeded.nonMinesLeft(), pooled.nonMinesLeft(), board);
+        pooled.checkCounters();
+    }
+}
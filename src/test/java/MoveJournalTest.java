@@ -0,0 +1,199 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a <b>MoveJournal</b> whose end has been damaged, as by a crash or a bad disk, is recovered up to its last
+ * whole batch, replays as it was played, and can be appended to again
+ */
+class MoveJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private Path path;
+    private GameEngine played;
+    private byte[] written;
+    /**
+     * Sequence numbers of the end of the first batches and of the whole journal
+     */
+    private long firstBatches;
+    private long end;
+
+    /**
+     * Journals random Beginner games, letting the writer flush before the last moves so they are a batch of their own
+     *
+     * @throws Exception if the journal can not be written, or the thread is interrupted
+     */
+    @BeforeEach
+    void journalGames() throws Exception {
+        path = directory.resolve("game.journal");
+        played = new GameEngine(GameManager.Difficulty.BEGINNER, new SplittableRandom(1));
+        MoveJournal journal = new MoveJournal(path, 0);
+        journal.attach(played);
+        journal.recordNewGame();
+        SplittableRandom moves = new SplittableRandom(2);
+        play(played, moves, 40);
+        Thread.sleep(4 * MoveJournal.FLUSH_MILLIS);
+        firstBatches = journal.getSequence();
+        play(played, moves, 20);
+        end = journal.getSequence();
+        journal.close();
+        assertTrue(0 < firstBatches && firstBatches < end);
+        written = Files.readAllBytes(path);
+    }
+
+    @Test
+    void wholeJournalReplaysToTheGame() throws IOException {
+        MoveJournal.Contents contents = MoveJournal.read(path);
+        assertNotNull(contents);
+        assertEquals(0, contents.getBase());
+        assertEquals(end, contents.getEnd());
+        assertArrayEquals(cells(played.getBoard()), cells(replay(contents).getBoard()));
+    }
+
+    @Test
+    void lastBatchCutShortIsDropped() throws Exception {
+        Files.write(path, Arrays.copyOf(written, written.length - 3));
+        recover(firstBatches);
+    }
+
+    @Test
+    void lastBatchNotMatchingItsChecksumIsDropped() throws Exception {
+        written[written.length - 2] ^= 0x40;
+        Files.write(path, written);
+        recover(firstBatches);
+    }
+
+    @Test
+    void zerosAfterTheLastBatchAreDropped() throws Exception {
+        Files.write(path, Arrays.copyOf(written, written.length + 13));
+        recover(end);
+    }
+
+    @Test
+    void firstBatchCutShortLeavesNothing() throws Exception {
+        Files.write(path, Arrays.copyOf(written, MoveJournal.HEADER_BYTES + 5));
+        recover(0);
+    }
+
+    /**
+     * Reads the damaged journal, asserts it stops at the given entry and replays, then asserts opening it drops the
+     * damaged bytes so the entries appended afterwards are read back after the recovered ones
+     *
+     * @param expected long sequence number of the first entry that should be lost
+     *
+     * @throws Exception if the journal can not be written or read, or the thread is interrupted
+     */
+    private void recover(long expected) throws Exception {
+        MoveJournal.Contents contents = MoveJournal.read(path);
+        assertNotNull(contents);
+        assertEquals(expected, contents.getEnd());
+        GameEngine engine = replay(contents);
+
+        MoveJournal journal = new MoveJournal(path, contents.getEnd());
+        journal.attach(engine);
+        if (contents.getEnd() == 0) {
+            journal.recordNewGame();
+        }
+        play(engine, new SplittableRandom(3), 10);
+        long appended = journal.getSequence();
+        journal.close();
+
+        MoveJournal.Contents reopened = MoveJournal.read(path);
+        assertEquals(appended, reopened.getEnd());
+        for (int i = 0; i < contents.getEntries().size(); i++) {
+            assertEquals(contents.getEntries().get(i).getSequence(), reopened.getEntries().get(i).getSequence());
+        }
+        assertArrayEquals(cells(engine.getBoard()), cells(replay(reopened).getBoard()));
+    }
+
+    /**
+     * Makes random moves, starting a new game whenever one ends
+     *
+     * @param engine GameEngine to play
+     * @param random SplittableRandom to choose the moves with
+     * @param moves  int of the number of moves to make
+     */
+    private static void play(GameEngine engine, SplittableRandom random, int moves) {
+        Board board = engine.getBoard();
+        for (int i = 0; i < moves; i++) {
+            if (engine.getState() != GameEngine.State.PLAYING) {
+                engine.newGame();
+            }
+            int x = random.nextInt(board.getBoardX());
+            int y = random.nextInt(board.getBoardY());
+            int move = random.nextInt(4);
+            if (move == 0) {
+                engine.toggleFlag(x, y);
+            } else if (move == 1) {
+                engine.chord(x, y);
+            } else {
+                engine.reveal(x, y);
+            }
+        }
+    }
+
+    /**
+     * Replays journal entries on a new engine the way GameManager does when it recovers, asserting each move has the
+     * outcome it was journaled with
+     *
+     * @param contents MoveJournal.Contents to replay, starting with a new game
+     *
+     * @return GameEngine after the last entry
+     */
+    private static GameEngine replay(MoveJournal.Contents contents) {
+        GameEngine engine = new GameEngine(GameManager.Difficulty.BEGINNER, new SplittableRandom(4));
+        for (MoveJournal.Entry entry : contents.getEntries()) {
+            if (entry.isNewGame()) {
+                assertEquals(GameManager.Difficulty.BEGINNER, entry.getDifficulty());
+                engine.setNoGuess(entry.isNoGuess());
+                engine.newGame(entry.getSeed());
+                continue;
+            }
+            MoveResult result;
+            switch (entry.getMove()) {
+                case REVEAL:
+                    result = engine.reveal(entry.getX(), entry.getY());
+                    break;
+                case CHORD:
+                    result = engine.chord(entry.getX(), entry.getY());
+                    break;
+                default:
+                    result = engine.toggleFlag(entry.getX(), entry.getY());
+                    break;
+            }
+            assertEquals(entry.getOutcome(), result.getOutcome(), "outcome of entry " + entry.getSequence());
+        }
+        return engine;
+    }
+
+    /**
+     * Returns the mine, flag and revealed state of every cell of a board
+     *
+     * @param board Board to read
+     *
+     * @return int array of the state of each cell
+     */
+    private static int[] cells(Board board) {
+        int[] cells = new int[board.getBoardX() * board.getBoardY()];
+        for (int x = 0; x < board.getBoardX(); x++) {
+            for (int y = 0; y < board.getBoardY(); y++) {
+                cells[board.getIndex(x, y)] = (board.isMine(x, y) ? 1 : 0) | (board.isFlagged(x, y) ? 2 : 0)
+                        | (board.isRevealed(x, y) ? 4 : 0);
+            }
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,164 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that <b>SaveFile</b> reads back every cell, counter and header field it writes, and rejects damaged files
+ */
+class SaveFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void expertBoardRoundTrips() throws IOException {
+        roundTrip(new Board(GameManager.Difficulty.EXPERT), GameManager.Difficulty.EXPERT);
+    }
+
+    @Test
+    void largeCustomBoardRoundTrips() throws IOException {
+        //A file of over 1MB, which read() used to memory map
+        Path path = roundTrip(new Board(2000, 1200, 480000), GameManager.Difficulty.CUSTOM);
+        assertTrue(Files.size(path) > 1 << 20);
+        //A file that has been read can be replaced straight away
+        SaveFile.write(path, SaveFile.read(path));
+    }
+
+    @Test
+    void boardBeforeTheFirstClickRoundTrips() throws IOException {
+        Path path = directory.resolve("game.data");
+        Board board = new Board(GameManager.Difficulty.BEGINNER);
+        SaveFile.write(path, new SaveFile.Snapshot(0, 0, board, true, GameManager.Difficulty.BEGINNER, 1, -1L, 0,
+                false));
+
+        SaveFile.Snapshot loaded = SaveFile.read(path);
+        assertTrue(loaded.isFirstClick());
+        assertFalse(loaded.isNoGuess());
+        assertEquals(-1L, loaded.getSeed());
+        assertSameBoard(board, loaded.getBoard());
+    }
+
+    @Test
+    void flippedBitIsRejected() throws IOException {
+        Path path = saveMedium();
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[SaveFile.HEADER_BYTES + 5] ^= 0x10;
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> SaveFile.read(path));
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        Path path = saveMedium();
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> SaveFile.read(path));
+    }
+
+    /**
+     * Plays a few moves on a board, saves it and checks the save reads back the same
+     *
+     * @param board      Board to play and save
+     * @param difficulty Difficulty enum (see GameManager) of the board
+     *
+     * @return Path of the save file
+     *
+     * @throws IOException if the file can not be written or read
+     */
+    private Path roundTrip(Board board, GameManager.Difficulty difficulty) throws IOException {
+        int x = board.getBoardX() / 2;
+        int y = board.getBoardY() / 2;
+        board.setSafeCells(x, y);
+        board.generateMines(42L);
+        board.setRevealed(x, y, true);
+        board.floodReveal(x, y, new CellChanges());
+        for (int i = 0; i < board.getBoardX(); i += 3) {
+            int fy = (i * 7) % board.getBoardY();
+            if (!board.isRevealed(i, fy)) {
+                board.setFlagged(i, fy, true);
+            }
+        }
+
+        Path path = directory.resolve("game.data");
+        SaveFile.write(path, new SaveFile.Snapshot(12, 34, board, false, difficulty, 3, 0x1234_5678_9ABCL,
+                987654321L, true));
+        assertEquals(SaveFile.fileSize(board.getBoardX(), board.getBoardY()), Files.size(path));
+
+        SaveFile.Snapshot loaded = SaveFile.read(path);
+        assertEquals(12, loaded.getLifetimeWins());
+        assertEquals(34, loaded.getLifetimeLosses());
+        assertFalse(loaded.isFirstClick());
+        assertEquals(difficulty, loaded.getDifficulty());
+        assertEquals(3, loaded.getScale());
+        assertEquals(0x1234_5678_9ABCL, loaded.getSeed());
+        assertEquals(987654321L, loaded.getJournalSequence());
+        assertTrue(loaded.isNoGuess());
+        assertSameBoard(board, loaded.getBoard());
+        return path;
+    }
+
+    /**
+     * Saves a Medium board with its mines generated
+     *
+     * @return Path of the save file
+     *
+     * @throws IOException if the file can not be written
+     */
+    private Path saveMedium() throws IOException {
+        Board board = new Board(GameManager.Difficulty.MEDIUM);
+        board.setSafeCells(0, 0);
+        board.generateMines(7L);
+        Path path = directory.resolve("game.data");
+        SaveFile.write(path, new SaveFile.Snapshot(1, 2, board, false, GameManager.Difficulty.MEDIUM, 1, 7L, 0,
+                false));
+        return path;
+    }
+
+    /**
+     * Asserts two boards have the same size, cells and counters
+     *
+     * @param expected Board that was saved
+     * @param actual   Board that was read back
+     */
+    private static void assertSameBoard(Board expected, Board actual) {
+        assertEquals(expected.getBoardX(), actual.getBoardX());
+        assertEquals(expected.getBoardY(), actual.getBoardY());
+        assertEquals(expected.getNumberOfMines(), actual.getNumberOfMines());
+        assertArrayEquals(cells(expected), cells(actual));
+        assertEquals(expected.nonMinesLeft(), actual.nonMinesLeft());
+        assertEquals(expected.minesLeft(), actual.minesLeft());
+        assertEquals(expected.getFlagsPlaced(), actual.getFlagsPlaced());
+        assertEquals(expected.getRevealedSafeCells(), actual.getRevealedSafeCells());
+        assertEquals(expected.getSafeCellCount(), actual.getSafeCellCount());
+        actual.checkCounters();
+    }
+
+    /**
+     * Returns the state and adjacent mine count of every cell of a board
+     *
+     * @param board Board to read
+     *
+     * @return int array of each cell's flags, and its adjacent mines shifted past them
+     */
+    private static int[] cells(Board board) {
+        int[] cells = new int[board.getBoardX() * board.getBoardY()];
+        for (int x = 0; x < board.getBoardX(); x++) {
+            for (int y = 0; y < board.getBoardY(); y++) {
+                cells[board.getIndex(x, y)] = (board.isMine(x, y) ? 1 : 0) | (board.isFlagged(x, y) ? 2 : 0)
+                        | (board.isRevealed(x, y) ? 4 : 0) | (board.isSafe(x, y) ? 8 : 0)
+                        | board.getAdjacentMines(x, y) << 4;
+            }
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,160 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the <b>Solver</b> against brute force on small random boards part way through a game. Every placement of the
+ * mines among the unrevealed cells that agrees with the revealed numbers is counted, and the chance a cell is a mine is
+ * the share of those placements it is a mine in
+ */
+class SolverTest {
+
+    private static final int BOARDS = 1000;
+    /**
+     * Boards with more unrevealed cells than this are skipped, as brute force tries every subset of them
+     */
+    private static final int MAX_UNREVEALED = 22;
+
+    @Test
+    void probabilitiesMatchBruteForce() {
+        SplittableRandom random = new SplittableRandom(9);
+        Solver solver = new Solver();
+        int checked = 0;
+        while (checked < BOARDS) {
+            Board board = randomBoard(random);
+            if (board == null) {
+                continue;
+            }
+            double[] expected = bruteForce(board);
+            Solver.Result result = solver.solve(board);
+            for (int x = 0; x < board.getBoardX(); x++) {
+                for (int y = 0; y < board.getBoardY(); y++) {
+                    String cell = board.getBoardX() + "x" + board.getBoardY() + " board with "
+                            + board.getNumberOfMines() + " mines, cell " + x + "," + y;
+                    if (board.isRevealed(x, y)) {
+                        assertEquals(Solver.Status.REVEALED, result.getStatus(x, y), cell);
+                        continue;
+                    }
+                    double p = expected[board.getIndex(x, y)];
+                    assertEquals(p, result.getProbability(x, y), 1e-9, cell);
+                    assertEquals(p == 0, result.isSafe(x, y), cell);
+                    assertEquals(p == 1, result.isMine(x, y), cell);
+                }
+            }
+            checked++;
+        }
+    }
+
+    /**
+     * Generates a board of 3 to 6 cells a side, reveals the region around a first click and a few more safe cells,
+     * and flags a few mines, which the solver should ignore
+     *
+     * @param random SplittableRandom to choose the board with
+     *
+     * @return Board to check, or null if it has too many unrevealed cells to brute force
+     */
+    private static Board randomBoard(SplittableRandom random) {
+        int boardX = 3 + random.nextInt(4);
+        int boardY = 3 + random.nextInt(4);
+        int mines = 2 + random.nextInt(boardX * boardY / 3);
+        Board board = new Board(boardX, boardY, mines);
+        int x = random.nextInt(boardX);
+        int y = random.nextInt(boardY);
+        board.setSafeCells(x, y);
+        if (board.getSafeCellCount() + mines > boardX * boardY) {
+            return null;
+        }
+        board.generateMines(random.nextLong());
+        board.setRevealed(x, y, true);
+        board.floodReveal(x, y, new CellChanges());
+        for (int i = random.nextInt(4); i > 0; i--) {
+            int cx = random.nextInt(boardX);
+            int cy = random.nextInt(boardY);
+            if (board.isMine(cx, cy)) {
+                board.setFlagged(cx, cy, true);
+            } else {
+                board.setRevealed(cx, cy, true);
+            }
+        }
+        return boardX * boardY - board.getRevealedSafeCells() > MAX_UNREVEALED ? null : board;
+    }
+
+    /**
+     * Counts every placement of the mines among the unrevealed cells that agrees with the revealed numbers
+     *
+     * @param board Board to analyse
+     *
+     * @return double array of the share of those placements each cell is a mine in, by index
+     */
+    private static double[] bruteForce(Board board) {
+        int cells = board.getBoardX() * board.getBoardY();
+        int[] unrevealed = new int[cells];
+        int count = 0;
+        for (int index = 0; index < cells; index++) {
+            if (!board.isRevealed(board.getX(index), board.getY(index))) {
+                unrevealed[count++] = index;
+            }
+        }
+
+        long[] minesAt = new long[cells];
+        long placements = 0;
+        boolean[] mine = new boolean[cells];
+        int[] neighbours = new int[9];
+        for (int subset = 0; subset < 1 << count; subset++) {
+            if (Integer.bitCount(subset) != board.getNumberOfMines()) {
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                mine[unrevealed[i]] = (subset & 1 << i) != 0;
+            }
+            if (!agrees(board, mine, neighbours)) {
+                continue;
+            }
+            placements++;
+            for (int i = 0; i < count; i++) {
+                if (mine[unrevealed[i]]) {
+                    minesAt[unrevealed[i]]++;
+                }
+            }
+        }
+
+        double[] probability = new double[cells];
+        for (int i = 0; i < count; i++) {
+            probability[unrevealed[i]] = (double) minesAt[unrevealed[i]] / placements;
+        }
+        return probability;
+    }
+
+    /**
+     * Returns whether a placement of mines gives every revealed cell the number it shows
+     *
+     * @param board      Board whose revealed cells to check
+     * @param mine       boolean array of whether each unrevealed cell is a mine, by index
+     * @param neighbours int array of at least 9 to hold the cells around each revealed cell
+     *
+     * @return boolean whether the placement agrees with every revealed number
+     */
+    private static boolean agrees(Board board, boolean[] mine, int[] neighbours) {
+        for (int index = 0; index < mine.length; index++) {
+            int x = board.getX(index);
+            int y = board.getY(index);
+            if (!board.isRevealed(x, y)) {
+                continue;
+            }
+            int around = 0;
+            int count = board.getAdjacentIndices(x, y, neighbours);
+            for (int i = 0; i < count; i++) {
+                int n = neighbours[i];
+                if (!board.isRevealed(board.getX(n), board.getY(n)) && mine[n]) {
+                    around++;
+                }
+            }
+            if (around != board.getAdjacentMines(x, y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}